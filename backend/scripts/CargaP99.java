@@ -0,0 +1,79 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gerador de carga minimo para comparar latencias: {@code clientes} conexoes
+ * simultaneas fazem GET em {@code url} durante {@code segundos} e no fim sao
+ * impressos vazao, p50, p99 e p99.9. Roda sem dependencias:
+ * {@code java CargaP99.java http://localhost:8080/tarefas?usuario=1 1000 30}
+ */
+public class CargaP99 {
+
+    public static void main(String[] args) throws Exception {
+        URI url = URI.create(args[0]);
+        int clientes = Integer.parseInt(args[1]);
+        long segundos = Long.parseLong(args[2]);
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HttpRequest pedido = HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(60)).GET().build();
+
+        long aquecimento = System.nanoTime() + Duration.ofSeconds(Math.min(5, segundos / 5)).toNanos();
+        long fim = aquecimento + Duration.ofSeconds(segundos).toNanos();
+        long[][] latencias = new long[clientes][];
+        int[] quantidades = new int[clientes];
+        AtomicInteger erros = new AtomicInteger();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clientes; c++) {
+                int cliente = c;
+                executor.submit(() -> {
+                    long[] minhas = new long[1024];
+                    int n = 0;
+                    while (System.nanoTime() < fim) {
+                        long inicio = System.nanoTime();
+                        try {
+                            HttpResponse<Void> resposta = http.send(pedido, HttpResponse.BodyHandlers.discarding());
+                            if (resposta.statusCode() >= 400) {
+                                erros.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            erros.incrementAndGet();
+                        }
+                        if (inicio < aquecimento) {
+                            continue;
+                        }
+                        if (n == minhas.length) {
+                            minhas = Arrays.copyOf(minhas, n * 2);
+                        }
+                        minhas[n++] = System.nanoTime() - inicio;
+                    }
+                    latencias[cliente] = minhas;
+                    quantidades[cliente] = n;
+                });
+            }
+        }
+
+        int total = Arrays.stream(quantidades).sum();
+        long[] todas = new long[total];
+        int pos = 0;
+        for (int c = 0; c < clientes; c++) {
+            System.arraycopy(latencias[c], 0, todas, pos, quantidades[c]);
+            pos += quantidades[c];
+        }
+        Arrays.sort(todas);
+        System.out.printf("clientes=%d requisicoes=%d erros=%d vazao=%.0f/s p50=%.1fms p99=%.1fms p99.9=%.1fms%n",
+                clientes, total, erros.get(), total / (double) segundos, ms(todas, 0.50), ms(todas, 0.99),
+                ms(todas, 0.999));
+    }
+
+    private static double ms(long[] ordenadas, double quantil) {
+        if (ordenadas.length == 0) {
+            return Double.NaN;
+        }
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(quantil * ordenadas.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compara a latencia com threads de plataforma e com threads virtuais.
+# Uso: scripts/comparar-p99.sh [clientes] [segundos] [url]
+# Precisa do jar empacotado (mvn package) e de um banco com dados em BANCO.
+set -e
+cd "$(dirname "$0")/.."
+CLIENTES=${1:-1000}
+SEGUNDOS=${2:-30}
+PORTA=${PORTA:-18090}
+BANCO=${BANCO:-target/carga.db}
+URL=${3:-http://localhost:$PORTA/tarefas?usuario=1&limit=50}
+JAR=$(ls target/doolt-*.jar | head -1)
+
+for VIRTUAIS in false true; do
+    java -jar "$JAR" --server.port="$PORTA" --spring.datasource.url="jdbc:sqlite:$BANCO" \
+        --spring.jpa.show-sql=false --spring.threads.virtual.enabled="$VIRTUAIS" > "target/carga-$VIRTUAIS.log" 2>&1 &
+    PID=$!
+    until grep -q "Started DooltApplication" "target/carga-$VIRTUAIS.log"; do sleep 1; done
+    printf "threads virtuais=%s: " "$VIRTUAIS"
+    java scripts/CargaP99.java "$URL" "$CLIENTES" "$SEGUNDOS"
+    kill "$PID"
+    wait "$PID" || true
+done
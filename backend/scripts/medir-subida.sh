@@ -0,0 +1,61 @@
+#!/bin/sh
+# Mede a subida da aplicacao: padrao, perfil rapido, rapido com AOT e rapido com AOT e CDS.
+# Uso: scripts/medir-subida.sh [rodadas]
+# Precisa do jar gerado com o AOT (./mvnw -Prapido package); veja docs/subida-rapida.md.
+# Cada rodada usa uma copia do mesmo banco, criado na primeira subida, e mede o tempo ate
+# "Started DooltApplication" desde o inicio da JVM; sai a mediana de cada modo.
+set -e
+cd "$(dirname "$0")/.."
+RODADAS=${1:-5}
+PORTA=${PORTA:-18091}
+PASTA=target/subida
+JAR=$(ls target/doolt-*.jar | head -1)
+
+rm -rf "$PASTA"
+mkdir -p "$PASTA"
+
+# Sobe, espera o "Started" e devolve os segundos desde o inicio da JVM.
+subir() {
+    rm -f "$PASTA"/rodada.db*
+    cp "$PASTA/base.db" "$PASTA/rodada.db"
+    java "$@" --server.port="$PORTA" --spring.datasource.url="jdbc:sqlite:$PASTA/rodada.db" > "$PASTA/rodada.log" 2>&1 &
+    PID=$!
+    until grep -q "Started DooltApplication\|Application run failed" "$PASTA/rodada.log"; do sleep 0.2; done
+    kill "$PID"
+    wait "$PID" || true
+    sed -n 's/.*Started DooltApplication in .*process running for \([0-9.]*\)).*/\1/p' "$PASTA/rodada.log"
+}
+
+medir() {
+    NOME=$1
+    shift
+    TEMPOS=""
+    for RODADA in $(seq "$RODADAS"); do
+        TEMPO=$(subir "$@")
+        if [ -z "$TEMPO" ]; then
+            echo "$NOME: falhou, veja $PASTA/rodada.log"
+            exit 1
+        fi
+        TEMPOS="$TEMPOS $TEMPO"
+    done
+    printf "%-16s mediana %6.2f s   (%s )\n" "$NOME" \
+        "$(echo $TEMPOS | tr ' ' '\n' | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }')" "$TEMPOS"
+}
+
+# Banco com o esquema e as migracoes aplicadas, o mesmo para todos os modos.
+java -Dspring.context.exit=onRefresh -jar "$JAR" --server.port=0 \
+    --spring.datasource.url="jdbc:sqlite:$PASTA/base.db" > "$PASTA/base.log" 2>&1
+
+# CDS: jar extraido (o arquivo so vale para jars comuns no classpath) e uma rodada de treino.
+java -Djarmode=tools -jar "$JAR" extract --destination "$PASTA/app" > /dev/null
+APP=$PASTA/app/$(basename "$JAR")
+cp "$PASTA/base.db" "$PASTA/treino.db"
+java -XX:ArchiveClassesAtExit="$PASTA/app.jsa" -Dspring.context.exit=onRefresh -Dspring.aot.enabled=true \
+    -jar "$APP" --spring.profiles.active=rapido --server.port=0 \
+    --spring.datasource.url="jdbc:sqlite:$PASTA/treino.db" > "$PASTA/treino.log" 2>&1
+
+medir padrao -jar "$JAR"
+medir rapido -jar "$JAR" --spring.profiles.active=rapido
+medir rapido+aot -Dspring.aot.enabled=true -jar "$JAR" --spring.profiles.active=rapido
+medir rapido+aot+cds -XX:SharedArchiveFile="$PASTA/app.jsa" -Dspring.aot.enabled=true -jar "$APP" \
+    --spring.profiles.active=rapido
@@ -0,0 +1,179 @@
+package com.gasparelli.doolt.carga;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Usuarios e dados sinteticos criados pela propria API antes da medicao:
+ * cada usuario via {@code POST /usuario} e as linhas via os endpoints
+ * {@code /batch}. Guarda os ids que as operacoes precisam (metas de cada
+ * usuario e tarefas criadas durante a carga, para os deletes).
+ */
+final class Massa {
+
+    static final LocalDate INICIO = LocalDate.of(2026, 1, 1);
+
+    static final String[] PALAVRAS = { "reuniao", "relatorio", "mercado", "viagem", "projeto", "leitura",
+            "academia", "orcamento", "cliente", "estudo" };
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    final String url;
+
+    final HttpClient http;
+
+    final List<Usuario> usuarios = new ArrayList<>();
+
+    Massa(String url, HttpClient http) {
+        this.url = url;
+        this.http = http;
+    }
+
+    Usuario sortear() {
+        return usuarios.get(ThreadLocalRandom.current().nextInt(usuarios.size()));
+    }
+
+    /** Cria {@code quantidade} usuarios com {@code linhas} registros em cada tabela. */
+    void criar(int quantidade, int linhas, int paralelos) throws InterruptedException {
+        String rodada = Long.toString(System.currentTimeMillis(), 36);
+        try (ExecutorService executor = Executors.newFixedThreadPool(paralelos)) {
+            List<Future<Usuario>> criados = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                int n = i;
+                criados.add(executor.submit(() -> criarUsuario(rodada, n, linhas)));
+            }
+            for (Future<Usuario> criado : criados) {
+                usuarios.add(criado.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao criar a massa de dados", e.getCause());
+        }
+    }
+
+    private Usuario criarUsuario(String rodada, int n, int linhas) throws IOException, InterruptedException {
+        String email = "carga-" + rodada + "-" + n + "@doolt.dev";
+        String senha = "senha-" + n;
+        JsonNode usuario = postar("/usuario", JSON.createObjectNode()
+                .put("nome", "Usuario " + n).put("email", email).put("senha", senha));
+        int id = usuario.path("id").asInt();
+
+        List<Object> tarefas = new ArrayList<>();
+        List<Object> eventos = new ArrayList<>();
+        List<Object> metas = new ArrayList<>();
+        List<Object> notas = new ArrayList<>();
+        for (int i = 0; i < linhas; i++) {
+            tarefas.add(tarefa(id, i));
+            eventos.add(evento(id, i));
+            metas.add(meta(id, i));
+            notas.add(nota(id, i));
+        }
+        postar("/tarefas/batch", JSON.valueToTree(tarefas));
+        postar("/eventos/batch", JSON.valueToTree(eventos));
+        JsonNode metasCriadas = postar("/metas/batch", JSON.valueToTree(metas));
+        postar("/notas/batch", JSON.valueToTree(notas));
+
+        long[] idsMetas = new long[metasCriadas.size()];
+        for (int i = 0; i < idsMetas.length; i++) {
+            idsMetas[i] = metasCriadas.get(i).path("id").asLong();
+        }
+        return new Usuario(id, email, senha, idsMetas);
+    }
+
+    private JsonNode postar(String caminho, JsonNode corpo) throws IOException, InterruptedException {
+        HttpResponse<byte[]> resposta = http.send(HttpRequest.newBuilder(URI.create(url + caminho))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(corpo)))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() / 100 != 2) {
+            throw new IOException("POST " + caminho + " respondeu " + resposta.statusCode());
+        }
+        return JSON.readTree(resposta.body());
+    }
+
+    static Map<String, Object> tarefa(int usuario, long i) {
+        return Map.of(
+                "idUsuarioFk", usuario,
+                "titulo", "tarefa " + PALAVRAS[(int) (i % PALAVRAS.length)] + " " + i,
+                "descricao", "Descricao da tarefa " + i + " com algum texto para ocupar espaco",
+                "idPrioridadeFk", (int) (i % 3) + 1,
+                "idCategoriaFk", (int) (i % 5) + 1,
+                "dataVencimento", INICIO.plusDays(i % 365).toString(),
+                "idFeitoFk", (int) (i % 2) + 1);
+    }
+
+    static Map<String, Object> evento(int usuario, long i) {
+        return Map.of(
+                "idUsuarioFk", usuario,
+                "titulo", "evento " + PALAVRAS[(int) (i % PALAVRAS.length)] + " " + i,
+                "descricao", "Descricao do evento " + i,
+                "dataEvento", INICIO.plusDays(i % 365).toString(),
+                "idCategoriaFk", (int) (i % 4) + 1,
+                "inicio_hora", String.format("%02d:00", 8 + i % 10),
+                "fimHora", String.format("%02d:45", 8 + i % 10),
+                "local", "Sala " + (i % 12 + 1),
+                "participantes", "ana, bruno",
+                "idFeitoFk", 1);
+    }
+
+    static Map<String, Object> meta(int usuario, long i) {
+        return Map.of(
+                "idUsuarioFk", usuario,
+                "titulo", "meta " + i,
+                "descricao", "Descricao da meta " + i,
+                "idCategoriaFk", (int) (i % 4) + 1,
+                "idPrioridadeFk", (int) (i % 3) + 1,
+                "meta", 1000,
+                "atual", 0,
+                "unidade", "paginas",
+                "prazo", INICIO.plusDays(i % 365).toString(),
+                "idEstadoFk", 1);
+    }
+
+    static Map<String, Object> nota(int usuario, long i) {
+        return Map.of(
+                "idUsuarioFk", usuario,
+                "titulo", "nota " + i,
+                "descricao", "Anotacao sobre " + PALAVRAS[(int) (i % PALAVRAS.length)] + " e "
+                        + PALAVRAS[(int) ((i / 3) % PALAVRAS.length)],
+                "idCoresFk", (int) (i % 6) + 1,
+                "tags", PALAVRAS[(int) (i % PALAVRAS.length)] + ", " + PALAVRAS[(int) ((i + 3) % PALAVRAS.length)],
+                "idBoleanFavoritoFk", (int) (i % 2) + 1);
+    }
+
+    static final class Usuario {
+
+        final int id;
+
+        final String email;
+
+        final String senha;
+
+        final long[] metas;
+
+        /** Tarefas criadas durante a carga; os deletes so apagam estas. */
+        final ConcurrentLinkedDeque<Long> tarefasCriadas = new ConcurrentLinkedDeque<>();
+
+        Usuario(int id, String email, String senha, long[] metas) {
+            this.id = id;
+            this.email = email;
+            this.senha = senha;
+            this.metas = metas;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.gasparelli.doolt.carga;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Uma requisicao da carga. Cada operacao monta o pedido para um usuario
+ * sorteado; {@link #montar} devolve null quando ainda nao ha o que fazer
+ * (por exemplo, apagar sem nenhuma tarefa criada) e o cliente sorteia outra.
+ */
+enum Operacao {
+
+    LISTAR_TAREFAS("GET /tarefas") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return get(url + "/tarefas?limit=50&usuario=" + usuario.id);
+        }
+    },
+    EVENTOS_SEMANA("GET /eventos/intervalo") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            LocalDate inicio = Massa.INICIO.plusDays(aleatorio().nextInt(358));
+            return get(url + "/eventos/intervalo?usuario=" + usuario.id + "&inicio=" + inicio + "&fim="
+                    + inicio.plusDays(7));
+        }
+    },
+    LISTAR_METAS("GET /metas") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return get(url + "/metas?limit=50&usuario=" + usuario.id);
+        }
+    },
+    LISTAR_NOTAS("GET /notas") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return get(url + "/notas?limit=50&usuario=" + usuario.id);
+        }
+    },
+    BUSCAR_NOTAS("GET /notas/busca") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            String palavra = Massa.PALAVRAS[aleatorio().nextInt(Massa.PALAVRAS.length)];
+            return get(url + "/notas/busca?usuario=" + usuario.id + "&q="
+                    + URLEncoder.encode(palavra, StandardCharsets.UTF_8));
+        }
+    },
+    RESUMO("GET /usuario/{id}/resumo") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return get(url + "/usuario/" + usuario.id + "/resumo");
+        }
+    },
+    CRIAR_TAREFA("POST /tarefas") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return post(url + "/tarefas", Massa.tarefa(usuario.id, aleatorio().nextInt(1_000_000)));
+        }
+
+        @Override
+        void respondida(Massa.Usuario usuario, String corpo) {
+            Matcher id = ID.matcher(corpo);
+            if (id.find()) {
+                usuario.tarefasCriadas.add(Long.parseLong(id.group(1)));
+            }
+        }
+    },
+    CRIAR_EVENTO("POST /eventos") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return post(url + "/eventos", Massa.evento(usuario.id, aleatorio().nextInt(1_000_000)));
+        }
+    },
+    CRIAR_NOTA("POST /notas") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return post(url + "/notas", Massa.nota(usuario.id, aleatorio().nextInt(1_000_000)));
+        }
+    },
+    PROGRESSO_META("POST /metas/{id}/progresso") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            if (usuario.metas.length == 0) {
+                return null;
+            }
+            long meta = usuario.metas[aleatorio().nextInt(usuario.metas.length)];
+            return HttpRequest.newBuilder(
+                    URI.create(url + "/metas/" + meta + "/progresso?delta=1&usuario=" + usuario.id))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+        }
+    },
+    APAGAR_TAREFA("DELETE /tarefas/tarefas/{id}") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            Long id = usuario.tarefasCriadas.pollFirst();
+            return id == null ? null
+                    : HttpRequest.newBuilder(URI.create(url + "/tarefas/tarefas/" + id + "?usuario=" + usuario.id))
+                            .DELETE();
+        }
+    },
+    LOGIN("POST /usuario/login") {
+        @Override
+        HttpRequest.Builder montar(String url, Massa.Usuario usuario) {
+            return post(url + "/usuario/login", Map.of("email", usuario.email, "senha", usuario.senha));
+        }
+    };
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    final String rotulo;
+
+    Operacao(String rotulo) {
+        this.rotulo = rotulo;
+    }
+
+    abstract HttpRequest.Builder montar(String url, Massa.Usuario usuario);
+
+    /** Chamado com o corpo das respostas 2xx. */
+    void respondida(Massa.Usuario usuario, String corpo) {
+    }
+
+    private static ThreadLocalRandom aleatorio() {
+        return ThreadLocalRandom.current();
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET();
+    }
+
+    private static HttpRequest.Builder post(String url, Object corpo) {
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(corpo)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
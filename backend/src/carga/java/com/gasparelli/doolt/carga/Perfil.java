@@ -0,0 +1,62 @@
+package com.gasparelli.doolt.carga;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Mistura de operacoes de cada perfil de carga, em pesos relativos. O login
+ * tem peso baixo de proposito: cada um custa um PBKDF2 inteiro.
+ */
+enum Perfil {
+
+    /** Uso tipico de um app de agenda: quase tudo leitura. */
+    LEITURA(Map.ofEntries(
+            Map.entry(Operacao.LISTAR_TAREFAS, 30),
+            Map.entry(Operacao.EVENTOS_SEMANA, 20),
+            Map.entry(Operacao.LISTAR_METAS, 10),
+            Map.entry(Operacao.LISTAR_NOTAS, 10),
+            Map.entry(Operacao.BUSCAR_NOTAS, 10),
+            Map.entry(Operacao.RESUMO, 15),
+            Map.entry(Operacao.CRIAR_TAREFA, 2),
+            Map.entry(Operacao.PROGRESSO_META, 2),
+            Map.entry(Operacao.APAGAR_TAREFA, 1))),
+
+    MISTO(Map.ofEntries(
+            Map.entry(Operacao.LISTAR_TAREFAS, 20),
+            Map.entry(Operacao.EVENTOS_SEMANA, 12),
+            Map.entry(Operacao.LISTAR_METAS, 8),
+            Map.entry(Operacao.LISTAR_NOTAS, 8),
+            Map.entry(Operacao.BUSCAR_NOTAS, 8),
+            Map.entry(Operacao.RESUMO, 13),
+            Map.entry(Operacao.CRIAR_TAREFA, 10),
+            Map.entry(Operacao.CRIAR_EVENTO, 5),
+            Map.entry(Operacao.CRIAR_NOTA, 5),
+            Map.entry(Operacao.PROGRESSO_META, 6),
+            Map.entry(Operacao.APAGAR_TAREFA, 4),
+            Map.entry(Operacao.LOGIN, 1))),
+
+    ESCRITA(Map.ofEntries(
+            Map.entry(Operacao.LISTAR_TAREFAS, 10),
+            Map.entry(Operacao.EVENTOS_SEMANA, 5),
+            Map.entry(Operacao.RESUMO, 5),
+            Map.entry(Operacao.CRIAR_TAREFA, 30),
+            Map.entry(Operacao.CRIAR_EVENTO, 15),
+            Map.entry(Operacao.CRIAR_NOTA, 15),
+            Map.entry(Operacao.PROGRESSO_META, 10),
+            Map.entry(Operacao.APAGAR_TAREFA, 10)));
+
+    private final Operacao[] sorteio;
+
+    Perfil(Map<Operacao, Integer> pesos) {
+        Map<Operacao, Integer> ordenados = new EnumMap<>(pesos);
+        sorteio = ordenados.entrySet().stream()
+                .flatMap(e -> Stream.generate(e::getKey).limit(e.getValue()))
+                .toArray(Operacao[]::new);
+    }
+
+    Operacao sortear() {
+        return sorteio[ThreadLocalRandom.current().nextInt(sorteio.length)];
+    }
+}
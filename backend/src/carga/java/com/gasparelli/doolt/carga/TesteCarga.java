@@ -0,0 +1,294 @@
+package com.gasparelli.doolt.carga;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gasparelli.doolt.DooltApplication;
+
+/**
+ * Teste de carga de ponta a ponta: sobe a aplicacao numa porta livre com um
+ * banco SQLite temporario (ou usa {@code --url} de um servidor ja no ar), cria
+ * usuarios e dados pela API e roda um {@link Perfil} de operacoes com
+ * {@code --clientes} clientes. No fim imprime vazao e p50/p90/p99/p99.9 por
+ * endpoint (HdrHistogram) e grava o mesmo relatorio em JSON.
+ *
+ * Sem {@code --taxa} cada cliente manda o proximo pedido assim que recebe a
+ * resposta (carga fechada). Com {@code --taxa} (pedidos/s no total) os pedidos
+ * tem hora marcada e a latencia conta a partir dessa hora, para nao esconder a
+ * fila quando o servidor atrasa (omissao coordenada).
+ *
+ * Opcoes {@code --spring.*}, {@code --server.*} e {@code --doolt.*} sao
+ * repassadas para a aplicacao.
+ */
+public final class TesteCarga {
+
+    private static final PrintStream SAIDA = System.out;
+
+    private final Opcoes opcoes;
+
+    private final Map<Operacao, Recorder> latencias = new EnumMap<>(Operacao.class);
+
+    private final Map<Operacao, LongAdder> erros = new EnumMap<>(Operacao.class);
+
+    private final Map<String, LongAdder> motivos = new ConcurrentHashMap<>();
+
+    private volatile boolean parar;
+
+    private TesteCarga(Opcoes opcoes) {
+        this.opcoes = opcoes;
+        for (Operacao operacao : Operacao.values()) {
+            latencias.put(operacao, new Recorder(3));
+            erros.put(operacao, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Opcoes opcoes = Opcoes.ler(args);
+        Path banco = null;
+        ConfigurableApplicationContext aplicacao = null;
+        String url = opcoes.url();
+        try {
+            if (url == null) {
+                banco = Files.createTempFile("doolt-carga-", ".db");
+                aplicacao = iniciar(banco, opcoes.repassadas());
+                url = "http://localhost:" + ((WebServerApplicationContext) aplicacao).getWebServer().getPort();
+            }
+            new TesteCarga(opcoes).executar(url);
+        } finally {
+            if (aplicacao != null) {
+                aplicacao.close();
+            }
+            if (banco != null) {
+                for (String sufixo : List.of("", "-wal", "-shm")) {
+                    Files.deleteIfExists(Path.of(banco + sufixo));
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciar(Path banco, List<String> repassadas) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:sqlite:" + banco.toAbsolutePath(),
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        argumentos.addAll(repassadas);
+        return new SpringApplicationBuilder(DooltApplication.class)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(String[]::new));
+    }
+
+    private void executar(String url) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Massa massa = new Massa(url, http);
+        SAIDA.printf("Criando %d usuarios com %d linhas por tabela em %s%n", opcoes.usuarios(), opcoes.linhas(),
+                url);
+        massa.criar(opcoes.usuarios(), opcoes.linhas(), Math.min(8, opcoes.clientes()));
+
+        SAIDA.printf("Perfil %s, %d clientes, %s, aquecimento %d s, medicao %d s%n", opcoes.perfil(),
+                opcoes.clientes(), opcoes.taxa() > 0 ? opcoes.taxa() + " pedidos/s" : "carga fechada",
+                opcoes.aquecimento(), opcoes.duracao());
+        long medicao;
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < opcoes.clientes(); i++) {
+                clientes.submit(() -> cliente(url, http, massa));
+            }
+            TimeUnit.SECONDS.sleep(opcoes.aquecimento());
+            zerar();
+            long inicio = System.nanoTime();
+            TimeUnit.SECONDS.sleep(opcoes.duracao());
+            medicao = System.nanoTime() - inicio;
+            parar = true;
+            relatorio(medicao);
+        }
+    }
+
+    private void cliente(String url, HttpClient http, Massa massa) {
+        long intervalo = opcoes.taxa() > 0 ? (long) (opcoes.clientes() * 1e9 / opcoes.taxa()) : 0;
+        long proximo = System.nanoTime() + (intervalo > 0 ? ThreadLocalRandom.current().nextLong(intervalo) : 0);
+        while (!parar) {
+            Massa.Usuario usuario;
+            Operacao operacao;
+            HttpRequest.Builder pedido;
+            do {
+                usuario = massa.sortear();
+                operacao = opcoes.perfil().sortear();
+                pedido = operacao.montar(url, usuario);
+            } while (pedido == null);
+
+            long inicio;
+            if (intervalo > 0) {
+                LockSupport.parkNanos(proximo - System.nanoTime());
+                inicio = proximo;
+                proximo += intervalo;
+            } else {
+                inicio = System.nanoTime();
+            }
+            String falha = null;
+            try {
+                HttpResponse<String> resposta = http.send(pedido.timeout(Duration.ofSeconds(60)).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (resposta.statusCode() / 100 == 2) {
+                    operacao.respondida(usuario, resposta.body());
+                } else {
+                    falha = "HTTP " + resposta.statusCode();
+                }
+            } catch (IOException e) {
+                falha = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            latencias.get(operacao).recordValue(Math.max(1, (System.nanoTime() - inicio) / 1000));
+            if (falha != null) {
+                erros.get(operacao).increment();
+                motivos.computeIfAbsent(operacao.rotulo + ": " + falha, m -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /** Descarta o que foi medido no aquecimento. */
+    private void zerar() {
+        latencias.values().forEach(Recorder::getIntervalHistogram);
+        erros.values().forEach(LongAdder::reset);
+        motivos.clear();
+    }
+
+    private void relatorio(long medicaoNs) throws IOException {
+        double segundos = medicaoNs / 1e9;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long errosTotal = 0;
+        SAIDA.printf("%n%-30s %9s %7s %9s %9s %9s %9s %9s %9s%n", "endpoint", "pedidos", "erros", "pedidos/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operacao operacao : Operacao.values()) {
+            Histogram histograma = latencias.get(operacao).getIntervalHistogram();
+            if (histograma.getTotalCount() == 0) {
+                continue;
+            }
+            long errosOperacao = erros.get(operacao).sum();
+            total.add(histograma);
+            errosTotal += errosOperacao;
+            endpoints.put(operacao.rotulo, linha(operacao.rotulo, histograma, errosOperacao, segundos));
+        }
+        Map<String, Object> geral = linha("total", total, errosTotal, segundos);
+
+        Map<String, Long> motivosErro = new LinkedHashMap<>();
+        motivos.forEach((motivo, quantidade) -> motivosErro.put(motivo, quantidade.sum()));
+        if (!motivosErro.isEmpty()) {
+            SAIDA.println("\nErros:");
+            motivosErro.forEach((motivo, quantidade) -> SAIDA.printf("  %6d  %s%n", quantidade, motivo));
+        }
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("perfil", opcoes.perfil().name().toLowerCase(Locale.ROOT));
+        resultado.put("clientes", opcoes.clientes());
+        resultado.put("taxa", opcoes.taxa());
+        resultado.put("usuarios", opcoes.usuarios());
+        resultado.put("linhas", opcoes.linhas());
+        resultado.put("segundos", segundos);
+        resultado.put("total", geral);
+        resultado.put("endpoints", endpoints);
+        resultado.put("erros", motivosErro);
+        Path arquivo = Path.of(opcoes.saida());
+        if (arquivo.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(arquivo.toFile(), resultado);
+        try (PrintStream hgrm = new PrintStream(Files.newOutputStream(
+                Path.of(opcoes.saida().replaceFirst("\\.json$", "") + ".hgrm")))) {
+            total.outputPercentileDistribution(hgrm, 1000.0);
+        }
+        SAIDA.printf("%nRelatorio em %s%n", arquivo);
+    }
+
+    private static Map<String, Object> linha(String rotulo, Histogram histograma, long erros, double segundos) {
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("pedidos", histograma.getTotalCount());
+        linha.put("erros", erros);
+        linha.put("pedidosPorSegundo", arredondar(histograma.getTotalCount() / segundos));
+        linha.put("p50Ms", ms(histograma, 50));
+        linha.put("p90Ms", ms(histograma, 90));
+        linha.put("p99Ms", ms(histograma, 99));
+        linha.put("p999Ms", ms(histograma, 99.9));
+        linha.put("maxMs", arredondar(histograma.getMaxValue() / 1000.0));
+        SAIDA.printf("%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", rotulo, histograma.getTotalCount(),
+                erros, linha.get("pedidosPorSegundo"), linha.get("p50Ms"), linha.get("p90Ms"), linha.get("p99Ms"),
+                linha.get("p999Ms"), linha.get("maxMs"));
+        return linha;
+    }
+
+    private static double ms(Histogram histograma, double percentil) {
+        return arredondar(histograma.getValueAtPercentile(percentil) / 1000.0);
+    }
+
+    private static double arredondar(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+
+    record Opcoes(Perfil perfil, int clientes, int duracao, int aquecimento, int usuarios, int linhas, int taxa,
+            String url, String saida, List<String> repassadas) {
+
+        static Opcoes ler(String[] args) {
+            Map<String, String> valores = new LinkedHashMap<>();
+            List<String> repassadas = new ArrayList<>();
+            for (String arg : args) {
+                if (arg.startsWith("--spring.") || arg.startsWith("--server.") || arg.startsWith("--doolt.")) {
+                    repassadas.add(arg);
+                } else if (arg.startsWith("--") && arg.contains("=")) {
+                    valores.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+                } else if (!arg.isBlank()) {
+                    throw new IllegalArgumentException("Opcao invalida: " + arg);
+                }
+            }
+            String url = valores.getOrDefault("url", "");
+            return new Opcoes(
+                    Perfil.valueOf(valores.getOrDefault("perfil", "misto").toUpperCase(Locale.ROOT)),
+                    inteiro(valores, "clientes", 32),
+                    inteiro(valores, "duracao", 60),
+                    inteiro(valores, "aquecimento", 10),
+                    inteiro(valores, "usuarios", 20),
+                    inteiro(valores, "linhas", 200),
+                    inteiro(valores, "taxa", 0),
+                    url.isBlank() ? null : url.replaceFirst("/$", ""),
+                    valores.getOrDefault("saida", "target/carga-resultado.json"),
+                    repassadas);
+        }
+
+        private static int inteiro(Map<String, String> valores, String chave, int padrao) {
+            String valor = valores.get(chave);
+            return valor == null || valor.isBlank() ? padrao : Integer.parseInt(valor);
+        }
+    }
+}
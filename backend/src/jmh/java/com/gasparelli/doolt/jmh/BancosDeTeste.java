@@ -0,0 +1,123 @@
+package com.gasparelli.doolt.jmh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.DooltApplication;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.InsercaoLoteRepository;
+
+/**
+ * Bancos SQLite com dados para os benchmarks. Cada tamanho e semeado uma vez
+ * em {@code target/jmh-bancos/base-<tamanho>.db} (ou em
+ * {@code -Ddoolt.jmh.bancos}) e cada trial trabalha numa copia temporaria,
+ * entao as escritas de um benchmark nao afetam o seguinte.
+ */
+final class BancosDeTeste {
+
+    static final int USUARIOS = 100;
+
+    private static final int LOTE = 20_000;
+
+    private static final Path PASTA = Path.of(System.getProperty("doolt.jmh.bancos", "target/jmh-bancos"));
+
+    private BancosDeTeste() {
+    }
+
+    /** Copia temporaria do banco base com {@code tamanho} linhas por tabela. */
+    static Path copia(int tamanho) throws IOException {
+        Path base = base(tamanho);
+        Path copia = Files.createTempFile(PASTA, "trial-" + tamanho + "-", ".db");
+        Files.copy(base, copia, StandardCopyOption.REPLACE_EXISTING);
+        return copia;
+    }
+
+    static void apagar(Path banco) {
+        for (String sufixo : List.of("", "-wal", "-shm")) {
+            try {
+                Files.deleteIfExists(Path.of(banco + sufixo));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static ConfigurableApplicationContext iniciar(Path banco) {
+        return new SpringApplicationBuilder(DooltApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:sqlite:" + banco.toAbsolutePath(),
+                        "--spring.jpa.show-sql=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--doolt.lembretes.habilitado=false");
+    }
+
+    static String titulo(String tipo, long i) {
+        return tipo + "-" + i;
+    }
+
+    private static synchronized Path base(int tamanho) throws IOException {
+        Files.createDirectories(PASTA);
+        Path base = PASTA.resolve("base-" + tamanho + ".db");
+        if (Files.exists(base)) {
+            return base;
+        }
+        Path semeando = PASTA.resolve("semeando-" + tamanho + ".db");
+        apagar(semeando);
+        try (ConfigurableApplicationContext contexto = iniciar(semeando)) {
+            semear(contexto, tamanho);
+            contexto.getBean(JdbcTemplate.class).execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+        Files.move(semeando, base, StandardCopyOption.ATOMIC_MOVE);
+        apagar(semeando);
+        return base;
+    }
+
+    private static void semear(ConfigurableApplicationContext contexto, int tamanho) {
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        InsercaoLoteRepository lote = contexto.getBean(InsercaoLoteRepository.class);
+        TransactionTemplate transacao = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+
+        transacao.executeWithoutResult(status -> {
+            for (int u = 1; u <= USUARIOS; u++) {
+                jdbc.update("INSERT INTO usuarios (id, nome, email, senha) VALUES (?, ?, ?, ?)",
+                        u, "usuario " + u, "usuario" + u + "@doolt.dev", "pbkdf2$1$AA$AA");
+            }
+        });
+        for (int inicio = 0; inicio < tamanho; inicio += LOTE) {
+            int fim = Math.min(tamanho, inicio + LOTE);
+            List<TarefasEntity> tarefas = new ArrayList<>(fim - inicio);
+            List<EventosEntity> eventos = new ArrayList<>(fim - inicio);
+            List<MetasEntity> metas = new ArrayList<>(fim - inicio);
+            List<NotasEntity> notas = new ArrayList<>(fim - inicio);
+            for (int i = inicio; i < fim; i++) {
+                tarefas.add(Entidades.tarefa(i));
+                eventos.add(Entidades.evento(i));
+                metas.add(Entidades.meta(i));
+                notas.add(Entidades.nota(i));
+            }
+            transacao.executeWithoutResult(status -> {
+                lote.inserirTarefas(tarefas);
+                lote.inserirEventos(eventos);
+                lote.inserirMetas(metas);
+                lote.inserirNotas(notas);
+            });
+        }
+    }
+}
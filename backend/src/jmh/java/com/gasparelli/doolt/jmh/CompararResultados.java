@@ -0,0 +1,73 @@
+package com.gasparelli.doolt.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compara dois resultados JSON do JMH e termina com codigo 1 se algum
+ * benchmark piorou mais que a tolerancia (em %), alem da margem de erro das
+ * duas medicoes.
+ *
+ * Uso: {@code CompararResultados <base.json> <atual.json> [tolerancia]}
+ */
+public final class CompararResultados {
+
+    private CompararResultados() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("uso: CompararResultados <base.json> <atual.json> [tolerancia%]");
+            System.exit(2);
+        }
+        double tolerancia = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Medicao> base = ler(new File(args[0]));
+        Map<String, Medicao> atual = ler(new File(args[1]));
+
+        int piores = 0;
+        System.out.printf("%-60s %14s %14s %9s%n", "benchmark", "base", "atual", "variacao");
+        for (Map.Entry<String, Medicao> entrada : atual.entrySet()) {
+            Medicao antes = base.get(entrada.getKey());
+            Medicao depois = entrada.getValue();
+            if (antes == null) {
+                System.out.printf("%-60s %14s %14.3f %9s%n", entrada.getKey(), "-", depois.valor(), "novo");
+                continue;
+            }
+            double variacao = (depois.valor() - antes.valor()) / antes.valor() * 100;
+            // em avgt/sample/ss menor e melhor; em thrpt maior e melhor
+            double piora = depois.maiorMelhor() ? -variacao : variacao;
+            boolean regressao = piora > tolerancia
+                    && Math.abs(depois.valor() - antes.valor()) > antes.erro() + depois.erro();
+            piores += regressao ? 1 : 0;
+            System.out.printf("%-60s %14.3f %14.3f %+8.1f%%%s%n", entrada.getKey(), antes.valor(), depois.valor(),
+                    variacao, regressao ? "  REGRESSAO" : "");
+        }
+        if (piores > 0) {
+            System.out.printf("%d benchmark(s) pioraram mais de %.1f%%%n", piores, tolerancia);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Medicao> ler(File arquivo) throws IOException {
+        Map<String, Medicao> medicoes = new LinkedHashMap<>();
+        for (JsonNode resultado : new ObjectMapper().readTree(arquivo)) {
+            String benchmark = resultado.path("benchmark").asText().replaceFirst("^.*\\.jmh\\.", "");
+            StringBuilder nome = new StringBuilder(benchmark);
+            resultado.path("params").fields().forEachRemaining(
+                    p -> nome.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            JsonNode metrica = resultado.path("primaryMetric");
+            double erro = metrica.path("scoreError").asDouble(0);
+            medicoes.put(nome.toString(), new Medicao(metrica.path("score").asDouble(),
+                    Double.isNaN(erro) ? 0 : erro, "thrpt".equals(resultado.path("mode").asText())));
+        }
+        return medicoes;
+    }
+
+    private record Medicao(double valor, double erro, boolean maiorMelhor) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.gasparelli.doolt.jmh;
+
+import java.time.LocalDate;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+/** Entidades com textos de tamanho parecido com o de uso real; {@code i} decide o usuario e as datas. */
+final class Entidades {
+
+    private static final LocalDate INICIO = LocalDate.of(2026, 1, 1);
+
+    private static final String DESCRICAO = "Revisar os itens pendentes, separar o que depende de outras pessoas "
+            + "e anotar os proximos passos antes da reuniao de acompanhamento.";
+
+    private Entidades() {
+    }
+
+    static int usuario(long i) {
+        return (int) (i % BancosDeTeste.USUARIOS) + 1;
+    }
+
+    static TarefasEntity tarefa(long i) {
+        TarefasEntity tarefa = new TarefasEntity();
+        tarefa.setIdUsuarioFk(usuario(i));
+        tarefa.setTitulo(BancosDeTeste.titulo("tarefa", i));
+        tarefa.setDescricao(DESCRICAO);
+        tarefa.setIdPrioridadeFk((int) (i % 3) + 1);
+        tarefa.setIdCategoriaFk((int) (i % 5) + 1);
+        tarefa.setDataVencimento(INICIO.plusDays(i % 365).toString());
+        tarefa.setIdFeitoFk((int) (i % 2) + 1);
+        return tarefa;
+    }
+
+    static EventosEntity evento(long i) {
+        EventosEntity evento = new EventosEntity();
+        evento.setIdUsuarioFk(usuario(i));
+        evento.setTitulo(BancosDeTeste.titulo("evento", i));
+        evento.setDescricao(DESCRICAO);
+        evento.setDataEvento(INICIO.plusDays(i % 365).toString());
+        evento.setIdCategoriaFk((int) (i % 4) + 1);
+        evento.setInicio_hora(String.format("%02d:00", 8 + i % 10));
+        evento.setFimHora(String.format("%02d:30", 8 + i % 10));
+        evento.setLocal("Sala " + (i % 12 + 1));
+        evento.setParticipantes("ana, bruno, carla");
+        evento.setIdFeitoFk((int) (i % 2) + 1);
+        return evento;
+    }
+
+    static MetasEntity meta(long i) {
+        MetasEntity meta = new MetasEntity();
+        meta.setIdUsuarioFk(usuario(i));
+        meta.setTitulo(BancosDeTeste.titulo("meta", i));
+        meta.setDescricao(DESCRICAO);
+        meta.setIdCategoriaFk((int) (i % 4) + 1);
+        meta.setIdPrioridadeFk((int) (i % 3) + 1);
+        meta.setMeta(100);
+        meta.setAtual((int) (i % 101));
+        meta.setUnidade("paginas");
+        meta.setPrazo(INICIO.plusDays(i % 365).toString());
+        meta.setIdFeitoFk((int) (i % 2) + 1);
+        meta.setIdEstadoFk((int) (i % 3) + 1);
+        return meta;
+    }
+
+    static NotasEntity nota(long i) {
+        NotasEntity nota = new NotasEntity();
+        nota.setIdUsuarioFk(usuario(i));
+        nota.setTitulo(BancosDeTeste.titulo("nota", i));
+        nota.setDescricao(DESCRICAO);
+        nota.setIdCoresFk((int) (i % 6) + 1);
+        nota.setTags("trabalho, ideias");
+        nota.setIdBoleanFavoritoFk((int) (i % 2) + 1);
+        return nota;
+    }
+}
@@ -0,0 +1,144 @@
+package com.gasparelli.doolt.jmh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.services.EventosServices;
+import com.gasparelli.doolt.services.MetasServices;
+import com.gasparelli.doolt.services.NotasServices;
+import com.gasparelli.doolt.services.TarefasServices;
+
+/**
+ * Caminhos de persistencia pelos services, com a aplicacao inteira (sem web)
+ * sobre uma copia do banco semeado com {@code tamanho} linhas por tabela.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenciaBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int tamanho;
+
+    private Path banco;
+
+    private ConfigurableApplicationContext contexto;
+
+    private TarefasServices tarefasServices;
+
+    private EventosServices eventosServices;
+
+    private MetasServices metasServices;
+
+    private NotasServices notasServices;
+
+    private JdbcTemplate jdbc;
+
+    private final AtomicLong proximaTarefa = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void iniciar() throws IOException {
+        banco = BancosDeTeste.copia(tamanho);
+        contexto = BancosDeTeste.iniciar(banco);
+        tarefasServices = contexto.getBean(TarefasServices.class);
+        eventosServices = contexto.getBean(EventosServices.class);
+        metasServices = contexto.getBean(MetasServices.class);
+        notasServices = contexto.getBean(NotasServices.class);
+        jdbc = contexto.getBean(JdbcTemplate.class);
+        proximaTarefa.set(tamanho);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+        BancosDeTeste.apagar(banco);
+    }
+
+    @Benchmark
+    public TarefasEntity salvarTarefa() {
+        return tarefasServices.salvarTarefa(Entidades.tarefa(proximaTarefa.getAndIncrement()));
+    }
+
+    /** Varias threads salvando ao mesmo tempo: mede o ganho do group commit. */
+    @Benchmark
+    @Threads(8)
+    public TarefasEntity salvarTarefaConcorrente() {
+        return tarefasServices.salvarTarefa(Entidades.tarefa(proximaTarefa.getAndIncrement()));
+    }
+
+    @Benchmark
+    public TarefasEntity buscarTarefaPorTitulo() {
+        return tarefasServices.procurarTarefa(BancosDeTeste.titulo("tarefa", sorteado()));
+    }
+
+    @Benchmark
+    public EventosEntity buscarEventoPorTitulo() {
+        return eventosServices.buscarEvento(BancosDeTeste.titulo("evento", sorteado()));
+    }
+
+    @Benchmark
+    public MetasEntity buscarMetaPorTitulo() {
+        return metasServices.buscarMeta(BancosDeTeste.titulo("meta", sorteado()));
+    }
+
+    @Benchmark
+    public NotasEntity buscarNotaPorTitulo() {
+        return notasServices.buscarNota(BancosDeTeste.titulo("nota", sorteado()));
+    }
+
+    /**
+     * Remove uma tarefa que acabou de ser inserida (fora da medicao). O setup
+     * por invocacao custa pouco perto de um commit, entao o numero ainda vale.
+     */
+    @Benchmark
+    public void deletarTarefa(TarefaInserida inserida) {
+        tarefasServices.deletarTarefaPorID(inserida.id);
+    }
+
+    private long sorteado() {
+        return ThreadLocalRandom.current().nextLong(tamanho);
+    }
+
+    @State(Scope.Thread)
+    public static class TarefaInserida {
+
+        long id;
+
+        @Setup(Level.Invocation)
+        public void inserir(PersistenciaBenchmark benchmark) {
+            TarefasEntity tarefa = Entidades.tarefa(benchmark.proximaTarefa.getAndIncrement());
+            benchmark.jdbc.update("INSERT INTO tarefas (id_usuario_fk, titulo, descricao, id_prioridade_fk, "
+                    + "id_categoria_fk, data_vencimento, id_feito_fk) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    tarefa.getIdUsuarioFk(), tarefa.getTitulo(), tarefa.getDescricao(), tarefa.getIdPrioridadeFk(),
+                    tarefa.getIdCategoriaFk(), tarefa.getDataVencimento(), tarefa.getIdFeitoFk());
+            id = benchmark.jdbc.queryForObject("SELECT max(id) FROM tarefas", Long.class);
+        }
+    }
+}
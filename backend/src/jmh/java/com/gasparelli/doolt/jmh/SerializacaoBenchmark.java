@@ -0,0 +1,98 @@
+package com.gasparelli.doolt.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+/**
+ * Serializacao JSON de cada entidade com um ObjectMapper montado como o do
+ * Spring Boot, mais uma pagina de 50 tarefas (o {@code limit} padrao das
+ * listagens).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private TarefasEntity tarefa;
+
+    private EventosEntity evento;
+
+    private MetasEntity meta;
+
+    private NotasEntity nota;
+
+    private List<TarefasEntity> paginaTarefas;
+
+    @Setup
+    public void iniciar() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        tarefa = comId(Entidades.tarefa(42), 42L);
+        evento = Entidades.evento(42);
+        evento.setId(42L);
+        evento.calcularIntervalo();
+        meta = Entidades.meta(42);
+        meta.setId(42L);
+        nota = Entidades.nota(42);
+        nota.setId(42L);
+        paginaTarefas = new ArrayList<>();
+        for (long i = 0; i < 50; i++) {
+            paginaTarefas.add(comId(Entidades.tarefa(i), i + 1));
+        }
+    }
+
+    @Benchmark
+    public byte[] tarefa() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tarefa);
+    }
+
+    @Benchmark
+    public byte[] evento() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(evento);
+    }
+
+    @Benchmark
+    public byte[] meta() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(meta);
+    }
+
+    @Benchmark
+    public byte[] nota() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(nota);
+    }
+
+    @Benchmark
+    public byte[] paginaTarefas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(paginaTarefas);
+    }
+
+    private static TarefasEntity comId(TarefasEntity tarefa, long id) {
+        tarefa.setId(id);
+        tarefa.calcularVencimento();
+        return tarefa;
+    }
+}
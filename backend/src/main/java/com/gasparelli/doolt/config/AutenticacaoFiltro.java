@@ -0,0 +1,95 @@
+package com.gasparelli.doolt.config;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.gasparelli.doolt.dto.Sessao;
+import com.gasparelli.doolt.services.TokensServices;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Le o token {@code Authorization: Bearer} e deixa a sessao no atributo
+ * {@link #SESSAO} da requisicao, sem consultar o banco. Um token invalido da
+ * 401; um usuario na requisicao diferente do dono do token da 403. Com
+ * {@code doolt.auth.obrigatorio=true} so o login, o cadastro e as referencias
+ * respondem sem token.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 20)
+public class AutenticacaoFiltro extends OncePerRequestFilter {
+
+    public static final String SESSAO = "doolt.sessao";
+
+    private static final String PREFIXO = "Bearer ";
+
+    private static final Pattern CAMINHO_USUARIO = Pattern.compile("/usuario/(\\d+)/.*");
+
+    @Autowired
+    private TokensServices tokensServices;
+
+    @Value("${doolt.auth.obrigatorio:false}")
+    private boolean obrigatorio;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cabecalho = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (cabecalho == null || !cabecalho.startsWith(PREFIXO)) {
+            if (obrigatorio && !publico(request)) {
+                response.sendError(HttpStatus.UNAUTHORIZED.value());
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        Sessao sessao = tokensServices.verificar(cabecalho.substring(PREFIXO.length()).trim());
+        if (sessao == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        String usuario = usuarioDaRequisicao(request);
+        if (usuario != null && !usuario.equals(Long.toString(sessao.idUsuario()))) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        request.setAttribute(SESSAO, sessao);
+        chain.doFilter(request, response);
+    }
+
+    /** O parametro {@code usuario} ou o id em {@code /usuario/{id}/...}. */
+    private static String usuarioDaRequisicao(HttpServletRequest request) {
+        String usuario = request.getParameter("usuario");
+        if (usuario != null) {
+            return usuario;
+        }
+        Matcher caminho = CAMINHO_USUARIO.matcher(caminho(request));
+        return caminho.matches() ? caminho.group(1) : null;
+    }
+
+    private static boolean publico(HttpServletRequest request) {
+        String caminho = caminho(request);
+        return caminho.equals("/usuario/login")
+                || (caminho.equals("/usuario") && request.getMethod().equals("POST"))
+                || caminho.startsWith("/referencias")
+                || caminho.equals("/actuator/health")
+                || caminho.equals("/error");
+    }
+
+    private static String caminho(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,302 @@
+package com.gasparelli.doolt.config;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor em memoria (perfil {@code memoria}): o arquivo SQLite fica em tmpfs,
+ * entao leituras e escritas nao esperam pelo disco, e a durabilidade vem do
+ * {@link Diario} e de snapshots em {@code doolt.memoria.diretorio}. As consultas,
+ * os repositorios e o SQL sao os mesmos do modo normal.
+ *
+ * No diretorio ficam {@code snapshot-N.db} e {@code diario-N.log}, com as
+ * transacoes confirmadas depois do snapshot N. Na subida o ultimo snapshot e
+ * copiado para a memoria e os diarios a partir dele sao refeitos; sem
+ * snapshot, o ponto de partida e o banco de {@code spring.datasource.url}, se
+ * existir. Um snapshot novo e gravado quando o diario passa de
+ * {@code doolt.memoria.snapshot.diario-mb}, a cada
+ * {@code doolt.memoria.snapshot.intervalo-min} e no desligamento, e logo
+ * depois de uma falha de gravacao no diario, que recusa commits ate la.
+ */
+public class BancoEmMemoria implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BancoEmMemoria.class);
+
+    private static final Pattern GERACAO = Pattern.compile("(snapshot|diario)-(\\d+)\\.(db|log)");
+
+    private final boolean ativo;
+
+    private final Path diretorio;
+
+    private final Path arquivo;
+
+    private final long intervaloMs;
+
+    private final long diarioMaximo;
+
+    private FileChannel canalTrava;
+
+    private FileLock trava;
+
+    private Diario diario;
+
+    private long geracao;
+
+    private long ultimoSnapshot = System.nanoTime();
+
+    private ScheduledExecutorService agendador;
+
+    private BancoEmMemoria() {
+        this.ativo = false;
+        this.diretorio = null;
+        this.arquivo = null;
+        this.intervaloMs = 0;
+        this.diarioMaximo = 0;
+    }
+
+    /**
+     * @param origem banco usado como ponto de partida quando ainda nao ha snapshot
+     * @param memoria pasta em tmpfs onde o banco de trabalho e criado
+     */
+    BancoEmMemoria(Path origem, Path diretorio, Path memoria, int bloco, boolean forcar, Duration intervalo,
+            long diarioMaximo) {
+        this.ativo = true;
+        this.diretorio = diretorio.toAbsolutePath();
+        this.arquivo = memoria.toAbsolutePath()
+                .resolve("doolt-memoria-" + Integer.toHexString(this.diretorio.hashCode()) + ".db");
+        this.intervaloMs = intervalo.toMillis();
+        this.diarioMaximo = diarioMaximo;
+        try {
+            carregar(origem, bloco, forcar);
+        } catch (IOException | SQLException e) {
+            close();
+            throw new IllegalStateException("Falha ao carregar o banco em memoria de " + this.diretorio, e);
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doolt-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::verificar, 1, 1, TimeUnit.MINUTES);
+    }
+
+    static BancoEmMemoria desligado() {
+        return new BancoEmMemoria();
+    }
+
+    /** A pasta configurada, ou /dev/shm quando existe (tmpfs no Linux). */
+    static Path pastaTmpfs(String configurada) {
+        if (!configurada.isBlank()) {
+            return Path.of(configurada);
+        }
+        Path shm = Path.of("/dev/shm");
+        if (Files.isDirectory(shm)) {
+            return shm;
+        }
+        Path temporaria = Path.of(System.getProperty("java.io.tmpdir"));
+        log.warn("Sem /dev/shm: o banco em memoria vai para {}; use doolt.memoria.tmpfs com uma pasta em RAM",
+                temporaria);
+        return temporaria;
+    }
+
+    public boolean ativo() {
+        return ativo;
+    }
+
+    /** URL do banco de trabalho, em memoria. */
+    String url() {
+        return "jdbc:sqlite:" + arquivo;
+    }
+
+    /** O pool de escrita passa pelo diario; os de leitura nao precisam. */
+    DataSource escrita(DataSource pool) {
+        return ativo ? new DiarioDataSource(pool, diario) : pool;
+    }
+
+    private void carregar(Path origem, int bloco, boolean forcar) throws IOException, SQLException {
+        Files.createDirectories(diretorio);
+        canalTrava = FileChannel.open(diretorio.resolve("trava"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        trava = canalTrava.tryLock();
+        if (trava == null) {
+            throw new IllegalStateException("Outro processo esta usando " + diretorio);
+        }
+        apagarArquivo();
+        long inicio = System.nanoTime();
+        geracao = geracoes("snapshot").stream().mapToLong(Long::longValue).max().orElse(0);
+        if (geracao > 0) {
+            Files.copy(snapshot(geracao), arquivo);
+        } else if (origem != null && Files.exists(origem)) {
+            log.info("Sem snapshot em {}: carregando {}", diretorio, origem);
+            try (Connection conexao = DriverManager.getConnection("jdbc:sqlite:" + origem);
+                    Statement comando = conexao.createStatement()) {
+                comando.execute("VACUUM INTO '" + arquivo.toString().replace("'", "''") + "'");
+            }
+        }
+        int refeitas = 0;
+        try (Connection conexao = conectar()) {
+            for (long anterior : geracoes("diario")) {
+                if (anterior >= geracao) {
+                    refeitas += Diario.reproduzir(diretorio.resolve(nomeDiario(anterior)), conexao);
+                }
+            }
+            if (refeitas > 0 || geracao == 0) {
+                gravarSnapshot(conexao, geracao + 1);
+                geracao++;
+            }
+        }
+        diario = new Diario(diretorio.resolve(nomeDiario(geracao)), bloco, forcar,
+                this::snapshotDepoisDeFalha);
+        limpar();
+        log.info("Banco em memoria carregado em {} ms: snapshot {}, {} transacoes refeitas do diario ({})",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), geracao, refeitas, arquivo);
+    }
+
+    private void verificar() {
+        long tamanho = diario.tamanho();
+        boolean venceu = intervaloMs > 0 && System.nanoTime() - ultimoSnapshot >= intervaloMs * 1_000_000;
+        if (diario.parado() || tamanho >= diarioMaximo || tamanho > 0 && venceu) {
+            snapshot();
+        }
+    }
+
+    /* Fora da thread do commit, que ainda segura a trava do diario. */
+    private void snapshotDepoisDeFalha() {
+        try {
+            agendador.execute(this::snapshot);
+        } catch (RejectedExecutionException e) {
+            log.debug("Agendador encerrado; o snapshot do desligamento libera o diario", e);
+        }
+    }
+
+    /**
+     * Grava um snapshot e troca de diario. Os commits esperam durante a copia;
+     * as leituras continuam.
+     */
+    synchronized void snapshot() {
+        long nova = geracao + 1;
+        try (Connection conexao = conectar()) {
+            diario.trocar(() -> {
+                gravarSnapshot(conexao, nova);
+                return null;
+            }, diretorio.resolve(nomeDiario(nova)));
+            geracao = nova;
+            limpar();
+        } catch (Throwable e) {
+            log.warn(diario.parado() ? "Falha ao gravar o snapshot {}; commits seguem recusados ate o proximo"
+                    : "Falha ao gravar o snapshot {}; o diario atual continua valendo", nova, e);
+        }
+    }
+
+    /* VACUUM INTO le um retrato consistente do banco por uma conexao propria, sem travar os leitores. */
+    private void gravarSnapshot(Connection conexao, long nova) throws IOException, SQLException {
+        Path temporario = diretorio.resolve("snapshot-" + nova + ".tmp");
+        Files.deleteIfExists(temporario);
+        try (Statement comando = conexao.createStatement()) {
+            comando.execute("VACUUM INTO '" + temporario.toString().replace("'", "''") + "'");
+        }
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporario, snapshot(nova), StandardCopyOption.ATOMIC_MOVE);
+        ultimoSnapshot = System.nanoTime();
+    }
+
+    /* Um arquivo ainda mapeado nao sai no Windows; fica para a proxima limpeza. */
+    private void limpar() {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path antigo : arquivos.toList()) {
+                Matcher nome = GERACAO.matcher(antigo.getFileName().toString());
+                boolean superado = nome.matches() && Long.parseLong(nome.group(2)) < geracao;
+                if (superado || antigo.getFileName().toString().endsWith(".tmp")) {
+                    try {
+                        Files.deleteIfExists(antigo);
+                    } catch (IOException e) {
+                        log.debug("Nao foi possivel apagar {}", antigo, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao limpar {}", diretorio, e);
+        }
+    }
+
+    private List<Long> geracoes(String tipo) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(caminho -> GERACAO.matcher(caminho.getFileName().toString()))
+                    .filter(nome -> nome.matches() && nome.group(1).equals(tipo))
+                    .map(nome -> Long.parseLong(nome.group(2)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path snapshot(long numero) {
+        return diretorio.resolve("snapshot-" + numero + ".db");
+    }
+
+    private static String nomeDiario(long numero) {
+        return "diario-" + numero + ".log";
+    }
+
+    private Connection conectar() throws SQLException {
+        return DriverManager.getConnection(url());
+    }
+
+    private void apagarArquivo() throws IOException {
+        for (String sufixo : new String[] { "", "-wal", "-shm" }) {
+            Files.deleteIfExists(Path.of(arquivo + sufixo));
+        }
+    }
+
+    /** Chamado depois que os pools fecharam: grava o snapshot final e apaga o banco de trabalho. */
+    @Override
+    public synchronized void close() {
+        if (!ativo) {
+            return;
+        }
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        try {
+            if (diario != null) {
+                if (diario.tamanho() > 0) {
+                    snapshot();
+                }
+                diario.close();
+            }
+            apagarArquivo();
+            if (trava != null) {
+                trava.release();
+            }
+            if (canalTrava != null) {
+                canalTrava.close();
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao fechar o banco em memoria", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.Types;
+
+import org.hibernate.community.dialect.SQLiteDialect;
+import org.hibernate.engine.jdbc.dialect.spi.DialectResolutionInfo;
+
+/**
+ * {@link SQLiteDialect} em que os tipos inteiros sao equivalentes. No SQLite
+ * todo inteiro e guardado do mesmo jeito, e as chaves sao {@code integer}
+ * (apelido do rowid) mesmo nas entidades com id {@code Long}; sem isso o
+ * {@code ddl-auto=validate} recusa o banco que o {@code update} criou.
+ */
+public class DialetoSQLite extends SQLiteDialect {
+
+    public DialetoSQLite() {
+        super();
+    }
+
+    public DialetoSQLite(DialectResolutionInfo info) {
+        super(info);
+    }
+
+    @Override
+    public boolean equivalentTypes(int tipo1, int tipo2) {
+        return super.equivalentTypes(tipo1, tipo2) || inteiro(tipo1) && inteiro(tipo2);
+    }
+
+    private static boolean inteiro(int tipo) {
+        return switch (tipo) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,415 @@
+package com.gasparelli.doolt.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diario do {@link BancoEmMemoria}: cada transacao confirmada vira um registro
+ * {@code [tamanho][crc32][comandos]} acrescentado ao fim de um arquivo mapeado
+ * em memoria, em blocos de {@code doolt.memoria.diario.bloco-mb}. Um comando e
+ * o SQL e os parametros de cada execucao. Na subida os registros sao refeitos
+ * em ordem; o primeiro incompleto ou com CRC errado (queda no meio da escrita)
+ * encerra a leitura.
+ *
+ * O espaco do registro e reservado antes do commit, entao falta de espaco
+ * falha a transacao em vez de deixar um commit fora do diario. Se a escrita
+ * falhar mesmo assim depois do commit, o diario para: os commits seguintes
+ * sao recusados ate o proximo {@link #trocar}, que grava um snapshot com tudo
+ * o que ja foi confirmado e comeca um arquivo novo.
+ */
+final class Diario implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Diario.class);
+
+    private static final byte NULO = 0;
+    private static final byte LONGO = 1;
+    private static final byte INTEIRO = 2;
+    private static final byte CURTO = 3;
+    private static final byte BYTE = 4;
+    private static final byte DUPLO = 5;
+    private static final byte REAL = 6;
+    private static final byte LOGICO = 7;
+    private static final byte TEXTO = 8;
+    private static final byte BYTES = 9;
+    private static final byte DECIMAL = 10;
+    private static final byte DATA = 11;
+
+    /** Parametro de {@code setNull}, com o tipo SQL informado. */
+    record Nulo(int tipo) {
+    }
+
+    /** Commit ou comando em autocommit, rodado sem outro commit no meio. */
+    interface Acao {
+
+        Object executar() throws Throwable;
+    }
+
+    private final ReentrantLock trava = new ReentrantLock();
+
+    private final int bloco;
+
+    private final boolean forcar;
+
+    /** Avisado, com a trava presa, quando o diario para. */
+    private final Runnable aoParar;
+
+    private FileChannel canal;
+
+    private MappedByteBuffer mapa;
+
+    /** Posicao no arquivo do inicio do {@link #mapa}. */
+    private long inicioMapa;
+
+    /** Falha que parou o diario; null enquanto ele aceita commits. */
+    private Throwable falha;
+
+    Diario(Path arquivo, int bloco, boolean forcar, Runnable aoParar) throws IOException {
+        this.bloco = bloco;
+        this.forcar = forcar;
+        this.aoParar = aoParar;
+        abrir(arquivo);
+    }
+
+    private void abrir(Path arquivo) throws IOException {
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        inicioMapa = 0;
+        mapa = mapear(0, bloco);
+    }
+
+    /*
+     * Escreve zeros no trecho antes de mapear: um mapeamento alem do fim cria
+     * um arquivo esparso, e o disco cheio so apareceria na escrita do registro.
+     */
+    private MappedByteBuffer mapear(long posicao, int tamanho) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(Math.min(tamanho, 1 << 20));
+        for (long escrito = 0; escrito < tamanho;) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), tamanho - escrito));
+            escrito += canal.write(zeros, posicao + escrito);
+        }
+        return canal.map(FileChannel.MapMode.READ_WRITE, posicao, tamanho);
+    }
+
+    /**
+     * Roda a acao e grava os comandos num registro. O registro entra depois do
+     * commit, mas antes de ele ser devolvido a quem pediu.
+     */
+    Object confirmar(Acao acao, List<byte[]> comandos) throws Throwable {
+        byte[] registro = registro(comandos);
+        trava.lock();
+        try {
+            if (falha != null) {
+                throw new SQLException("Diario parado por uma falha de gravacao; commits recusados ate o proximo "
+                        + "snapshot", falha);
+            }
+            reservar(registro.length);
+            Object resultado = acao.executar();
+            try {
+                mapa.put(registro);
+                if (forcar) {
+                    mapa.force();
+                }
+            } catch (RuntimeException | Error e) {
+                falha = e;
+                log.error("Transacao confirmada mas nao gravada no diario; commits recusados ate o proximo snapshot",
+                        e);
+                aoParar.run();
+                throw new SQLException("Transacao confirmada mas nao gravada no diario", e);
+            }
+            return resultado;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Roda a acao sem commits em andamento e passa a gravar em {@code novo}; libera um diario parado. */
+    void trocar(Acao acao, Path novo) throws Throwable {
+        trava.lock();
+        try {
+            acao.executar();
+            fecharArquivo();
+            abrir(novo);
+            falha = null;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Se uma falha de gravacao parou o diario e ele espera um snapshot. */
+    boolean parado() {
+        trava.lock();
+        try {
+            return falha != null;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Bytes gravados no arquivo atual. */
+    long tamanho() {
+        trava.lock();
+        try {
+            return inicioMapa + mapa.position();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private static byte[] registro(List<byte[]> comandos) {
+        int tamanho = Integer.BYTES;
+        for (byte[] comando : comandos) {
+            tamanho += comando.length;
+        }
+        ByteBuffer conteudo = ByteBuffer.allocate(tamanho).putInt(comandos.size());
+        comandos.forEach(conteudo::put);
+        CRC32 crc = new CRC32();
+        crc.update(conteudo.array());
+        return ByteBuffer.allocate(2 * Integer.BYTES + tamanho)
+                .putInt(tamanho)
+                .putInt((int) crc.getValue())
+                .put(conteudo.array())
+                .array();
+    }
+
+    /* Aloca o proximo bloco se o registro nao cabe; uma falha aqui ainda nao confirmou nada. */
+    private void reservar(int registro) throws SQLException {
+        if (mapa.remaining() >= registro) {
+            return;
+        }
+        try {
+            long posicao = inicioMapa + mapa.position();
+            mapa = mapear(posicao, Math.max(bloco, registro));
+            inicioMapa = posicao;
+        } catch (IOException e) {
+            throw new SQLException("Sem espaco no diario; a transacao nao foi confirmada", e);
+        }
+    }
+
+    /*
+     * O arquivo nao e truncado: com o mapeamento ainda vivo o Windows nao
+     * deixa, e o resto do bloco so tem zeros, que a leitura trata como fim.
+     */
+    private void fecharArquivo() throws IOException {
+        mapa.force();
+        canal.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        trava.lock();
+        try {
+            fecharArquivo();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /** Refaz as transacoes do arquivo na conexao; devolve quantas foram refeitas. */
+    static int reproduzir(Path arquivo, Connection conexao) throws IOException, SQLException {
+        int transacoes = 0;
+        try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer dados = leitura.map(FileChannel.MapMode.READ_ONLY, 0, leitura.size());
+            conexao.setAutoCommit(false);
+            while (dados.remaining() >= 2 * Integer.BYTES) {
+                int tamanho = dados.getInt();
+                int crc = dados.getInt();
+                if (tamanho <= 0 || tamanho > dados.remaining()) {
+                    if (tamanho != 0) {
+                        log.warn("Registro incompleto no fim de {}, ignorado", arquivo);
+                    }
+                    break;
+                }
+                byte[] conteudo = new byte[tamanho];
+                dados.get(conteudo);
+                CRC32 calculado = new CRC32();
+                calculado.update(conteudo);
+                if ((int) calculado.getValue() != crc) {
+                    log.warn("Registro com CRC invalido em {}, leitura encerrada", arquivo);
+                    break;
+                }
+                refazer(ByteBuffer.wrap(conteudo), conexao);
+                conexao.commit();
+                transacoes++;
+            }
+        } finally {
+            conexao.setAutoCommit(true);
+        }
+        return transacoes;
+    }
+
+    private static void refazer(ByteBuffer registro, Connection conexao) throws SQLException {
+        int comandos = registro.getInt();
+        for (int i = 0; i < comandos; i++) {
+            String sql = texto(registro);
+            int execucoes = registro.getInt();
+            if (execucoes < 0) {
+                try (Statement comando = conexao.createStatement()) {
+                    comando.execute(sql);
+                }
+                continue;
+            }
+            try (PreparedStatement comando = conexao.prepareStatement(sql)) {
+                for (int e = 0; e < execucoes; e++) {
+                    comando.clearParameters();
+                    int parametros = registro.getInt();
+                    for (int p = 0; p < parametros; p++) {
+                        int indice = registro.getInt();
+                        Object valor = valor(registro);
+                        if (valor instanceof Nulo nulo) {
+                            comando.setNull(indice, nulo.tipo());
+                        } else {
+                            comando.setObject(indice, valor);
+                        }
+                    }
+                    comando.execute();
+                }
+            }
+        }
+    }
+
+    /**
+     * Codifica um comando. {@code execucoes} null e um {@link Statement} sem
+     * parametros; senao, um mapa indice -> valor por execucao (mais de um no
+     * lote).
+     */
+    static byte[] comando(String sql, List<Map<Integer, Object>> execucoes) throws SQLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + sql.length());
+        DataOutputStream saida = new DataOutputStream(bytes);
+        try {
+            escreverTexto(saida, sql);
+            if (execucoes == null) {
+                saida.writeInt(-1);
+                return bytes.toByteArray();
+            }
+            saida.writeInt(execucoes.size());
+            for (Map<Integer, Object> parametros : execucoes) {
+                saida.writeInt(parametros.size());
+                for (Map.Entry<Integer, Object> parametro : parametros.entrySet()) {
+                    saida.writeInt(parametro.getKey());
+                    escreverValor(saida, parametro.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void escreverValor(DataOutputStream saida, Object valor) throws IOException, SQLException {
+        switch (valor) {
+            case null -> {
+                saida.writeByte(NULO);
+                saida.writeInt(Types.NULL);
+            }
+            case Nulo nulo -> {
+                saida.writeByte(NULO);
+                saida.writeInt(nulo.tipo());
+            }
+            case Long longo -> {
+                saida.writeByte(LONGO);
+                saida.writeLong(longo);
+            }
+            case Integer inteiro -> {
+                saida.writeByte(INTEIRO);
+                saida.writeInt(inteiro);
+            }
+            case Short curto -> {
+                saida.writeByte(CURTO);
+                saida.writeShort(curto);
+            }
+            case Byte umByte -> {
+                saida.writeByte(BYTE);
+                saida.writeByte(umByte);
+            }
+            case Double duplo -> {
+                saida.writeByte(DUPLO);
+                saida.writeDouble(duplo);
+            }
+            case Float real -> {
+                saida.writeByte(REAL);
+                saida.writeFloat(real);
+            }
+            case Boolean logico -> {
+                saida.writeByte(LOGICO);
+                saida.writeBoolean(logico);
+            }
+            case String texto -> {
+                saida.writeByte(TEXTO);
+                escreverTexto(saida, texto);
+            }
+            case byte[] conteudo -> {
+                saida.writeByte(BYTES);
+                saida.writeInt(conteudo.length);
+                saida.write(conteudo);
+            }
+            case BigDecimal decimal -> {
+                saida.writeByte(DECIMAL);
+                escreverTexto(saida, decimal.toString());
+            }
+            case Date data -> {
+                saida.writeByte(DATA);
+                saida.writeLong(data.getTime());
+            }
+            default -> throw new SQLException("Parametro do tipo " + valor.getClass().getName()
+                    + " nao pode ser gravado no diario do banco em memoria");
+        }
+    }
+
+    /* O driver grava qualquer java.util.Date pelos milissegundos, entao um tipo basta para os tres. */
+    private static Object valor(ByteBuffer registro) {
+        byte tipo = registro.get();
+        return switch (tipo) {
+            case NULO -> new Nulo(registro.getInt());
+            case LONGO -> registro.getLong();
+            case INTEIRO -> registro.getInt();
+            case CURTO -> registro.getShort();
+            case BYTE -> registro.get();
+            case DUPLO -> registro.getDouble();
+            case REAL -> registro.getFloat();
+            case LOGICO -> registro.get() != 0;
+            case TEXTO -> texto(registro);
+            case BYTES -> {
+                byte[] conteudo = new byte[registro.getInt()];
+                registro.get(conteudo);
+                yield conteudo;
+            }
+            case DECIMAL -> new BigDecimal(texto(registro));
+            case DATA -> new java.sql.Timestamp(registro.getLong());
+            default -> throw new IllegalStateException("Tipo de parametro desconhecido no diario: " + tipo);
+        };
+    }
+
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(utf8.length);
+        saida.write(utf8);
+    }
+
+    private static String texto(ByteBuffer registro) {
+        byte[] utf8 = new byte[registro.getInt()];
+        registro.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,169 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Conexoes de escrita do {@link BancoEmMemoria}: guarda os comandos que
+ * alteram o banco, com os parametros de cada execucao, e grava todos no
+ * {@link Diario} quando a transacao confirma. Comandos em autocommit vao para
+ * o diario na hora; rollback, ou a conexao devolvida sem commit, descartam os
+ * pendentes. Consultas, VACUUM e pragmas de leitura nao entram.
+ */
+class DiarioDataSource extends DelegatingDataSource {
+
+    private static final Pattern ESQUEMA = Pattern.compile("\\s*(create|drop|alter)\\b|\\s*pragma\\s+[\\w.]+\\s*=",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Diario diario;
+
+    DiarioDataSource(DataSource alvo, Diario diario) {
+        super(alvo);
+        this.diario = diario;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conexao(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String senha) throws SQLException {
+        return conexao(super.getConnection(usuario, senha));
+    }
+
+    static boolean altera(String sql) {
+        return switch (MetricasDataSource.Comando.de(sql)) {
+            case INSERT, UPDATE, DELETE -> true;
+            case SELECT -> false;
+            case OUTRO -> ESQUEMA.matcher(sql).lookingAt();
+        };
+    }
+
+    private Connection conexao(Connection alvo) {
+        List<byte[]> pendentes = new ArrayList<>();
+        Map<Savepoint, Integer> marcas = new IdentityHashMap<>();
+        return (Connection) ProxyJdbc.proxy(Connection.class, (metodo, argumentos) -> {
+            switch (metodo.getName()) {
+                case "commit" -> {
+                    return confirmar(() -> ProxyJdbc.invocar(alvo, metodo, argumentos), pendentes);
+                }
+                case "setAutoCommit" -> {
+                    if ((Boolean) argumentos[0] && !alvo.getAutoCommit()) {
+                        return confirmar(() -> ProxyJdbc.invocar(alvo, metodo, argumentos), pendentes);
+                    }
+                }
+                case "rollback" -> {
+                    Object resultado = ProxyJdbc.invocar(alvo, metodo, argumentos);
+                    Integer marca = argumentos == null ? Integer.valueOf(0) : marcas.get(argumentos[0]);
+                    if (marca != null) {
+                        pendentes.subList(marca, pendentes.size()).clear();
+                    }
+                    return resultado;
+                }
+                case "setSavepoint" -> {
+                    Savepoint marca = (Savepoint) ProxyJdbc.invocar(alvo, metodo, argumentos);
+                    marcas.put(marca, pendentes.size());
+                    return marca;
+                }
+                case "close" -> {
+                    pendentes.clear();
+                    marcas.clear();
+                }
+                default -> {
+                }
+            }
+            return ProxyJdbc.invocarConexao(alvo, metodo, argumentos,
+                    (tipo, comando, sql) -> comando(tipo, comando, sql, alvo, pendentes));
+        });
+    }
+
+    private Object confirmar(Diario.Acao acao, List<byte[]> pendentes) throws Throwable {
+        if (pendentes.isEmpty()) {
+            return acao.executar();
+        }
+        try {
+            return diario.confirmar(acao, pendentes);
+        } finally {
+            pendentes.clear();
+        }
+    }
+
+    private Object comando(Class<?> tipo, Statement alvo, String sqlPreparado, Connection conexao,
+            List<byte[]> pendentes) {
+        Map<Integer, Object> parametros = new TreeMap<>();
+        List<Map<Integer, Object>> lote = new ArrayList<>();
+        List<String> loteSimples = new ArrayList<>();
+        return ProxyJdbc.proxy(tipo, (metodo, argumentos) -> {
+            String nome = metodo.getName();
+            if (nome.startsWith("set") && argumentos != null && argumentos.length >= 2
+                    && argumentos[0] instanceof Integer indice) {
+                Object valor = nome.equals("setNull") ? new Diario.Nulo((Integer) argumentos[1]) : argumentos[1];
+                parametros.put(indice, valor);
+            } else if (nome.equals("clearParameters")) {
+                parametros.clear();
+            } else if (nome.equals("addBatch")) {
+                if (argumentos == null) {
+                    lote.add(new TreeMap<>(parametros));
+                } else {
+                    loteSimples.add((String) argumentos[0]);
+                }
+            } else if (nome.equals("clearBatch")) {
+                lote.clear();
+                loteSimples.clear();
+            } else if (nome.startsWith("execute")) {
+                List<byte[]> registros = registros(nome, argumentos, sqlPreparado, parametros, lote, loteSimples);
+                if (nome.endsWith("Batch")) {
+                    lote.clear();
+                    loteSimples.clear();
+                }
+                if (registros.isEmpty()) {
+                    return ProxyJdbc.invocar(alvo, metodo, argumentos);
+                }
+                if (conexao.getAutoCommit()) {
+                    return diario.confirmar(() -> ProxyJdbc.invocar(alvo, metodo, argumentos), registros);
+                }
+                Object resultado = ProxyJdbc.invocar(alvo, metodo, argumentos);
+                pendentes.addAll(registros);
+                return resultado;
+            }
+            return ProxyJdbc.invocar(alvo, metodo, argumentos);
+        });
+    }
+
+    /* Codificados antes da execucao: um parametro que o diario nao grava falha o comando, nao o commit. */
+    private static List<byte[]> registros(String execucao, Object[] argumentos, String sqlPreparado,
+            Map<Integer, Object> parametros, List<Map<Integer, Object>> lote, List<String> loteSimples)
+            throws SQLException {
+        List<byte[]> registros = new ArrayList<>();
+        if (execucao.endsWith("Batch")) {
+            if (sqlPreparado != null && !lote.isEmpty() && altera(sqlPreparado)) {
+                registros.add(Diario.comando(sqlPreparado, List.copyOf(lote)));
+            }
+            for (String sql : loteSimples) {
+                if (altera(sql)) {
+                    registros.add(Diario.comando(sql, null));
+                }
+            }
+        } else if (argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String sql) {
+            if (altera(sql)) {
+                registros.add(Diario.comando(sql, null));
+            }
+        } else if (sqlPreparado != null && altera(sqlPreparado)) {
+            registros.add(Diario.comando(sqlPreparado, List.of(new TreeMap<>(parametros))));
+        }
+        return registros;
+    }
+}
@@ -0,0 +1,156 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+
+/**
+ * Ferramenta de migracao para a divisao em shards: na subida, depois das
+ * migracoes do principal, move as tarefas, eventos, metas e notas (com tags,
+ * indice de busca e log de alteracoes) de cada bucket para o arquivo dele. Os
+ * ids e os {@code seq} das alteracoes sao mantidos, entao os clientes seguem
+ * sincronizando de onde estavam.
+ *
+ * Cada bucket e copiado numa transacao e so depois apagado do principal em
+ * outra; se a subida cair no meio, a proxima copia ignora o que ja foi
+ * copiado. O numero de buckets fica gravado no principal e nao pode mudar
+ * depois da divisao.
+ */
+@Component
+public class DivisaoShards {
+
+    static final String TABELA = "sharding";
+
+    private static final Logger log = LoggerFactory.getLogger(DivisaoShards.class);
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    void dividir() {
+        int gravado = bucketsGravados();
+        if (gravado != 0 && gravado != shards.buckets()) {
+            throw new IllegalStateException("O banco ja foi dividido em " + gravado
+                    + " shards; use doolt.sharding.buckets=" + gravado + " (redividir nao e suportado)");
+        }
+        if (!shards.ativo()) {
+            return;
+        }
+        if (gravado == 0) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABELA + " (buckets INTEGER NOT NULL)");
+            jdbcTemplate.update("INSERT INTO " + TABELA + " (buckets) VALUES (?)", shards.buckets());
+        }
+        String usuarios = Arrays.stream(TabelaSincronizada.values())
+                .map(tabela -> "SELECT id_usuario_fk FROM " + tabela.nome())
+                .collect(Collectors.joining(" UNION ", "", " UNION SELECT id_usuario_fk FROM alteracoes"));
+        List<Integer> buckets = jdbcTemplate.queryForList("SELECT DISTINCT " + bucketDoUsuario() + " FROM ("
+                + usuarios + ") WHERE id_usuario_fk IS NOT NULL", Integer.class);
+        if (buckets.isEmpty()) {
+            return;
+        }
+        log.info("Dividindo o banco principal em {} shards ({} com dados)", shards.buckets(), buckets.size());
+        for (int bucket : buckets) {
+            try (Connection conexao = shards.fonte(bucket).getConnection()) {
+                mover(conexao, bucket);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Falha ao mover o bucket " + bucket, e);
+            }
+        }
+        Integer semUsuario = jdbcTemplate.queryForObject("SELECT " + Arrays.stream(TabelaSincronizada.values())
+                .map(tabela -> "(SELECT count(*) FROM " + tabela.nome() + " WHERE id_usuario_fk IS NULL)")
+                .collect(Collectors.joining(" + ")), Integer.class);
+        if (semUsuario > 0) {
+            log.warn("{} linhas sem id_usuario_fk ficaram no banco principal", semUsuario);
+        }
+    }
+
+    private int bucketsGravados() {
+        Integer existe = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = ?", Integer.class, TABELA);
+        if (existe == 0) {
+            return 0;
+        }
+        List<Integer> buckets = jdbcTemplate.queryForList("SELECT buckets FROM " + TABELA, Integer.class);
+        return buckets.isEmpty() ? 0 : buckets.get(0);
+    }
+
+    /* O ATTACH nao pode rodar dentro de uma transacao, por isso a conexao e controlada aqui. */
+    private void mover(Connection conexao, int bucket) {
+        SingleConnectionDataSource fonte = new SingleConnectionDataSource(conexao, true);
+        JdbcTemplate shard = new JdbcTemplate(fonte);
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(fonte));
+        shard.update("ATTACH DATABASE ? AS origem", shards.arquivoPrincipal().toString());
+        try {
+            String condicao = "id_usuario_fk IS NOT NULL AND " + bucketDoUsuario() + " = " + bucket;
+            int copiadas = transacao.execute(status -> copiar(shard, condicao));
+            transacao.executeWithoutResult(status -> apagarDaOrigem(shard, condicao));
+            log.info("Shard {}: {} linhas no arquivo", bucket, copiadas);
+        } finally {
+            shard.execute("DETACH DATABASE origem");
+        }
+    }
+
+    /*
+     * Os triggers do arquivo novo geram alteracoes com seq proprio; elas sao
+     * trocadas pelas do principal (mesmo seq) e a versao de cada linha volta a
+     * ser esse seq. A sequencia de alteracoes continua depois do maior seq ja
+     * usado no principal (inclusive os de buckets movidos antes), para nenhum
+     * cursor de sincronizacao andar para tras.
+     */
+    private int copiar(JdbcTemplate shard, String condicao) {
+        int copiadas = 0;
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            String colunas = String.join(", ", shard.queryForList("SELECT name FROM pragma_table_info(?, 'main') "
+                    + "WHERE name IN (SELECT name FROM pragma_table_info(?, 'origem'))", String.class,
+                    tabela.nome(), tabela.nome()));
+            shard.update("INSERT OR IGNORE INTO main." + tabela.nome() + " (" + colunas + ") SELECT "
+                    + colunas + " FROM origem." + tabela.nome() + " WHERE " + condicao);
+            copiadas += shard.queryForObject("SELECT count(*) FROM main." + tabela.nome(), Integer.class);
+        }
+        shard.execute("INSERT OR IGNORE INTO main.tags (nome) SELECT DISTINCT t.nome FROM origem.tags t "
+                + "JOIN origem.nota_tag nt ON nt.id_tag_fk = t.id JOIN main.notas n ON n.id = nt.id_nota_fk");
+        shard.execute("INSERT OR IGNORE INTO main.nota_tag (id_nota_fk, id_tag_fk) "
+                + "SELECT nt.id_nota_fk, mt.id FROM origem.nota_tag nt JOIN main.notas n ON n.id = nt.id_nota_fk "
+                + "JOIN origem.tags t ON t.id = nt.id_tag_fk JOIN main.tags mt ON mt.nome = t.nome");
+        shard.execute("INSERT OR REPLACE INTO main.alteracoes (seq, tabela, id_linha, id_usuario_fk, excluido) "
+                + "SELECT seq, tabela, id_linha, id_usuario_fk, excluido FROM origem.alteracoes WHERE " + condicao);
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            String seq = "(SELECT a.seq FROM main.alteracoes a WHERE a.tabela = " + tabela.codigo()
+                    + " AND a.id_linha = " + tabela.nome() + ".id)";
+            shard.execute("UPDATE main." + tabela.nome() + " SET versao = " + seq + " WHERE versao IS NOT " + seq);
+        }
+        shard.execute("UPDATE main.sqlite_sequence SET seq = max(seq, (SELECT coalesce(max(seq), 0) "
+                + "FROM origem.sqlite_sequence WHERE name = 'alteracoes')) WHERE name = 'alteracoes'");
+        return copiadas;
+    }
+
+    private void apagarDaOrigem(JdbcTemplate shard, String condicao) {
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            shard.execute("DELETE FROM origem." + tabela.nome() + " WHERE " + condicao);
+        }
+        shard.execute("DELETE FROM origem.nota_tag WHERE id_nota_fk NOT IN (SELECT id FROM origem.notas)");
+        shard.execute("DELETE FROM origem.tags WHERE id NOT IN (SELECT id_tag_fk FROM origem.nota_tag)");
+        shard.execute("DELETE FROM origem.alteracoes WHERE " + condicao);
+    }
+
+    /** Igual ao {@code Math.floorMod} de {@link Shards#bucket}. */
+    private String bucketDoUsuario() {
+        int buckets = shards.buckets();
+        return "((id_usuario_fk % " + buckets + ") + " + buckets + ") % " + buckets;
+    }
+}
@@ -0,0 +1,101 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.sqlite.BusyHandler;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Busy handler do SQLite que mede a espera por lock. Substitui o
+ * {@code busy_timeout}: repete com as mesmas pausas do handler padrao ate o
+ * limite e registra cada pausa em {@code doolt.sqlite.lock.espera}. Cada
+ * conexao tem o seu, entao o estado nao e compartilhado.
+ */
+public class EsperaLockSQLite extends BusyHandler {
+
+    private static final long[] PAUSAS_MS = { 1, 2, 5, 10, 15, 20, 25, 25, 25, 50, 50, 100 };
+
+    private final long limiteNs;
+
+    private final Medidores medidores;
+
+    private long inicio;
+
+    private EsperaLockSQLite(long limiteMs, Medidores medidores) {
+        this.limiteNs = TimeUnit.MILLISECONDS.toNanos(limiteMs);
+        this.medidores = medidores;
+    }
+
+    /** DataSource do SQLite que instala o handler em cada conexao nova. */
+    public static SQLiteDataSource fonte(String url, Properties pragmas, long limiteMs, MeterRegistry registro,
+            String pool) {
+        Medidores medidores = new Medidores(registro, pool);
+        SQLiteDataSource fonte = new SQLiteDataSource(new SQLiteConfig(pragmas)) {
+            @Override
+            public SQLiteConnection getConnection(String usuario, String senha) throws SQLException {
+                SQLiteConnection conexao = super.getConnection(usuario, senha);
+                BusyHandler.setHandler(conexao, new EsperaLockSQLite(limiteMs, medidores));
+                return conexao;
+            }
+        };
+        fonte.setUrl(url);
+        return fonte;
+    }
+
+    @Override
+    protected int callback(int tentativas) {
+        long agora = System.nanoTime();
+        if (tentativas == 0) {
+            inicio = agora;
+            medidores.ocupado.increment();
+        }
+        long restante = limiteNs - (agora - inicio);
+        if (restante <= 0) {
+            medidores.desistencias.increment();
+            return 0;
+        }
+        long pausa = Math.min(TimeUnit.MILLISECONDS.toNanos(PAUSAS_MS[Math.min(tentativas, PAUSAS_MS.length - 1)]),
+                restante);
+        try {
+            TimeUnit.NANOSECONDS.sleep(pausa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            medidores.espera.record(System.nanoTime() - agora, TimeUnit.NANOSECONDS);
+        }
+        return 1;
+    }
+
+    private static final class Medidores {
+
+        final Timer espera;
+
+        final Counter ocupado;
+
+        final Counter desistencias;
+
+        Medidores(MeterRegistry registro, String pool) {
+            espera = Timer.builder("doolt.sqlite.lock.espera")
+                    .description("Pausas esperando um lock do SQLite")
+                    .tag("pool", pool)
+                    .register(registro);
+            ocupado = Counter.builder("doolt.sqlite.lock.ocupado")
+                    .description("Comandos que encontraram o banco ocupado")
+                    .tag("pool", pool)
+                    .register(registro);
+            desistencias = Counter.builder("doolt.sqlite.lock.desistencias")
+                    .description("Comandos que desistiram com SQLITE_BUSY")
+                    .tag("pool", pool)
+                    .register(registro);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.gasparelli.doolt.config;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+
+/**
+ * Acerta o esquema de um arquivo de shard a partir do banco principal, que ja
+ * passou pelo ddl-auto e pelas migracoes: cria as tabelas e colunas que
+ * faltam, aplica as migracoes que o arquivo ainda nao tem e copia os indices.
+ *
+ * Nas tabelas sincronizadas o id e AUTOINCREMENT comecando em
+ * {@code (bucket + 1) << 40}: ids de arquivos diferentes nunca se repetem, e os
+ * caches por id (segundo nivel, tags, lembretes, progresso das metas) continuam
+ * valendo com varios arquivos.
+ */
+final class EsquemaShards {
+
+    private static final Pattern COLUNA_ID = Pattern.compile("\\(\\s*id\\s+integer\\s*,", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern CHAVE_ID = Pattern.compile(",\\s*primary\\s+key\\s*\\(\\s*id\\s*\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern AUTOINCREMENT = Pattern.compile("\\bautoincrement\\b", Pattern.CASE_INSENSITIVE);
+
+    private EsquemaShards() {
+    }
+
+    static void preparar(JdbcTemplate principal, DataSource escrita, int bucket) {
+        JdbcTemplate shard = new JdbcTemplate(escrita);
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(escrita));
+        List<Objeto> objetos = principal.query("SELECT type, name, tbl_name, sql FROM sqlite_master "
+                + "WHERE sql IS NOT NULL AND name NOT LIKE 'sqlite_%' AND name <> '" + DivisaoShards.TABELA + "'",
+                (rs, n) -> new Objeto(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+        Set<String> virtuais = new HashSet<>();
+        objetos.stream().filter(Objeto::virtual).forEach(objeto -> virtuais.add(objeto.nome()));
+
+        transacao.executeWithoutResult(status -> {
+            Set<String> existentes = nomes(shard, "table");
+            for (Objeto objeto : objetos) {
+                if (!objeto.tipo().equals("table") || objeto.virtual() || sombra(objeto.nome(), virtuais)) {
+                    continue;
+                }
+                if (existentes.contains(objeto.nome())) {
+                    completarColunas(principal, shard, objeto.nome());
+                } else {
+                    criarTabela(shard, objeto, bucket);
+                }
+            }
+        });
+        MigracoesSQLite.migrar(shard, transacao, "shard " + bucket);
+        transacao.executeWithoutResult(status -> {
+            Set<String> tabelas = nomes(shard, "table");
+            Set<String> indices = nomes(shard, "index");
+            for (Objeto objeto : objetos) {
+                if (objeto.tipo().equals("index") && !indices.contains(objeto.nome())
+                        && tabelas.contains(objeto.tabela())) {
+                    shard.execute(objeto.sql());
+                }
+            }
+        });
+    }
+
+    private static void criarTabela(JdbcTemplate shard, Objeto objeto, int bucket) {
+        TabelaSincronizada sincronizada = sincronizada(objeto.nome());
+        if (sincronizada == null) {
+            shard.execute(objeto.sql());
+            return;
+        }
+        shard.execute(comAutoincrement(objeto.nome(), objeto.sql()));
+        shard.update("INSERT INTO sqlite_sequence (name, seq) VALUES (?, ?)", objeto.nome(),
+                (bucket + 1L) << Shards.BITS_ID);
+    }
+
+    /**
+     * O {@code CREATE TABLE} de uma tabela sincronizada com o id AUTOINCREMENT.
+     * Devolve o mesmo SQL se o id ja for AUTOINCREMENT (principal migrado).
+     */
+    static String comAutoincrement(String tabela, String sql) {
+        if (AUTOINCREMENT.matcher(sql).find()) {
+            return sql;
+        }
+        Matcher coluna = COLUNA_ID.matcher(sql);
+        Matcher chave = CHAVE_ID.matcher(sql);
+        if (!coluna.find() || !chave.find()) {
+            throw new IllegalStateException("Nao foi possivel tornar o id de " + tabela + " AUTOINCREMENT: " + sql);
+        }
+        String semChave = sql.substring(0, chave.start()) + sql.substring(chave.end());
+        return COLUNA_ID.matcher(semChave).replaceFirst("(id integer primary key autoincrement,");
+    }
+
+    /* Colunas que o ddl-auto acrescentou no principal depois que o arquivo foi criado. */
+    private static void completarColunas(JdbcTemplate principal, JdbcTemplate shard, String tabela) {
+        Set<String> colunas = new HashSet<>(
+                shard.queryForList("SELECT name FROM pragma_table_info(?)", String.class, tabela));
+        principal.query("SELECT name, type, dflt_value FROM pragma_table_info(?)", (RowCallbackHandler) rs -> {
+            String nome = rs.getString(1);
+            if (!colunas.contains(nome)) {
+                String padrao = rs.getString(3);
+                shard.execute("ALTER TABLE " + tabela + " ADD COLUMN " + nome + " " + rs.getString(2)
+                        + (padrao != null ? " DEFAULT " + padrao : ""));
+            }
+        }, tabela);
+    }
+
+    private static Set<String> nomes(JdbcTemplate jdbc, String tipo) {
+        return new HashSet<>(jdbc.queryForList("SELECT name FROM sqlite_master WHERE type = ?", String.class, tipo));
+    }
+
+    /** Tabelas internas de uma tabela virtual (FTS5), criadas por ela. */
+    private static boolean sombra(String nome, Set<String> virtuais) {
+        return virtuais.stream().anyMatch(virtual -> nome.startsWith(virtual + "_"));
+    }
+
+    private static TabelaSincronizada sincronizada(String nome) {
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            if (tabela.nome().equals(nome)) {
+                return tabela;
+            }
+        }
+        return null;
+    }
+
+    private record Objeto(String tipo, String nome, String tabela, String sql) {
+
+        boolean virtual() {
+            return tipo.equals("table") && sql.regionMatches(true, 0, "CREATE VIRTUAL TABLE", 0, 20);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Mede cada comando SQL executado pelas conexoes de um pool, venha do
+ * Hibernate ou do JdbcTemplate: tempo em {@code doolt.sql} (por pool e tipo de
+ * comando), contagem da requisicao corrente (veja {@link MetricasFiltro}) e
+ * log dos comandos acima de {@code doolt.sql.lento-ms} no logger
+ * {@code doolt.sql.lento}.
+ */
+public class MetricasDataSource extends DelegatingDataSource {
+
+    private static final Logger logLento = LoggerFactory.getLogger("doolt.sql.lento");
+
+    private static final ThreadLocal<Requisicao> requisicao = new ThreadLocal<>();
+
+    private static final int TAMANHO_MAXIMO_SQL = 2000;
+
+    enum Comando {
+        SELECT, INSERT, UPDATE, DELETE, OUTRO;
+
+        static Comando de(String sql) {
+            if (sql == null) {
+                return OUTRO;
+            }
+            String inicio = sql.stripLeading();
+            int fim = 0;
+            while (fim < inicio.length() && Character.isLetter(inicio.charAt(fim))) {
+                fim++;
+            }
+            return switch (inicio.substring(0, fim).toUpperCase(Locale.ROOT)) {
+                case "SELECT", "WITH" -> SELECT;
+                case "INSERT", "REPLACE" -> INSERT;
+                case "UPDATE" -> UPDATE;
+                case "DELETE" -> DELETE;
+                default -> OUTRO;
+            };
+        }
+    }
+
+    private final String pool;
+
+    private final long lentoNs;
+
+    private final Map<Comando, Timer> tempos = new EnumMap<>(Comando.class);
+
+    /** {@code lentoMs} negativo desliga o log de comandos lentos. */
+    public MetricasDataSource(DataSource alvo, String pool, MeterRegistry registro, long lentoMs) {
+        super(alvo);
+        this.pool = pool;
+        this.lentoNs = lentoMs < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(lentoMs);
+        for (Comando comando : Comando.values()) {
+            tempos.put(comando, Timer.builder("doolt.sql")
+                    .description("Execucao de comandos SQL")
+                    .tag("pool", pool)
+                    .tag("comando", comando.name().toLowerCase(Locale.ROOT))
+                    .register(registro));
+        }
+    }
+
+    /** Comandos e tempo de SQL da requisicao atendida pela thread atual. */
+    static final class Requisicao {
+
+        final String descricao;
+
+        int comandos;
+
+        long tempoNs;
+
+        Requisicao(String descricao) {
+            this.descricao = descricao;
+        }
+    }
+
+    static Requisicao iniciarRequisicao(String descricao) {
+        Requisicao atual = new Requisicao(descricao);
+        requisicao.set(atual);
+        return atual;
+    }
+
+    static void encerrarRequisicao() {
+        requisicao.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conexao(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String senha) throws SQLException {
+        return conexao(super.getConnection(usuario, senha));
+    }
+
+    private Connection conexao(Connection alvo) {
+        return (Connection) ProxyJdbc.proxy(Connection.class,
+                (metodo, argumentos) -> ProxyJdbc.invocarConexao(alvo, metodo, argumentos, this::comando));
+    }
+
+    private Object comando(Class<?> tipo, Statement alvo, String sqlPreparado) {
+        return ProxyJdbc.proxy(tipo, (metodo, argumentos) -> {
+            if (!metodo.getName().startsWith("execute")) {
+                return ProxyJdbc.invocar(alvo, metodo, argumentos);
+            }
+            String sql = argumentos != null && argumentos.length > 0 && argumentos[0] instanceof String texto
+                    ? texto
+                    : sqlPreparado;
+            long inicio = System.nanoTime();
+            try {
+                return ProxyJdbc.invocar(alvo, metodo, argumentos);
+            } finally {
+                registrar(sql, metodo.getName(), System.nanoTime() - inicio);
+            }
+        });
+    }
+
+    private void registrar(String sql, String execucao, long duracaoNs) {
+        tempos.get(Comando.de(sql)).record(duracaoNs, TimeUnit.NANOSECONDS);
+        Requisicao atual = requisicao.get();
+        if (atual != null) {
+            atual.comandos++;
+            atual.tempoNs += duracaoNs;
+        }
+        if (duracaoNs >= lentoNs) {
+            double ms = duracaoNs / 1e6;
+            String texto = sql == null || sql.length() <= TAMANHO_MAXIMO_SQL ? sql
+                    : sql.substring(0, TAMANHO_MAXIMO_SQL) + "...";
+            String origem = atual != null ? atual.descricao : Thread.currentThread().getName();
+            logLento.atWarn()
+                    .addKeyValue("duracaoMs", ms)
+                    .addKeyValue("pool", pool)
+                    .addKeyValue("execucao", execucao)
+                    .addKeyValue("origem", origem)
+                    .addKeyValue("sql", texto)
+                    .log("SQL lento duracaoMs={} pool={} execucao={} origem=\"{}\" sql=\"{}\"",
+                            String.format(Locale.ROOT, "%.1f", ms), pool, execucao, origem, texto);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.gasparelli.doolt.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Registra quantos comandos SQL cada endpoint executou e quanto tempo passou
+ * neles ({@code doolt.requisicao.sql.comandos} e
+ * {@code doolt.requisicao.sql.tempo}). So conta o que roda na thread da
+ * requisicao: escritas do group commit e downloads assincronos ficam de fora.
+ */
+@Component
+public class MetricasFiltro extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        MetricasDataSource.Requisicao requisicao = MetricasDataSource
+                .iniciarRequisicao(request.getMethod() + " " + request.getRequestURI());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MetricasDataSource.encerrarRequisicao();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (uri != null) {
+                Tags tags = Tags.of("method", request.getMethod(), "uri", uri.toString());
+                registro.summary("doolt.requisicao.sql.comandos", tags).record(requisicao.comandos);
+                registro.timer("doolt.requisicao.sql.tempo", tags).record(requisicao.tempoNs, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+}
@@ -0,0 +1,283 @@
+package com.gasparelli.doolt.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+import com.gasparelli.doolt.util.NormalizadorTags;
+import com.gasparelli.doolt.util.Senhas;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Objetos do SQLite que o Hibernate nao cria sozinho (tabelas FTS5, triggers,
+ * backfills). Cada migracao roda uma unica vez, em ordem, e a versao aplicada
+ * fica gravada em {@code PRAGMA user_version}. Roda depois do
+ * {@code ddl-auto}, por isso depende do {@link EntityManagerFactory}.
+ */
+@Component
+public class MigracoesSQLite {
+
+    private static final Logger log = LoggerFactory.getLogger(MigracoesSQLite.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DivisaoShards divisaoShards;
+
+    public MigracoesSQLite(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory, DivisaoShards divisaoShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.divisaoShards = divisaoShards;
+    }
+
+    /** Migra o banco principal e, com a divisao em shards ligada, move para os shards o que estiver nele. */
+    @PostConstruct
+    void migrar() {
+        migrar(jdbcTemplate, transactionTemplate, "principal");
+        divisaoShards.dividir();
+    }
+
+    /** Tambem usado em cada arquivo de shard, quando ele e aberto. */
+    static void migrar(JdbcTemplate jdbc, TransactionTemplate transacao, String banco) {
+        int atual = jdbc.queryForObject("PRAGMA user_version", Integer.class);
+        for (Migracao migracao : migracoes()) {
+            if (migracao.versao() <= atual) {
+                continue;
+            }
+            log.info("Aplicando migracao {} em {}: {}", migracao.versao(), banco, migracao.descricao());
+            transacao.executeWithoutResult(status -> {
+                migracao.aplicar().accept(jdbc);
+                jdbc.execute("PRAGMA user_version = " + migracao.versao());
+            });
+        }
+    }
+
+    public int versaoAtual() {
+        return jdbcTemplate.queryForObject("PRAGMA user_version", Integer.class);
+    }
+
+    private static List<Migracao> migracoes() {
+        return List.of(
+                new Migracao(1, "indice FTS5 de notas", MigracoesSQLite::buscaTextualNotas),
+                new Migracao(2, "tags normalizadas de notas", MigracoesSQLite::tagsNormalizadas),
+                new Migracao(3, "inicio_ts/fim_ts dos eventos existentes", MigracoesSQLite::intervalosEventos),
+                new Migracao(4, "vencimento_ts das tarefas existentes", MigracoesSQLite::vencimentosTarefas),
+                new Migracao(5, "senhas com hash e revogacao de tokens", MigracoesSQLite::senhasETokens),
+                new Migracao(6, "log de alteracoes para sincronizacao", MigracoesSQLite::logAlteracoes),
+                new Migracao(7, "exclusao adiada com excluido_em", MigracoesSQLite::exclusaoAdiada),
+                new Migracao(8, "ids AUTOINCREMENT nas tabelas sincronizadas", MigracoesSQLite::idsSemReuso));
+    }
+
+    private static void buscaTextualNotas(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE VIRTUAL TABLE IF NOT EXISTS notas_fts USING fts5("
+                + "titulo, descricao, tags, id_usuario_fk, content='notas', content_rowid='id', "
+                + "tokenize='unicode61 remove_diacritics 2')");
+        jdbc.execute("CREATE TRIGGER IF NOT EXISTS notas_fts_ai AFTER INSERT ON notas BEGIN "
+                + "INSERT INTO notas_fts(rowid, titulo, descricao, tags, id_usuario_fk) "
+                + "VALUES (new.id, new.titulo, new.descricao, new.tags, new.id_usuario_fk); END");
+        jdbc.execute("CREATE TRIGGER IF NOT EXISTS notas_fts_ad AFTER DELETE ON notas BEGIN "
+                + "INSERT INTO notas_fts(notas_fts, rowid, titulo, descricao, tags, id_usuario_fk) "
+                + "VALUES ('delete', old.id, old.titulo, old.descricao, old.tags, old.id_usuario_fk); END");
+        jdbc.execute("CREATE TRIGGER IF NOT EXISTS notas_fts_au AFTER UPDATE OF titulo, descricao, tags, id_usuario_fk "
+                + "ON notas BEGIN "
+                + "INSERT INTO notas_fts(notas_fts, rowid, titulo, descricao, tags, id_usuario_fk) "
+                + "VALUES ('delete', old.id, old.titulo, old.descricao, old.tags, old.id_usuario_fk); "
+                + "INSERT INTO notas_fts(rowid, titulo, descricao, tags, id_usuario_fk) "
+                + "VALUES (new.id, new.titulo, new.descricao, new.tags, new.id_usuario_fk); END");
+        jdbc.execute("INSERT INTO notas_fts(notas_fts) VALUES ('rebuild')");
+    }
+
+    private static void tagsNormalizadas(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS tags (id INTEGER PRIMARY KEY, nome TEXT NOT NULL UNIQUE)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS nota_tag (id_nota_fk INTEGER NOT NULL, id_tag_fk INTEGER NOT NULL, "
+                + "PRIMARY KEY (id_nota_fk, id_tag_fk)) WITHOUT ROWID");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_nota_tag_tag ON nota_tag (id_tag_fk, id_nota_fk)");
+
+        List<Object[]> nomes = new ArrayList<>();
+        List<Object[]> vinculos = new ArrayList<>();
+        jdbc.query("SELECT id, tags FROM notas WHERE tags IS NOT NULL AND tags <> ''", (RowCallbackHandler) rs -> {
+            for (String nome : NormalizadorTags.normalizar(rs.getString("tags"))) {
+                nomes.add(new Object[] { nome });
+                vinculos.add(new Object[] { rs.getLong("id"), nome });
+            }
+        });
+        jdbc.batchUpdate("INSERT OR IGNORE INTO tags (nome) VALUES (?)", nomes);
+        jdbc.batchUpdate("INSERT OR IGNORE INTO nota_tag (id_nota_fk, id_tag_fk) SELECT ?, id FROM tags WHERE nome = ?",
+                vinculos);
+    }
+
+    private static void intervalosEventos(JdbcTemplate jdbc) {
+        List<Object[]> intervalos = new ArrayList<>();
+        jdbc.query("SELECT id, data_evento, inicio_hora, fim_hora FROM eventos", (RowCallbackHandler) rs -> {
+            EventosEntity evento = new EventosEntity();
+            evento.setDataEvento(rs.getString("data_evento"));
+            evento.setInicio_hora(rs.getString("inicio_hora"));
+            evento.setFimHora(rs.getString("fim_hora"));
+            evento.calcularIntervalo();
+            intervalos.add(new Object[] { evento.getInicioTs(), evento.getFimTs(), rs.getLong("id") });
+        });
+        jdbc.batchUpdate("UPDATE eventos SET inicio_ts = ?, fim_ts = ? WHERE id = ?", intervalos);
+    }
+
+    private static void vencimentosTarefas(JdbcTemplate jdbc) {
+        List<Object[]> vencimentos = new ArrayList<>();
+        jdbc.query("SELECT id, data_vencimento FROM tarefas WHERE data_vencimento IS NOT NULL",
+                (RowCallbackHandler) rs -> {
+                    TarefasEntity tarefa = new TarefasEntity();
+                    tarefa.setDataVencimento(rs.getString("data_vencimento"));
+                    tarefa.calcularVencimento();
+                    vencimentos.add(new Object[] { tarefa.getVencimentoTs(), rs.getLong("id") });
+                });
+        jdbc.batchUpdate("UPDATE tarefas SET vencimento_ts = ? WHERE id = ?", vencimentos);
+    }
+
+    /*
+     * O Hibernate nao consegue criar restricao unica no SQLite (usa ALTER
+     * TABLE), por isso o indice de email fica aqui. Se a base ja tiver emails
+     * repetidos o indice e criado sem unicidade e o problema vai para o log.
+     */
+    private static void senhasETokens(JdbcTemplate jdbc) {
+        Integer repetidos = jdbc.queryForObject("SELECT count(*) FROM (SELECT email FROM usuarios "
+                + "WHERE email IS NOT NULL GROUP BY email HAVING count(*) > 1)", Integer.class);
+        if (repetidos == 0) {
+            jdbc.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_usuarios_email ON usuarios (email)");
+        } else {
+            log.warn("{} emails repetidos em usuarios; idx_usuarios_email criado sem unicidade", repetidos);
+            jdbc.execute("CREATE INDEX IF NOT EXISTS idx_usuarios_email ON usuarios (email)");
+        }
+        jdbc.execute("CREATE TABLE IF NOT EXISTS tokens_revogados (serie INTEGER PRIMARY KEY, "
+                + "expira_em INTEGER NOT NULL)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS revogacoes_usuario (id_usuario_fk INTEGER PRIMARY KEY, "
+                + "serie_minima INTEGER NOT NULL)");
+        List<Object[]> senhas = new ArrayList<>();
+        jdbc.query("SELECT id, senha FROM usuarios WHERE senha IS NOT NULL", (RowCallbackHandler) rs -> {
+            String senha = rs.getString("senha");
+            if (!Senhas.gerada(senha)) {
+                senhas.add(new Object[] { Senhas.gerar(senha), rs.getLong("id") });
+            }
+        });
+        jdbc.batchUpdate("UPDATE usuarios SET senha = ? WHERE id = ?", senhas);
+    }
+
+    /*
+     * Cada linha de tarefas/eventos/metas/notas tem no maximo uma entrada em
+     * alteracoes: o INSERT OR REPLACE apaga a anterior e gera um seq novo
+     * (AUTOINCREMENT nunca reusa), que tambem vai para a coluna versao. Dentro
+     * do trigger o last_insert_rowid() e o da alteracao e volta ao valor de
+     * antes quando o trigger termina. A exclusao vira uma entrada com
+     * excluido = 1.
+     */
+    private static void logAlteracoes(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS alteracoes (seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "tabela INTEGER NOT NULL, id_linha INTEGER NOT NULL, id_usuario_fk INTEGER NOT NULL, "
+                + "excluido INTEGER NOT NULL DEFAULT 0, UNIQUE (tabela, id_linha))");
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_alteracoes_usuario_seq ON alteracoes (id_usuario_fk, seq)");
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            String nome = tabela.nome();
+            int codigo = tabela.codigo();
+            jdbc.execute("INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk) "
+                    + "SELECT " + codigo + ", id, id_usuario_fk FROM " + nome + " ORDER BY id");
+            jdbc.execute("UPDATE " + nome + " SET versao = (SELECT seq FROM alteracoes a "
+                    + "WHERE a.tabela = " + codigo + " AND a.id_linha = " + nome + ".id)");
+            jdbc.execute("CREATE TRIGGER IF NOT EXISTS " + nome + "_alteracoes_ai AFTER INSERT ON " + nome
+                    + " BEGIN INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk) "
+                    + "VALUES (" + codigo + ", new.id, new.id_usuario_fk); "
+                    + "UPDATE " + nome + " SET versao = last_insert_rowid() WHERE id = new.id; END");
+            jdbc.execute("CREATE TRIGGER IF NOT EXISTS " + nome + "_alteracoes_au AFTER UPDATE ON " + nome
+                    + " WHEN new.versao IS old.versao"
+                    + " BEGIN INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk) "
+                    + "VALUES (" + codigo + ", new.id, new.id_usuario_fk); "
+                    + "UPDATE " + nome + " SET versao = last_insert_rowid() WHERE id = new.id; END");
+            jdbc.execute("CREATE TRIGGER IF NOT EXISTS " + nome + "_alteracoes_ad AFTER DELETE ON " + nome
+                    + " BEGIN INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk, excluido) "
+                    + "VALUES (" + codigo + ", old.id, old.id_usuario_fk, 1); END");
+        }
+    }
+
+    /*
+     * Marcar excluido_em conta como exclusao no log; a remocao fisica da linha
+     * ja marcada (purga) nao gera outra entrada. O indice parcial so tem as
+     * linhas marcadas, que a purga procura.
+     */
+    private static void exclusaoAdiada(JdbcTemplate jdbc) {
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            String nome = tabela.nome();
+            int codigo = tabela.codigo();
+            Integer coluna = jdbc.queryForObject("SELECT count(*) FROM pragma_table_info(?) WHERE name = 'excluido_em'",
+                    Integer.class, nome);
+            if (coluna == 0) {
+                jdbc.execute("ALTER TABLE " + nome + " ADD COLUMN excluido_em INTEGER");
+            }
+            jdbc.execute("CREATE INDEX IF NOT EXISTS idx_" + nome + "_excluido_em ON " + nome
+                    + " (excluido_em) WHERE excluido_em IS NOT NULL");
+            jdbc.execute("DROP TRIGGER IF EXISTS " + nome + "_alteracoes_au");
+            jdbc.execute("CREATE TRIGGER " + nome + "_alteracoes_au AFTER UPDATE ON " + nome
+                    + " WHEN new.versao IS old.versao"
+                    + " BEGIN INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk, excluido) "
+                    + "VALUES (" + codigo + ", new.id, new.id_usuario_fk, new.excluido_em IS NOT NULL); "
+                    + "UPDATE " + nome + " SET versao = last_insert_rowid() WHERE id = new.id; END");
+            jdbc.execute("DROP TRIGGER IF EXISTS " + nome + "_alteracoes_ad");
+            jdbc.execute("CREATE TRIGGER " + nome + "_alteracoes_ad AFTER DELETE ON " + nome
+                    + " WHEN old.excluido_em IS NULL"
+                    + " BEGIN INSERT OR REPLACE INTO alteracoes (tabela, id_linha, id_usuario_fk, excluido) "
+                    + "VALUES (" + codigo + ", old.id, old.id_usuario_fk, 1); END");
+        }
+    }
+
+    /*
+     * Sem AUTOINCREMENT o SQLite reusa o maior id liberado (exclusao ou
+     * purga), e a linha nova, talvez de outro usuario, substituiria no log a
+     * exclusao da antiga (UNIQUE (tabela, id_linha)): o dono nunca saberia da
+     * exclusao. A tabela e recriada com o id AUTOINCREMENT, e a sequencia
+     * comeca no maior id ja usado, contando os que so restam no log. Indices
+     * e triggers somem com a tabela antiga e sao recriados. Os arquivos de
+     * shard ja nascem com AUTOINCREMENT e ficam como estao.
+     */
+    private static void idsSemReuso(JdbcTemplate jdbc) {
+        for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+            String nome = tabela.nome();
+            String sql = jdbc.queryForObject("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+                    String.class, nome);
+            String novo = EsquemaShards.comAutoincrement(nome, sql);
+            if (novo.equals(sql)) {
+                continue;
+            }
+            List<String> dependentes = jdbc.queryForList("SELECT sql FROM sqlite_master "
+                    + "WHERE tbl_name = ? AND type IN ('index', 'trigger') AND sql IS NOT NULL ORDER BY type, name",
+                    String.class, nome);
+            for (String gatilho : jdbc.queryForList("SELECT name FROM sqlite_master WHERE tbl_name = ? "
+                    + "AND type = 'trigger'", String.class, nome)) {
+                jdbc.execute("DROP TRIGGER " + gatilho);
+            }
+            Long maior = jdbc.queryForObject("SELECT max(coalesce((SELECT max(id) FROM " + nome + "), 0), "
+                    + "coalesce((SELECT max(id_linha) FROM alteracoes WHERE tabela = ?), 0))", Long.class,
+                    tabela.codigo());
+            String temporaria = nome + "_autoincrement";
+            jdbc.execute("CREATE TABLE " + temporaria + " " + novo.substring(novo.indexOf('(')));
+            jdbc.execute("INSERT INTO " + temporaria + " SELECT * FROM " + nome);
+            jdbc.execute("DROP TABLE " + nome);
+            jdbc.execute("ALTER TABLE " + temporaria + " RENAME TO " + nome);
+            jdbc.update("DELETE FROM sqlite_sequence WHERE name = ?", nome);
+            jdbc.update("INSERT INTO sqlite_sequence (name, seq) VALUES (?, ?)", nome, maior);
+            dependentes.forEach(jdbc::execute);
+        }
+    }
+
+    private record Migracao(int versao, String descricao, Consumer<JdbcTemplate> aplicar) {
+    }
+}
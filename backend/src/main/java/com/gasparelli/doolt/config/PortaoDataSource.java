@@ -0,0 +1,80 @@
+package com.gasparelli.doolt.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Limita quantas threads podem estar com uma conexao ao mesmo tempo. Com
+ * threads virtuais as requisicoes excedentes esperam no semaforo (sem prender
+ * uma thread do sistema) em vez de entrar na fila do Hikari; a licenca volta
+ * quando a conexao e fechada.
+ */
+public class PortaoDataSource extends DelegatingDataSource {
+
+    private final Semaphore licencas;
+
+    private final long esperaMs;
+
+    public PortaoDataSource(DataSource alvo, int licencas, long esperaMs) {
+        super(alvo);
+        this.licencas = new Semaphore(licencas, true);
+        this.esperaMs = esperaMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        entrar();
+        try {
+            return liberarAoFechar(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            licencas.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String senha) throws SQLException {
+        entrar();
+        try {
+            return liberarAoFechar(super.getConnection(usuario, senha));
+        } catch (SQLException | RuntimeException e) {
+            licencas.release();
+            throw e;
+        }
+    }
+
+    private void entrar() throws SQLException {
+        try {
+            if (!licencas.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Nenhuma conexao livre depois de " + esperaMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrompido esperando conexao", e);
+        }
+    }
+
+    private Connection liberarAoFechar(Connection conexao) {
+        AtomicBoolean fechada = new AtomicBoolean();
+        return (Connection) ProxyJdbc.proxy(Connection.class, (metodo, argumentos) -> {
+            if (metodo.getName().equals("close") && fechada.compareAndSet(false, true)) {
+                try {
+                    conexao.close();
+                } finally {
+                    licencas.release();
+                }
+                return null;
+            }
+            return ProxyJdbc.invocar(conexao, metodo, argumentos);
+        });
+    }
+}
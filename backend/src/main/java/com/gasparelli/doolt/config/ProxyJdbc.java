@@ -0,0 +1,60 @@
+package com.gasparelli.doolt.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+
+/**
+ * Proxies de conexoes e comandos JDBC usados pelos DataSources que observam o
+ * pool ({@link MetricasDataSource}, {@link DiarioDataSource},
+ * {@link PortaoDataSource}). O {@code equals} do proxy e por identidade e as
+ * excecoes do alvo saem sem o {@link InvocationTargetException}.
+ */
+final class ProxyJdbc {
+
+    /** Trata uma chamada feita ao proxy. */
+    interface Chamada {
+
+        Object invocar(Method metodo, Object[] argumentos) throws Throwable;
+    }
+
+    /** Embrulha um comando criado pela conexao; {@code sql} e o do prepare, ou null. */
+    interface Embrulho {
+
+        Object embrulhar(Class<?> tipo, Statement comando, String sql) throws Throwable;
+    }
+
+    private ProxyJdbc() {
+    }
+
+    static Object proxy(Class<?> tipo, Chamada chamada) {
+        return Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo },
+                (proxy, metodo, argumentos) -> metodo.getName().equals("equals") && argumentos.length == 1
+                        ? proxy == argumentos[0]
+                        : chamada.invocar(metodo, argumentos));
+    }
+
+    static Object invocar(Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(alvo, argumentos);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Invoca o metodo na conexao e, se ele criou um comando (createStatement,
+     * prepareStatement, prepareCall), devolve o comando embrulhado.
+     */
+    static Object invocarConexao(Object alvo, Method metodo, Object[] argumentos, Embrulho embrulho)
+            throws Throwable {
+        Object resultado = invocar(alvo, metodo, argumentos);
+        if (resultado instanceof Statement comando
+                && (metodo.getName().startsWith("prepare") || metodo.getName().equals("createStatement"))) {
+            String sql = argumentos != null && argumentos[0] instanceof String texto ? texto : null;
+            return embrulho.embrulhar(metodo.getReturnType(), comando, sql);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,36 @@
+package com.gasparelli.doolt.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource principal com a divisao em shards ligada: sem bucket na thread
+ * as conexoes sao do banco principal; com bucket, do arquivo dele, aberto na
+ * hora se preciso. O Hibernate e o JdbcTemplate pegam a conexao no inicio da
+ * transacao, entao o escopo tem que estar definido antes dela.
+ */
+public class RoteadorShards extends AbstractRoutingDataSource {
+
+    private final Shards shards;
+
+    public RoteadorShards(DataSource principal, Shards shards) {
+        this.shards = shards;
+        setDefaultTargetDataSource(principal);
+        setTargetDataSources(Map.of());
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Shards.atual();
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        Integer bucket = Shards.atual();
+        return bucket == null ? getResolvedDefaultDataSource() : shards.fonte(bucket);
+    }
+}
@@ -0,0 +1,276 @@
+package com.gasparelli.doolt.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * SQLite em modo WAL: uma unica conexao de escrita (o SQLite so aceita um
+ * escritor por vez) e um pool de conexoes somente leitura que rodam em paralelo.
+ * Transacoes {@code readOnly} sao roteadas para o pool de leitura; as demais
+ * usam a conexao de escrita e ficam enfileiradas no Hikari em vez de disputar
+ * o lock do arquivo.
+ *
+ * As conexoes sao abertas com {@link EsperaLockSQLite} (mede a espera por
+ * lock) e, com {@code doolt.sql.metricas.habilitado}, cada pool passa por um
+ * {@link MetricasDataSource} que mede os comandos e loga os lentos.
+ *
+ * Com {@code doolt.sharding.buckets} maior que zero o DataSource principal e
+ * um {@link RoteadorShards}, e cada arquivo de shard ganha o mesmo par de
+ * pools, que soltam as conexoes depois de {@code doolt.sharding.ocioso-ms}.
+ *
+ * No perfil {@code memoria} os pools abrem o banco de trabalho do
+ * {@link BancoEmMemoria}, e a escrita passa pelo {@link DiarioDataSource}.
+ */
+@Configuration
+public class SQLiteDataSourceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SQLiteDataSourceConfig.class);
+
+    @Value("${doolt.sqlite.leitores:0}")
+    private int leitores;
+
+    @Value("${doolt.sqlite.synchronous:NORMAL}")
+    private String synchronous;
+
+    @Value("${doolt.sqlite.cache-size:-20000}")
+    private int cacheSize;
+
+    @Value("${doolt.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+
+    @Value("${doolt.sqlite.busy-timeout:5000}")
+    private int busyTimeout;
+
+    @Value("${doolt.jdbc.portao.habilitado:${spring.threads.virtual.enabled:false}}")
+    private boolean portaoHabilitado;
+
+    @Value("${doolt.sql.metricas.habilitado:true}")
+    private boolean metricasHabilitadas;
+
+    @Value("${doolt.sql.lento-ms:200}")
+    private long lentoMs;
+
+    @Value("${doolt.sharding.buckets:0}")
+    private int buckets;
+
+    @Value("${doolt.sharding.abertos:32}")
+    private int abertos;
+
+    @Value("${doolt.sharding.diretorio:}")
+    private String diretorio;
+
+    @Value("${doolt.sharding.ocioso-ms:60000}")
+    private long ociosoMs;
+
+    @Value("${doolt.memoria.habilitado:false}")
+    private boolean memoriaHabilitada;
+
+    @Value("${doolt.memoria.diretorio:}")
+    private String diretorioMemoria;
+
+    @Value("${doolt.memoria.tmpfs:}")
+    private String tmpfs;
+
+    @Value("${doolt.memoria.diario.forcar:false}")
+    private boolean forcarDiario;
+
+    @Value("${doolt.memoria.diario.bloco-mb:64}")
+    private int blocoDiarioMb;
+
+    @Value("${doolt.memoria.snapshot.intervalo-min:15}")
+    private long intervaloSnapshotMin;
+
+    @Value("${doolt.memoria.snapshot.diario-mb:256}")
+    private long diarioMaximoMb;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    /** Fecha depois dos pools, que dependem dele, para o snapshot final nao concorrer com escritas. */
+    @Bean(destroyMethod = "close")
+    public BancoEmMemoria bancoEmMemoria(DataSourceProperties properties) {
+        if (!memoriaHabilitada) {
+            return BancoEmMemoria.desligado();
+        }
+        Path origem = arquivo(properties.determineUrl()).toAbsolutePath();
+        String nome = origem.getFileName().toString();
+        Path pasta = diretorioMemoria.isBlank()
+                ? origem.resolveSibling(nome.replaceFirst("\\.[^.]*$", "") + "-memoria")
+                : Path.of(diretorioMemoria);
+        return new BancoEmMemoria(origem, pasta, BancoEmMemoria.pastaTmpfs(tmpfs), blocoDiarioMb << 20, forcarDiario,
+                Duration.ofMinutes(intervaloSnapshotMin), diarioMaximoMb << 20);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource escritaDataSource(DataSourceProperties properties, BancoEmMemoria memoria) {
+        String url = memoria.ativo() ? memoria.url() : properties.determineUrl();
+        return new HikariDataSource(escrita(url, "doolt-escrita", "doolt-escrita"));
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource leituraDataSource(DataSourceProperties properties, BancoEmMemoria memoria) {
+        String url = memoria.ativo() ? memoria.url() : properties.determineUrl();
+        return new HikariDataSource(leitura(url, "doolt-leitura", "doolt-leitura"));
+    }
+
+    /** Os pools de shard dividem as metricas pelo nome do tipo, nao por arquivo. */
+    @Bean(destroyMethod = "close")
+    public Shards shards(DataSourceProperties properties, @Qualifier("leituraDataSource") HikariDataSource leitura) {
+        Path principal = buckets > 0 ? arquivo(properties.determineUrl()).toAbsolutePath() : null;
+        Path pasta = diretorio.isBlank() && principal != null ? principal.getParent() : Path.of(diretorio);
+        return new Shards(buckets, abertos, principal, pasta, (url, bucket) -> {
+            HikariConfig configEscrita = escrita(url, "doolt-escrita-shard-" + bucket, "doolt-escrita-shards");
+            HikariConfig configLeitura = leitura(url, "doolt-leitura-shard-" + bucket, "doolt-leitura-shards");
+            for (HikariConfig config : new HikariConfig[] { configEscrita, configLeitura }) {
+                config.setMinimumIdle(0);
+                config.setIdleTimeout(ociosoMs);
+            }
+            HikariDataSource poolEscrita = new HikariDataSource(configEscrita);
+            HikariDataSource poolLeitura = new HikariDataSource(configLeitura);
+            return new Shards.Pools(poolEscrita, poolLeitura,
+                    proxy(poolEscrita, poolEscrita, poolLeitura, "-shards"));
+        }, leitura);
+    }
+
+    /*
+     * Uma consulta em cache nao guarda de qual arquivo veio o resultado (os
+     * findByTitulo nao filtram por usuario), entao com shards o cache de
+     * consultas fica desligado; o de entidades continua, ja que os ids nao se
+     * repetem entre arquivos.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer cacheDeConsultasShards(Shards shards) {
+        return propriedades -> {
+            if (shards.ativo()) {
+                propriedades.put(AvailableSettings.USE_QUERY_CACHE, false);
+            }
+        };
+    }
+
+    /*
+     * Com ddl-auto=validate (perfil rapido) um banco sem tabelas nao passaria
+     * na validacao: na primeira subida o Hibernate cria o esquema como no
+     * update. Um banco com tabelas e so validado.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer esquemaBancoNovo(@Qualifier("escritaDataSource") HikariDataSource escrita) {
+        return propriedades -> {
+            if (!"validate".equals(propriedades.get(AvailableSettings.HBM2DDL_AUTO))) {
+                return;
+            }
+            Boolean vazio = new JdbcTemplate(escrita).queryForObject(
+                    "select not exists (select 1 from sqlite_master where type = 'table')", Boolean.class);
+            if (Boolean.TRUE.equals(vazio)) {
+                log.info("Banco sem tabelas: esquema criado pelo Hibernate em vez de validado");
+                propriedades.put(AvailableSettings.HBM2DDL_AUTO, "update");
+            }
+        };
+    }
+
+    /**
+     * Com o portao ligado (padrao quando {@code spring.threads.virtual.enabled}
+     * esta ativo) cada pool fica atras de um semaforo do tamanho dele.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("escritaDataSource") HikariDataSource escrita,
+            @Qualifier("leituraDataSource") HikariDataSource leitura, Shards shards, BancoEmMemoria memoria) {
+        if (shards.ativo() && memoria.ativo()) {
+            throw new IllegalStateException("doolt.sharding.buckets nao pode ser usado com o perfil memoria");
+        }
+        DataSource principal = proxy(memoria.escrita(escrita), escrita, leitura, "");
+        return shards.ativo() ? new RoteadorShards(principal, shards) : principal;
+    }
+
+    private DataSource proxy(DataSource escrita, HikariDataSource poolEscrita, HikariDataSource leitura,
+            String sufixo) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(
+                portao(metricas(escrita, "doolt-escrita" + sufixo), poolEscrita));
+        proxy.setReadOnlyDataSource(portao(metricas(leitura, "doolt-leitura" + sufixo), leitura));
+        return proxy;
+    }
+
+    private DataSource metricas(DataSource fonte, String nome) {
+        if (!metricasHabilitadas) {
+            return fonte;
+        }
+        return new MetricasDataSource(fonte, nome, registro, lentoMs);
+    }
+
+    private DataSource portao(DataSource fonte, HikariDataSource pool) {
+        if (!portaoHabilitado) {
+            return fonte;
+        }
+        return new PortaoDataSource(fonte, pool.getMaximumPoolSize(), pool.getConnectionTimeout());
+    }
+
+    private Properties pragmas() {
+        Properties pragmas = new Properties();
+        pragmas.setProperty(SQLiteConfig.Pragma.JOURNAL_MODE.pragmaName, "WAL");
+        pragmas.setProperty(SQLiteConfig.Pragma.SYNCHRONOUS.pragmaName, synchronous);
+        pragmas.setProperty(SQLiteConfig.Pragma.CACHE_SIZE.pragmaName, String.valueOf(cacheSize));
+        pragmas.setProperty(SQLiteConfig.Pragma.MMAP_SIZE.pragmaName, String.valueOf(mmapSize));
+        pragmas.setProperty(SQLiteConfig.Pragma.BUSY_TIMEOUT.pragmaName, String.valueOf(busyTimeout));
+        return pragmas;
+    }
+
+    private HikariConfig escrita(String url, String nome, String medidor) {
+        Properties pragmas = pragmas();
+        pragmas.setProperty(SQLiteConfig.Pragma.TRANSACTION_MODE.pragmaName, "IMMEDIATE");
+        HikariConfig config = configuracaoBase(url, nome, medidor, pragmas);
+        config.setMaximumPoolSize(1);
+        return config;
+    }
+
+    private HikariConfig leitura(String url, String nome, String medidor) {
+        Properties pragmas = pragmas();
+        pragmas.setProperty(SQLiteConfig.Pragma.JDBC_EXPLICIT_READONLY.pragmaName, "true");
+        HikariConfig config = configuracaoBase(url, nome, medidor, pragmas);
+        config.setMaximumPoolSize(leitores > 0 ? leitores : Runtime.getRuntime().availableProcessors());
+        config.setReadOnly(true);
+        return config;
+    }
+
+    private HikariConfig configuracaoBase(String url, String nome, String medidor, Properties pragmas) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(nome);
+        config.setDataSource(EsperaLockSQLite.fonte(url, pragmas, busyTimeout, registro, medidor));
+        return config;
+    }
+
+    /** Caminho do arquivo em {@code jdbc:sqlite:caminho[?parametros]}. */
+    private static Path arquivo(String url) {
+        String caminho = url.substring(url.indexOf("sqlite:") + "sqlite:".length());
+        int parametros = caminho.indexOf('?');
+        if (parametros >= 0) {
+            caminho = caminho.substring(0, parametros);
+        }
+        if (caminho.startsWith("file:")) {
+            caminho = caminho.substring("file:".length());
+        }
+        return Path.of(caminho);
+    }
+}
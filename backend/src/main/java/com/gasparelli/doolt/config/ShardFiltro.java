@@ -0,0 +1,82 @@
+package com.gasparelli.doolt.config;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.gasparelli.doolt.dto.Sessao;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Com a divisao em shards ligada, poe a requisicao no bucket do usuario: o
+ * dono do token, o parametro {@code usuario} ou o id em
+ * {@code /usuario/{id}/resumo|export|import}. Cadastro, login, perfil e
+ * referencias ficam no banco principal; as demais rotas sem usuario dao 400.
+ * Roda depois do {@link AutenticacaoFiltro}, que ja conferiu o usuario.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class ShardFiltro extends OncePerRequestFilter {
+
+    private static final Pattern DADOS_USUARIO = Pattern.compile("/usuario/(\\d+)/(resumo|export|import)(/.*)?");
+
+    @Autowired
+    private Shards shards;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher dados = DADOS_USUARIO.matcher(caminho);
+        if (!dados.matches() && principal(caminho)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Integer usuario;
+        try {
+            usuario = usuario(request, dados);
+        } catch (NumberFormatException e) {
+            usuario = null;
+        }
+        if (usuario == null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    "Informe o usuario (parametro usuario ou token) para localizar o shard");
+            return;
+        }
+        try (Shards.Escopo escopo = shards.usar(usuario)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !shards.ativo();
+    }
+
+    private static Integer usuario(HttpServletRequest request, Matcher dados) {
+        if (request.getAttribute(AutenticacaoFiltro.SESSAO) instanceof Sessao sessao) {
+            return Math.toIntExact(sessao.idUsuario());
+        }
+        String parametro = request.getParameter("usuario");
+        if (parametro != null) {
+            return Integer.valueOf(parametro);
+        }
+        return dados.matches() ? Integer.valueOf(dados.group(1)) : null;
+    }
+
+    private static boolean principal(String caminho) {
+        return caminho.startsWith("/usuario") || caminho.startsWith("/referencias")
+                || caminho.startsWith("/actuator") || caminho.equals("/error");
+    }
+}
@@ -0,0 +1,261 @@
+package com.gasparelli.doolt.config;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Divisao opcional dos dados de tarefas, eventos, metas e notas em um arquivo
+ * SQLite por bucket de usuario ({@code id_usuario_fk} modulo
+ * {@code doolt.sharding.buckets}). Cada arquivo tem a sua conexao de escrita,
+ * entao usuarios de buckets diferentes gravam em paralelo; usuarios, tokens e
+ * referencias ficam no banco principal. O bucket da thread ({@link #escopo})
+ * decide para onde o {@link RoteadorShards} manda as conexoes.
+ *
+ * Os pools de um arquivo sao abertos no primeiro uso, depois de
+ * {@link EsquemaShards} acertar o esquema. Passando de
+ * {@code doolt.sharding.abertos}, o usado ha mais tempo sai do mapa e e fechado
+ * quando nao tiver mais conexoes em uso.
+ */
+public class Shards implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Shards.class);
+
+    /** Os ids de cada bucket comecam em {@code (bucket + 1) << BITS_ID}, abaixo de 2^53 (JSON). */
+    static final int BITS_ID = 40;
+
+    public static final int MAXIMO_BUCKETS = (1 << (53 - BITS_ID)) - 1;
+
+    private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+
+    private static final long ESPERA_FECHAMENTO_NS = TimeUnit.SECONDS.toNanos(30);
+
+    private final int buckets;
+
+    private final int maximoAbertos;
+
+    private final Path arquivoPrincipal;
+
+    private final Path diretorio;
+
+    private final BiFunction<String, Integer, Pools> fabrica;
+
+    private final JdbcTemplate principal;
+
+    private final Map<Integer, Aberto> abertos = new ConcurrentHashMap<>();
+
+    private final List<Aberto> despejados = new ArrayList<>();
+
+    Shards(int buckets, int maximoAbertos, Path arquivoPrincipal, Path diretorio,
+            BiFunction<String, Integer, Pools> fabrica, DataSource principal) {
+        if (buckets < 0 || buckets > MAXIMO_BUCKETS) {
+            throw new IllegalArgumentException("doolt.sharding.buckets deve estar entre 0 e " + MAXIMO_BUCKETS);
+        }
+        this.buckets = buckets;
+        this.maximoAbertos = Math.max(1, maximoAbertos);
+        this.arquivoPrincipal = arquivoPrincipal;
+        this.diretorio = diretorio;
+        this.fabrica = fabrica;
+        this.principal = new JdbcTemplate(principal);
+    }
+
+    /** Bucket da thread atual, ou null para o banco principal. */
+    public static Integer atual() {
+        return ATUAL.get();
+    }
+
+    /** Ate o {@code close} as conexoes da thread vao para o bucket (null = principal). */
+    public static Escopo escopo(Integer bucket) {
+        Escopo escopo = new Escopo(ATUAL.get());
+        if (bucket == null) {
+            ATUAL.remove();
+        } else {
+            ATUAL.set(bucket);
+        }
+        return escopo;
+    }
+
+    public static Escopo principal() {
+        return escopo(null);
+    }
+
+    public boolean ativo() {
+        return buckets > 0;
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    /** Bucket do usuario, ou null com a divisao desligada. */
+    public Integer bucket(int usuario) {
+        return ativo() ? Math.floorMod(usuario, buckets) : null;
+    }
+
+    public Escopo usar(int usuario) {
+        return escopo(bucket(usuario));
+    }
+
+    /**
+     * Roda a tarefa uma vez para cada arquivo que ja existe, com o escopo do
+     * bucket; com a divisao desligada, uma vez no banco principal.
+     */
+    public void emCada(Runnable tarefa) {
+        if (!ativo()) {
+            try (Escopo escopo = principal()) {
+                tarefa.run();
+            }
+            return;
+        }
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (abertos.containsKey(bucket) || Files.exists(arquivo(bucket))) {
+                try (Escopo escopo = escopo(bucket)) {
+                    tarefa.run();
+                }
+            }
+        }
+    }
+
+    Path arquivoPrincipal() {
+        return arquivoPrincipal;
+    }
+
+    Path arquivo(int bucket) {
+        String nome = arquivoPrincipal.getFileName().toString();
+        int ponto = nome.lastIndexOf('.');
+        String base = ponto > 0 ? nome.substring(0, ponto) : nome;
+        return diretorio.resolve(base + "-shard-" + bucket + ".db");
+    }
+
+    /** Conexoes do bucket: escrita, ou leitura em transacoes {@code readOnly}. */
+    DataSource fonte(int bucket) {
+        Aberto aberto = abertos.get(bucket);
+        if (aberto == null) {
+            aberto = abrir(bucket);
+        }
+        aberto.ultimoUso = System.nanoTime();
+        return aberto.pools.fonte();
+    }
+
+    private synchronized Aberto abrir(int bucket) {
+        Aberto aberto = abertos.get(bucket);
+        if (aberto != null) {
+            return aberto;
+        }
+        fecharOciosos();
+        Path arquivo = arquivo(bucket);
+        Pools pools = fabrica.apply("jdbc:sqlite:" + arquivo, bucket);
+        try {
+            EsquemaShards.preparar(principal, pools.escrita(), bucket);
+        } catch (RuntimeException e) {
+            pools.close();
+            throw e;
+        }
+        aberto = new Aberto(pools);
+        abertos.put(bucket, aberto);
+        log.debug("Shard {} aberto ({})", bucket, arquivo);
+        if (abertos.size() > maximoAbertos) {
+            despejarMaisAntigo(bucket);
+        }
+        return aberto;
+    }
+
+    private void despejarMaisAntigo(int novo) {
+        Map.Entry<Integer, Aberto> antigo = null;
+        for (Map.Entry<Integer, Aberto> entrada : abertos.entrySet()) {
+            if (entrada.getKey() != novo
+                    && (antigo == null || entrada.getValue().ultimoUso < antigo.getValue().ultimoUso)) {
+                antigo = entrada;
+            }
+        }
+        if (antigo != null && abertos.remove(antigo.getKey(), antigo.getValue())) {
+            antigo.getValue().ultimoUso = System.nanoTime();
+            despejados.add(antigo.getValue());
+        }
+    }
+
+    /*
+     * Uma thread pode ter pego o DataSource logo antes do despejo, por isso o
+     * pool so fecha depois de uma espera e sem conexoes em uso ou aguardadas.
+     */
+    private void fecharOciosos() {
+        long agora = System.nanoTime();
+        despejados.removeIf(aberto -> {
+            if (agora - aberto.ultimoUso < ESPERA_FECHAMENTO_NS || !aberto.pools.ocioso()) {
+                return false;
+            }
+            aberto.pools.close();
+            return true;
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        abertos.values().forEach(aberto -> aberto.pools.close());
+        abertos.clear();
+        despejados.forEach(aberto -> aberto.pools.close());
+        despejados.clear();
+    }
+
+    /** Restaura o bucket que a thread tinha antes. */
+    public static final class Escopo implements AutoCloseable {
+
+        private final Integer anterior;
+
+        private Escopo(Integer anterior) {
+            this.anterior = anterior;
+        }
+
+        @Override
+        public void close() {
+            if (anterior == null) {
+                ATUAL.remove();
+            } else {
+                ATUAL.set(anterior);
+            }
+        }
+    }
+
+    /** Pool de escrita, pool de leitura e o proxy que escolhe entre eles. */
+    record Pools(HikariDataSource escrita, HikariDataSource leitura, DataSource fonte) {
+
+        boolean ocioso() {
+            return ocioso(escrita) && ocioso(leitura);
+        }
+
+        void close() {
+            escrita.close();
+            leitura.close();
+        }
+
+        private static boolean ocioso(HikariDataSource pool) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean == null || bean.getActiveConnections() == 0 && bean.getThreadsAwaitingConnection() == 0;
+        }
+    }
+
+    private static final class Aberto {
+
+        private final Pools pools;
+
+        private volatile long ultimoUso = System.nanoTime();
+
+        private Aberto(Pools pools) {
+            this.pools = pools;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gasparelli.doolt.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.gasparelli.doolt.services.LembretesServices;
+import com.gasparelli.doolt.services.PurgaExclusoesServices;
+
+/**
+ * Perfil {@code rapido} ({@code spring.main.lazy-initialization}): controllers,
+ * services e repositorios so sao criados no primeiro uso. Ficam de fora os
+ * beans que precisam rodar na subida mesmo sem nenhuma requisicao: as
+ * migracoes (e a divisao em shards), os lembretes e a purga agendada.
+ */
+@Configuration
+public class SubidaRapidaConfig {
+
+    /* Estatico: o filtro e lido antes de os beans de configuracao existirem. */
+    @Bean
+    static LazyInitializationExcludeFilter beansDaSubida() {
+        return LazyInitializationExcludeFilter.forBeanTypes(MigracoesSQLite.class, LembretesServices.class,
+                PurgaExclusoesServices.class);
+    }
+}
@@ -1,17 +1,29 @@
 package com.gasparelli.doolt.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.gasparelli.doolt.dto.Disponibilidade;
+import com.gasparelli.doolt.dto.EventoResumo;
+import com.gasparelli.doolt.dto.Exclusao;
 import com.gasparelli.doolt.model.EventosEntity;
 import com.gasparelli.doolt.services.EventosServices;
+import com.gasparelli.doolt.util.Datas;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/eventos")
@@ -26,15 +38,101 @@ public class EventosController {
         return ResponseEntity.ok(salvo);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<EventosEntity>> salvarEventosEmLote(@RequestBody List<EventosEntity> eventos) {
+        List<EventosEntity> salvos = eventosServices.salvarEventosEmLote(eventos);
+        return ResponseEntity.ok(salvos);
+    }
+
+    /** Altera so os campos enviados no corpo; {@code usuario} precisa ser o dono. */
+    @PatchMapping("/{id}")
+    public ResponseEntity<EventosEntity> atualizarEvento(@PathVariable Long id, @RequestParam int usuario,
+            @RequestBody Map<String, Object> campos) {
+        EventosEntity atualizado;
+        try {
+            atualizado = eventosServices.atualizarEvento(id, usuario, campos);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (atualizado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(atualizado);
+    }
+
+    @GetMapping
+    public List<EventosEntity> listarEventos(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return eventosServices.listarEventos(usuario, after, limit);
+    }
+
+    /** Mesma paginacao, so com os campos que as listas mostram. */
+    @GetMapping("/resumo")
+    public List<EventoResumo> listarEventosResumo(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return eventosServices.listarEventosResumo(usuario, after, limit);
+    }
+
+    @GetMapping("/intervalo")
+    public List<EventosEntity> listarEventosNoIntervalo(@RequestParam String inicio, @RequestParam String fim,
+            @RequestParam int usuario) {
+        return eventosServices.listarEventosNoIntervalo(usuario, inicioDaJanela(inicio), fimDaJanela(fim));
+    }
+
+    @GetMapping("/intervalo/resumo")
+    public List<EventoResumo> listarEventosResumoNoIntervalo(@RequestParam String inicio, @RequestParam String fim,
+            @RequestParam int usuario) {
+        return eventosServices.listarEventosResumoNoIntervalo(usuario, inicioDaJanela(inicio), fimDaJanela(fim));
+    }
+
+    @GetMapping("/disponibilidade")
+    public Disponibilidade disponibilidade(@RequestParam String inicio, @RequestParam String fim,
+            @RequestParam int usuario) {
+        return eventosServices.disponibilidade(usuario, inicioDaJanela(inicio), fimDaJanela(fim));
+    }
+
     @GetMapping("/eventos/{titulo}")
     public EventosEntity buscarEvento(@PathVariable String titulo) {
         return eventosServices.buscarEvento(titulo);
     }
 
+    /** {@code usuario} precisa ser o dono; o evento de outro usuario responde como inexistente. */
     @DeleteMapping("/eventos/{id}")
-    public ResponseEntity<Void> deletarEvento(@PathVariable Long id) {
-        eventosServices.deletarEventoPorID(id);
+    public ResponseEntity<Void> deletarEvento(@PathVariable Long id, @RequestParam int usuario) {
+        if (!eventosServices.deletarEventoPorID(usuario, id)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
     }
-}
 
+    /** Exclui de uma vez os ids informados que forem do usuario. */
+    @DeleteMapping
+    public Exclusao deletarEventos(@RequestParam int usuario, @RequestParam List<Long> ids) {
+        return eventosServices.deletarEventos(usuario, ids);
+    }
+
+    /** Eventos que terminaram ate {@code ate} (padrao: agora); uma data sem hora inclui o dia inteiro. */
+    @DeleteMapping("/passados")
+    public Exclusao deletarEventosPassados(@RequestParam int usuario, @RequestParam(required = false) String ate) {
+        return eventosServices.deletarEventosPassados(usuario, ate != null ? fimDaJanela(ate) : LocalDateTime.now());
+    }
+
+    private static LocalDateTime inicioDaJanela(String inicio) {
+        LocalDateTime dataHora = Datas.dataHora(inicio);
+        if (dataHora == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "inicio invalido: " + inicio);
+        }
+        return dataHora;
+    }
+
+    /** Uma data sem hora no fim da janela inclui o dia inteiro. */
+    private static LocalDateTime fimDaJanela(String fim) {
+        LocalDateTime dataHora = Datas.dataHora(fim);
+        if (dataHora == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fim invalido: " + fim);
+        }
+        return fim.trim().length() <= 10 ? dataHora.plusDays(1) : dataHora;
+    }
+}
@@ -1,18 +1,28 @@
 package com.gasparelli.doolt.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.MetaResumo;
+import com.gasparelli.doolt.dto.ProgressoMeta;
 import com.gasparelli.doolt.model.MetasEntity;
 import com.gasparelli.doolt.services.MetasServices;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/metas")
 public class MetasController {
@@ -26,15 +36,75 @@ public class MetasController {
         return ResponseEntity.ok(salvo);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<MetasEntity>> salvarMetasEmLote(@RequestBody List<MetasEntity> metas) {
+        List<MetasEntity> salvos = metasServices.salvarMetasEmLote(metas);
+        return ResponseEntity.ok(salvos);
+    }
+
+    /** Altera so os campos enviados no corpo; {@code usuario} precisa ser o dono. */
+    @PatchMapping("/{id}")
+    public ResponseEntity<MetasEntity> atualizarMeta(@PathVariable Long id, @RequestParam int usuario,
+            @RequestBody Map<String, Object> campos) {
+        MetasEntity atualizado;
+        try {
+            atualizado = metasServices.atualizarMeta(id, usuario, campos);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (atualizado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(atualizado);
+    }
+
+    /**
+     * O incremento e gravado em segundo plano; a resposta traz o total ainda
+     * pendente. {@code usuario} precisa ser o dono.
+     */
+    @PostMapping("/{id}/progresso")
+    public ResponseEntity<ProgressoMeta> registrarProgresso(@PathVariable Long id, @RequestParam int usuario,
+            @RequestParam(defaultValue = "1") long delta) {
+        Long pendente = metasServices.registrarProgresso(id, usuario, delta);
+        if (pendente == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(new ProgressoMeta(id, pendente));
+    }
+
+    @GetMapping
+    public List<MetasEntity> listarMetas(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return metasServices.listarMetas(usuario, after, limit);
+    }
+
+    /** Mesma paginacao, so com os campos que as listas mostram. */
+    @GetMapping("/resumo")
+    public List<MetaResumo> listarMetasResumo(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return metasServices.listarMetasResumo(usuario, after, limit);
+    }
+
     @GetMapping("/metas/{titulo}")
     public MetasEntity buscarMeta(@PathVariable String titulo) {
         return metasServices.buscarMeta(titulo);
     }
 
+    /** {@code usuario} precisa ser o dono; a meta de outro usuario responde como inexistente. */
     @DeleteMapping("/metas/{id}")
-    public ResponseEntity<Void> deletarMeta(@PathVariable Long id) {
-        metasServices.deletarMetaPorID(id);
+    public ResponseEntity<Void> deletarMeta(@PathVariable Long id, @RequestParam int usuario) {
+        if (!metasServices.deletarMetaPorID(usuario, id)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
     }
+
+    /** Exclui de uma vez os ids informados que forem do usuario. */
+    @DeleteMapping
+    public Exclusao deletarMetas(@RequestParam int usuario, @RequestParam List<Long> ids) {
+        return metasServices.deletarMetas(usuario, ids);
+    }
 }
 
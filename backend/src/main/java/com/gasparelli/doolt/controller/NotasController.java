@@ -1,18 +1,29 @@
 package com.gasparelli.doolt.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.NotaBusca;
+import com.gasparelli.doolt.dto.NotaResumo;
+import com.gasparelli.doolt.dto.TagFaceta;
 import com.gasparelli.doolt.model.NotasEntity;
 import com.gasparelli.doolt.services.NotasServices;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/notas")
 public class NotasController {
@@ -26,15 +37,81 @@ public class NotasController {
         return ResponseEntity.ok(salvo);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<NotasEntity>> salvarNotasEmLote(@RequestBody List<NotasEntity> notas) {
+        List<NotasEntity> salvos = notasServices.salvarNotasEmLote(notas);
+        return ResponseEntity.ok(salvos);
+    }
+
+    /** Altera so os campos enviados no corpo; {@code usuario} precisa ser o dono. */
+    @PatchMapping("/{id}")
+    public ResponseEntity<NotasEntity> atualizarNota(@PathVariable Long id, @RequestParam int usuario,
+            @RequestBody Map<String, Object> campos) {
+        NotasEntity atualizado;
+        try {
+            atualizado = notasServices.atualizarNota(id, usuario, campos);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (atualizado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(atualizado);
+    }
+
+    @GetMapping
+    public List<NotasEntity> listarNotas(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return notasServices.listarNotas(usuario, after, limit);
+    }
+
+    /** Mesma paginacao, so com os campos que as listas mostram. */
+    @GetMapping("/resumo")
+    public List<NotaResumo> listarNotasResumo(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return notasServices.listarNotasResumo(usuario, after, limit);
+    }
+
+    @GetMapping("/busca")
+    public List<NotaBusca> buscarNotas(@RequestParam String q, @RequestParam int usuario,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+        return notasServices.buscarNotas(usuario, q, limit, offset);
+    }
+
+    @GetMapping("/tags")
+    public List<TagFaceta> listarTags(@RequestParam int usuario) {
+        return notasServices.listarTags(usuario);
+    }
+
+    @GetMapping("/por-tags")
+    public List<NotasEntity> listarNotasPorTags(@RequestParam int usuario, @RequestParam List<String> tags,
+            @RequestParam(defaultValue = "and") String modo,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return notasServices.listarNotasPorTags(usuario, tags, !"or".equalsIgnoreCase(modo), after, limit);
+    }
+
     @GetMapping("/notas/{titulo}")
     public NotasEntity buscarNota(@PathVariable String titulo) {
         return notasServices.buscarNota(titulo);
     }
 
+    /** {@code usuario} precisa ser o dono; a nota de outro usuario responde como inexistente. */
     @DeleteMapping("/notas/{id}")
-    public ResponseEntity<Void> deletarNota(@PathVariable Long id) {
-        notasServices.deletarNotaPorID(id);
+    public ResponseEntity<Void> deletarNota(@PathVariable Long id, @RequestParam int usuario) {
+        if (!notasServices.deletarNotaPorID(usuario, id)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
     }
+
+    /** Exclui de uma vez os ids informados que forem do usuario. */
+    @DeleteMapping
+    public Exclusao deletarNotas(@RequestParam int usuario, @RequestParam List<Long> ids) {
+        return notasServices.deletarNotas(usuario, ids);
+    }
 }
 
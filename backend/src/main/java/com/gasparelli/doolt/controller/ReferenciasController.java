@@ -0,0 +1,34 @@
+package com.gasparelli.doolt.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.gasparelli.doolt.services.ReferenciasServices;
+import com.gasparelli.doolt.services.ReferenciasServices.ReferenciasJson;
+
+@RestController
+@RequestMapping("/referencias")
+public class ReferenciasController {
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @GetMapping
+    public ResponseEntity<byte[]> listarReferencias(WebRequest request) {
+        ReferenciasJson referencias = referenciasServices.json();
+        if (request.checkNotModified(referencias.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(referencias.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(referencias.corpo());
+    }
+}
@@ -0,0 +1,25 @@
+package com.gasparelli.doolt.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gasparelli.doolt.dto.Sincronizacao;
+import com.gasparelli.doolt.services.SincronizacaoServices;
+
+@RestController
+@RequestMapping("/sync")
+public class SincronizacaoController {
+
+    @Autowired
+    private SincronizacaoServices sincronizacaoServices;
+
+    @GetMapping
+    public Sincronizacao sincronizar(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") long desde,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return sincronizacaoServices.alteracoes(usuario, desde, limit);
+    }
+}
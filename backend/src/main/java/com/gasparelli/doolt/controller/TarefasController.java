@@ -1,18 +1,28 @@
 package com.gasparelli.doolt.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.Lembrete;
+import com.gasparelli.doolt.dto.TarefaResumo;
 import com.gasparelli.doolt.model.TarefasEntity;
 import com.gasparelli.doolt.services.TarefasServices;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/tarefas")
 public class TarefasController {
@@ -26,15 +36,72 @@ public class TarefasController {
         return ResponseEntity.ok(salvo);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<TarefasEntity>> salvarTarefasEmLote(@RequestBody List<TarefasEntity> tarefas) {
+        List<TarefasEntity> salvos = tarefasServices.salvarTarefasEmLote(tarefas);
+        return ResponseEntity.ok(salvos);
+    }
+
+    /** Altera so os campos enviados no corpo; {@code usuario} precisa ser o dono. */
+    @PatchMapping("/{id}")
+    public ResponseEntity<TarefasEntity> atualizarTarefa(@PathVariable Long id, @RequestParam int usuario,
+            @RequestBody Map<String, Object> campos) {
+        TarefasEntity atualizado;
+        try {
+            atualizado = tarefasServices.atualizarTarefa(id, usuario, campos);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (atualizado == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(atualizado);
+    }
+
+    @GetMapping
+    public List<TarefasEntity> listarTarefas(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return tarefasServices.listarTarefas(usuario, after, limit);
+    }
+
+    /** Mesma paginacao, so com os campos que as listas mostram. */
+    @GetMapping("/resumo")
+    public List<TarefaResumo> listarTarefasResumo(@RequestParam int usuario,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return tarefasServices.listarTarefasResumo(usuario, after, limit);
+    }
+
+    /** Lembretes de vencimento disparados desde a ultima leitura. */
+    @GetMapping("/lembretes")
+    public List<Lembrete> consumirLembretes(@RequestParam int usuario) {
+        return tarefasServices.consumirLembretes(usuario);
+    }
+
     @GetMapping("/tarefas/{titulo}")
     public TarefasEntity buscarTarefa(@PathVariable String titulo) {
         return tarefasServices.procurarTarefa(titulo);
     }
 
+    /** {@code usuario} precisa ser o dono; a tarefa de outro usuario responde como inexistente. */
     @DeleteMapping("/tarefas/{id}")
-    public ResponseEntity<Void> deletarTarefa(@PathVariable Long id) {
-        tarefasServices.deletarTarefaPorID(id);
+    public ResponseEntity<Void> deletarTarefa(@PathVariable Long id, @RequestParam int usuario) {
+        if (!tarefasServices.deletarTarefaPorID(usuario, id)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.noContent().build();
     }
+
+    /** Exclui de uma vez os ids informados que forem do usuario. */
+    @DeleteMapping
+    public Exclusao deletarTarefas(@RequestParam int usuario, @RequestParam List<Long> ids) {
+        return tarefasServices.deletarTarefas(usuario, ids);
+    }
+
+    @DeleteMapping("/feitas")
+    public Exclusao deletarTarefasFeitas(@RequestParam int usuario) {
+        return tarefasServices.deletarTarefasFeitas(usuario);
+    }
 }
 
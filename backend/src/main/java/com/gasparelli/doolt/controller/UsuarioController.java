@@ -1,18 +1,53 @@
 package com.gasparelli.doolt.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.gasparelli.doolt.config.AutenticacaoFiltro;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gasparelli.doolt.dto.ErroImportacao;
+import com.gasparelli.doolt.dto.Login;
+import com.gasparelli.doolt.dto.RelatorioImportacao;
+import com.gasparelli.doolt.dto.Resumo;
+import com.gasparelli.doolt.dto.Sessao;
+import com.gasparelli.doolt.dto.TokenAcesso;
+import com.gasparelli.doolt.dto.UsuarioPublico;
 import com.gasparelli.doolt.model.UsuarioEntity;
+import com.gasparelli.doolt.services.ExportacaoServices;
+import com.gasparelli.doolt.services.ImportacaoServices;
 import com.gasparelli.doolt.services.UsuarioServices;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 
 @RestController
 @RequestMapping("/usuario")
@@ -21,20 +56,192 @@ public class UsuarioController {
     @Autowired
     private UsuarioServices usuarioServices;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping
     public ResponseEntity<UsuarioEntity> registrarUsuario(@RequestBody UsuarioEntity usuario){
-        UsuarioEntity salvo = usuarioServices.salvarUsuario(usuario);
-        return ResponseEntity.ok(salvo);
+        try {
+            UsuarioEntity salvo = usuarioServices.salvarUsuario(usuario);
+            return ResponseEntity.ok(salvo);
+        } catch (DataAccessException e) {
+            if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLiteException sqlite
+                    && sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            throw e;
+        }
+    }
+
+    /** Perfil e senha so mudam com o token do proprio usuario. */
+    @PutMapping("/{id}")
+    public ResponseEntity<UsuarioEntity> atualizarUsuario(@PathVariable Long id, @RequestBody UsuarioEntity usuario,
+            @RequestAttribute(name = AutenticacaoFiltro.SESSAO, required = false) Sessao sessao) {
+        if (sessao == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (sessao.idUsuario() != id) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            UsuarioEntity salvo = usuarioServices.atualizarUsuario(id, usuario);
+            if (salvo == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(salvo);
+        } catch (DataAccessException e) {
+            if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLiteException sqlite
+                    && sqlite.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            throw e;
+        }
+    }
+
+    @PostMapping("/login")
+    public ResponseEntity<TokenAcesso> login(@RequestBody Login login) {
+        TokenAcesso token = usuarioServices.login(login.email(), login.senha());
+        if (token == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(token);
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestAttribute(name = AutenticacaoFiltro.SESSAO, required = false) Sessao sessao) {
+        if (sessao == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        usuarioServices.logout(sessao);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** Dono do token, sem consultar o banco. */
+    @GetMapping("/sessao")
+    public ResponseEntity<Sessao> sessao(
+            @RequestAttribute(name = AutenticacaoFiltro.SESSAO, required = false) Sessao sessao) {
+        if (sessao == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(sessao);
+    }
+
+    @GetMapping("/{id}/publico")
+    public ResponseEntity<UsuarioPublico> publico(@PathVariable Long id) {
+        UsuarioPublico usuario = usuarioServices.buscarPublico(id);
+        if (usuario == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(usuario);
+    }
+
+    @GetMapping("/{id}/resumo")
+    public Resumo resumo(@PathVariable int id) {
+        return usuarioServices.resumo(id);
+    }
+
+    /** Remonta o resumo do usuario a partir do banco (recuperacao). */
+    @PostMapping("/{id}/resumo/reconstruir")
+    public Resumo reconstruirResumo(@PathVariable int id) {
+        return usuarioServices.reconstruirResumo(id);
+    }
+
+    /**
+     * Todos os dados do usuario (tarefas, eventos, metas e notas), escritos
+     * enquanto sao lidos; comprimido com gzip quando o cliente aceita.
+     */
+    @GetMapping("/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportar(@PathVariable int id,
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String aceita) {
+        ExportacaoServices.Formato escolhido;
+        try {
+            escolhido = ExportacaoServices.Formato.valueOf(formato.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "formato deve ser ndjson ou csv");
+        }
+        boolean gzip = aceita != null && aceita.toLowerCase(Locale.ROOT).contains("gzip");
+        String extensao = escolhido == ExportacaoServices.Formato.CSV ? "csv" : "ndjson";
+        MediaType tipo = escolhido == ExportacaoServices.Formato.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson");
+
+        StreamingResponseBody corpo = saida -> {
+            if (gzip) {
+                try (GZIPOutputStream comprimida = new GZIPOutputStream(saida, 8192)) {
+                    usuarioServices.exportar(id, escolhido, comprimida);
+                }
+            } else {
+                usuarioServices.exportar(id, escolhido, saida);
+            }
+        };
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"doolt-usuario-" + id + "." + extensao + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return resposta.body(corpo);
+    }
+
+    /**
+     * Importa tarefas, eventos, metas e notas de um corpo NDJSON ou array JSON
+     * (aceita {@code Content-Encoding: gzip}). A resposta e NDJSON escrito
+     * durante a leitura: {@code {"erro":...}} para cada registro recusado,
+     * {@code {"progresso":...}} a cada lote gravado e {@code {"fim":...}}.
+     */
+    @PostMapping("/{id}/import")
+    public ResponseEntity<StreamingResponseBody> importar(@PathVariable int id, HttpServletRequest request)
+            throws IOException {
+        InputStream corpo = request.getInputStream();
+        InputStream entrada = "gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))
+                ? new GZIPInputStream(corpo, 8192)
+                : corpo;
+        StreamingResponseBody resposta = saida -> {
+            ImportacaoServices.Ouvinte ouvinte = new ImportacaoServices.Ouvinte() {
+
+                @Override
+                public void erro(ErroImportacao erro) throws IOException {
+                    linha(saida, "erro", erro);
+                }
+
+                @Override
+                public void progresso(RelatorioImportacao relatorio) throws IOException {
+                    linha(saida, "progresso", relatorio);
+                    saida.flush();
+                }
+            };
+            RelatorioImportacao fim = usuarioServices.importar(id, entrada, ouvinte);
+            linha(saida, "fim", fim);
+        };
+        return ResponseEntity.ok().contentType(new MediaType("application", "x-ndjson")).body(resposta);
+    }
+
+    private void linha(OutputStream saida, String tipo, Object valor) throws IOException {
+        saida.write(objectMapper.writeValueAsBytes(Map.of(tipo, valor)));
+        saida.write('\n');
     }
 
+    /** Mantido por compatibilidade; prefira {@code POST /usuario/login}. */
     @GetMapping("/usuario/{email}/{senha}")
     public UsuarioEntity buscarUsuario(@PathVariable String email, @PathVariable String senha){
         return usuarioServices.procurarUsuario(email, senha);
     }
 
 
+    /** So o proprio usuario exclui a conta. */
     @DeleteMapping("/usuario/{id}")
-    public ResponseEntity<Void> deletarUsuario(@PathVariable Long id){
+    public ResponseEntity<Void> deletarUsuario(@PathVariable Long id,
+            @RequestAttribute(name = AutenticacaoFiltro.SESSAO, required = false) Sessao sessao) {
+        if (sessao == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (sessao.idUsuario() != id) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         usuarioServices.deletarUsuarioPorID(id);
         return ResponseEntity.noContent().build();
     }
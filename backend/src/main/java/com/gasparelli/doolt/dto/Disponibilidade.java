@@ -0,0 +1,6 @@
+package com.gasparelli.doolt.dto;
+
+import java.util.List;
+
+public record Disponibilidade(List<Periodo> ocupados, List<Periodo> livres) {
+}
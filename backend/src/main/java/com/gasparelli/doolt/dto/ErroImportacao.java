@@ -0,0 +1,5 @@
+package com.gasparelli.doolt.dto;
+
+/** Registro recusado na importacao; {@code registro} conta a partir de 1. */
+public record ErroImportacao(long registro, int linha, String mensagem) {
+}
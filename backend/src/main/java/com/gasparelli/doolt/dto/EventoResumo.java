@@ -0,0 +1,6 @@
+package com.gasparelli.doolt.dto;
+
+/** Evento para listas e para a agenda: sem descricao e participantes. */
+public record EventoResumo(Long id, String titulo, String dataEvento, String inicio_hora, String fimHora,
+        String local, int idCategoriaFk, int idFeitoFk) {
+}
@@ -0,0 +1,7 @@
+package com.gasparelli.doolt.dto;
+
+import java.util.List;
+
+/** Resultado de uma exclusao em lote: quantas linhas sairam e quais. */
+public record Exclusao(int excluidas, List<Long> ids) {
+}
@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record IntervaloEvento(Long id, Long inicioTs, Long fimTs) {
+}
@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record Lembrete(Long idTarefa, int idUsuario, String titulo, Long vencimentoTs, int idFeitoFk) {
+}
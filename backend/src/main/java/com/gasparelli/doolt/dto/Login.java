@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record Login(String email, String senha) {
+}
@@ -0,0 +1,6 @@
+package com.gasparelli.doolt.dto;
+
+/** Meta para listas: sem a descricao. */
+public record MetaResumo(Long id, String titulo, int idCategoriaFk, int idPrioridadeFk, int meta, int atual,
+        String unidade, String prazo, int idEstadoFk) {
+}
@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record NotaBusca(Long id, String titulo, String trecho, String tags, double relevancia) {
+}
@@ -0,0 +1,5 @@
+package com.gasparelli.doolt.dto;
+
+/** Nota para listas: sem a descricao (o texto da nota). */
+public record NotaResumo(Long id, String titulo, int idCoresFk, String tags, int idBoleanFavoritoFk) {
+}
@@ -0,0 +1,6 @@
+package com.gasparelli.doolt.dto;
+
+import java.time.LocalDateTime;
+
+public record Periodo(LocalDateTime inicio, LocalDateTime fim) {
+}
@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record ProgressoMeta(Long idMeta, long pendente) {
+}
@@ -0,0 +1,16 @@
+package com.gasparelli.doolt.dto;
+
+/**
+ * Andamento de uma importacao. Enviado depois de cada lote gravado e no fim,
+ * quando {@code concluida} fica true; {@code falha} explica uma interrupcao.
+ */
+public record RelatorioImportacao(
+        long lidos,
+        long tarefas,
+        long eventos,
+        long metas,
+        long notas,
+        long erros,
+        boolean concluida,
+        String falha) {
+}
@@ -0,0 +1,15 @@
+package com.gasparelli.doolt.dto;
+
+import java.util.Map;
+
+public record Resumo(
+        int tarefas,
+        int tarefasFeitas,
+        int tarefasPendentes,
+        Map<String, Integer> tarefasPorPrioridade,
+        Map<String, Integer> tarefasPorCategoria,
+        int metas,
+        int metasConcluidas,
+        double progressoMedioMetas,
+        int eventosHoje) {
+}
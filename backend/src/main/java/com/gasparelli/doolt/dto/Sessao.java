@@ -0,0 +1,5 @@
+package com.gasparelli.doolt.dto;
+
+/** Conteudo de um token valido: dono, numero de serie e expiracao (segundos UTC). */
+public record Sessao(long idUsuario, long serie, long expiraEm) {
+}
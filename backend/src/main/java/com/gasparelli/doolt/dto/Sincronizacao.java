@@ -0,0 +1,24 @@
+package com.gasparelli.doolt.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+/**
+ * Alteracoes depois de {@code desde}: linhas novas ou alteradas e ids
+ * excluidos por tabela. {@code cursor} e o {@code desde} do proximo pedido;
+ * com {@code completo = false} ainda ha mais alteracoes.
+ */
+public record Sincronizacao(
+        long cursor,
+        boolean completo,
+        List<TarefasEntity> tarefas,
+        List<EventosEntity> eventos,
+        List<MetasEntity> metas,
+        List<NotasEntity> notas,
+        Map<String, List<Long>> excluidos) {
+}
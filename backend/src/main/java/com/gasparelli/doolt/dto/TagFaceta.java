@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record TagFaceta(String tag, int quantidade) {
+}
@@ -0,0 +1,6 @@
+package com.gasparelli.doolt.dto;
+
+/** Tarefa para listas: sem a descricao. */
+public record TarefaResumo(Long id, String titulo, int idPrioridadeFk, int idCategoriaFk, String dataVencimento,
+        int idFeitoFk) {
+}
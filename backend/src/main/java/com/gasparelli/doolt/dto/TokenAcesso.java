@@ -0,0 +1,4 @@
+package com.gasparelli.doolt.dto;
+
+public record TokenAcesso(String token, long idUsuario, long expiraEm) {
+}
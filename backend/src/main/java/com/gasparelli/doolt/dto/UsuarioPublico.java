@@ -0,0 +1,5 @@
+package com.gasparelli.doolt.dto;
+
+/** Dados de um usuario que podem ser mostrados a outros: sem email, telefone, senha e sobreMim. */
+public record UsuarioPublico(Long id, String nome, String cargo, String membroDesde) {
+}
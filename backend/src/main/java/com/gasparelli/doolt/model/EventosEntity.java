@@ -1,5 +1,16 @@
 package com.gasparelli.doolt.model;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gasparelli.doolt.util.Datas;
+
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,7 +18,12 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "eventos")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@SQLRestriction("excluido_em is null")
+@Table(name = "eventos", indexes = {
+        @Index(name = "idx_eventos_usuario_id", columnList = "id_usuario_fk, id"),
+        @Index(name = "idx_eventos_usuario_inicio", columnList = "id_usuario_fk, inicio_ts")
+})
 public class EventosEntity {
 
     @Id
@@ -45,4 +61,51 @@ public class EventosEntity {
     @Column(name = "id_feito_fk")
     private int idFeitoFk;
 
+    /** Inicio em segundos desde a epoca (hora local), calculado de dataEvento/inicio_hora. */
+    @Column(name = "inicio_ts")
+    private Long inicioTs;
+
+    /** Fim exclusivo em segundos desde a epoca, calculado de dataEvento/fimHora. */
+    @Column(name = "fim_ts")
+    private Long fimTs;
+
+    /** Sequencia da ultima alteracao (tabela {@code alteracoes}); gravada por trigger, so leitura aqui. */
+    @Column(name = "versao", insertable = false, updatable = false)
+    private Long versao;
+
+    /** Exclusao adiada: quando foi marcada (segundos desde a epoca); a linha some das consultas ate a purga. */
+    @JsonIgnore
+    @Column(name = "excluido_em", insertable = false, updatable = false)
+    private Long excluidoEm;
+
+    /*
+     * Sem hora o evento ocupa o dia inteiro; sem hora de fim ele e pontual. Um
+     * fim antes do inicio significa que o evento passa da meia-noite.
+     */
+    @PrePersist
+    @PreUpdate
+    public void calcularIntervalo() {
+        LocalDate data = Datas.data(dataEvento);
+        if (data == null) {
+            inicioTs = null;
+            fimTs = null;
+            return;
+        }
+        LocalTime horaInicio = Datas.hora(inicio_hora);
+        LocalTime horaFim = Datas.hora(fimHora);
+        LocalDateTime inicio = data.atTime(horaInicio != null ? horaInicio : LocalTime.MIDNIGHT);
+        LocalDateTime fim;
+        if (horaInicio == null && horaFim == null) {
+            fim = inicio.plusDays(1);
+        } else if (horaFim == null) {
+            fim = inicio.plusSeconds(1);
+        } else {
+            fim = data.atTime(horaFim);
+            if (!fim.isAfter(inicio)) {
+                fim = fim.plusDays(1);
+            }
+        }
+        inicioTs = Datas.epoch(inicio);
+        fimTs = Datas.epoch(fim);
+    }
 }
@@ -1,10 +1,17 @@
 package com.gasparelli.doolt.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
@@ -12,7 +19,9 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "metas")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@SQLRestriction("excluido_em is null")
+@Table(name = "metas", indexes = @Index(name = "idx_metas_usuario_id", columnList = "id_usuario_fk, id"))
 public class MetasEntity {
 
     @Id
@@ -52,4 +61,13 @@ public class MetasEntity {
 
     @Column(name = "id_estado_fk")
     private int idEstadoFk;
+
+    /** Sequencia da ultima alteracao (tabela {@code alteracoes}); gravada por trigger, so leitura aqui. */
+    @Column(name = "versao", insertable = false, updatable = false)
+    private Long versao;
+
+    /** Exclusao adiada: quando foi marcada (segundos desde a epoca); a linha some das consultas ate a purga. */
+    @JsonIgnore
+    @Column(name = "excluido_em", insertable = false, updatable = false)
+    private Long excluidoEm;
 }
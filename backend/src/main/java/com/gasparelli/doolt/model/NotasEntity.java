@@ -1,5 +1,11 @@
 package com.gasparelli.doolt.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,7 +13,9 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "notas")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@SQLRestriction("excluido_em is null")
+@Table(name = "notas", indexes = @Index(name = "idx_notas_usuario_id", columnList = "id_usuario_fk, id"))
 public class NotasEntity {
 
     @Id
@@ -32,4 +40,13 @@ public class NotasEntity {
 
     @Column(name = "id_bolean_favorito_fk")
     private int idBoleanFavoritoFk;
+
+    /** Sequencia da ultima alteracao (tabela {@code alteracoes}); gravada por trigger, so leitura aqui. */
+    @Column(name = "versao", insertable = false, updatable = false)
+    private Long versao;
+
+    /** Exclusao adiada: quando foi marcada (segundos desde a epoca); a linha some das consultas ate a purga. */
+    @JsonIgnore
+    @Column(name = "excluido_em", insertable = false, updatable = false)
+    private Long excluidoEm;
 }
@@ -1,5 +1,14 @@
 package com.gasparelli.doolt.model;
 
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.gasparelli.doolt.util.Datas;
+
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,7 +16,12 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "tarefas")
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@SQLRestriction("excluido_em is null")
+@Table(name = "tarefas", indexes = {
+        @Index(name = "idx_tarefas_usuario_id", columnList = "id_usuario_fk, id"),
+        @Index(name = "idx_tarefas_vencimento", columnList = "vencimento_ts")
+})
 public class TarefasEntity {
 
     @Id
@@ -35,5 +49,24 @@ public class TarefasEntity {
 
     @Column(name = "id_feito_fk")
     private int idFeitoFk;
-    
+
+    /** Vencimento em segundos desde a epoca (hora local); uma data sem hora vence a meia-noite. */
+    @Column(name = "vencimento_ts")
+    private Long vencimentoTs;
+
+    /** Sequencia da ultima alteracao (tabela {@code alteracoes}); gravada por trigger, so leitura aqui. */
+    @Column(name = "versao", insertable = false, updatable = false)
+    private Long versao;
+
+    /** Exclusao adiada: quando foi marcada (segundos desde a epoca); a linha some das consultas ate a purga. */
+    @JsonIgnore
+    @Column(name = "excluido_em", insertable = false, updatable = false)
+    private Long excluidoEm;
+
+    @PrePersist
+    @PreUpdate
+    public void calcularVencimento() {
+        LocalDateTime vencimento = Datas.dataHora(dataVencimento);
+        vencimentoTs = vencimento != null ? Datas.epoch(vencimento) : null;
+    }
 }
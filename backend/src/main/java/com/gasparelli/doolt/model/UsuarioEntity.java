@@ -1,5 +1,10 @@
 package com.gasparelli.doolt.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,6 +12,7 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "usuarios")
 public class UsuarioEntity {
 
@@ -21,6 +27,8 @@ public class UsuarioEntity {
     @Column(name = "email")
     private String email;
 
+    /** Hash PBKDF2 (ver {@code Senhas}); aceita a senha em texto na entrada e nunca e serializado. */
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "senha")
     private String senha;
 
@@ -0,0 +1,29 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+
+/** Leitura do log {@code alteracoes} mantido pelos triggers da migracao 6. */
+@Repository
+@Timed("doolt.repositorio")
+public class AlteracoesRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<Alteracao> listar(int usuario, long desde, int limite) {
+        return jdbcTemplate.query("SELECT seq, tabela, id_linha, excluido FROM alteracoes "
+                + "WHERE id_usuario_fk = ? AND seq > ? ORDER BY seq LIMIT ?",
+                (rs, n) -> new Alteracao(rs.getLong(1), TabelaSincronizada.doCodigo(rs.getInt(2)), rs.getLong(3),
+                        rs.getInt(4) == 1),
+                usuario, desde, limite);
+    }
+
+    public record Alteracao(long seq, TabelaSincronizada tabela, long idLinha, boolean excluido) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Atualizacao parcial (PATCH): grava so as colunas enviadas num unico
+ * {@code UPDATE ... RETURNING}, sem ler a linha antes e sem reescrever as
+ * demais colunas. O {@code id_usuario_fk} no WHERE garante que a linha e do
+ * usuario. A linha devolvida nao traz {@code versao}, que o trigger do log de
+ * alteracoes so grava depois do comando. Deve ser chamado dentro de uma
+ * transacao de escrita.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class AtualizacaoParcialRepository {
+
+    private static final Map<String, Campo> CAMPOS_TAREFA = Map.of(
+            "titulo", Campo.texto("titulo"),
+            "descricao", Campo.texto("descricao"),
+            "idPrioridadeFk", Campo.inteiro("id_prioridade_fk"),
+            "idCategoriaFk", Campo.inteiro("id_categoria_fk"),
+            "dataVencimento", Campo.texto("data_vencimento"),
+            "idFeitoFk", Campo.inteiro("id_feito_fk"));
+
+    private static final Map<String, Campo> CAMPOS_EVENTO = Map.of(
+            "titulo", Campo.texto("titulo"),
+            "descricao", Campo.texto("descricao"),
+            "dataEvento", Campo.texto("data_evento"),
+            "idCategoriaFk", Campo.inteiro("id_categoria_fk"),
+            "inicio_hora", Campo.texto("inicio_hora"),
+            "fimHora", Campo.texto("fim_hora"),
+            "local", Campo.texto("local"),
+            "participantes", Campo.texto("participantes"),
+            "idFeitoFk", Campo.inteiro("id_feito_fk"));
+
+    private static final Map<String, Campo> CAMPOS_META = Map.of(
+            "titulo", Campo.texto("titulo"),
+            "descricao", Campo.texto("descricao"),
+            "idCategoriaFk", Campo.inteiro("id_categoria_fk"),
+            "idPrioridadeFk", Campo.inteiro("id_prioridade_fk"),
+            "meta", Campo.inteiro("meta"),
+            "atual", Campo.inteiro("atual"),
+            "unidade", Campo.texto("unidade"),
+            "prazo", Campo.texto("prazo"),
+            "idFeitoFk", Campo.inteiro("id_feito_fk"),
+            "idEstadoFk", Campo.inteiro("id_estado_fk"));
+
+    private static final Map<String, Campo> CAMPOS_NOTA = Map.of(
+            "titulo", Campo.texto("titulo"),
+            "descricao", Campo.texto("descricao"),
+            "idCoresFk", Campo.inteiro("id_cores_fk"),
+            "tags", Campo.texto("tags"),
+            "idBoleanFavoritoFk", Campo.inteiro("id_bolean_favorito_fk"));
+
+    private static final String RETORNO_TAREFA = "id, id_usuario_fk, titulo, descricao, id_prioridade_fk, "
+            + "id_categoria_fk, data_vencimento, id_feito_fk, vencimento_ts";
+
+    private static final String RETORNO_EVENTO = "id, id_usuario_fk, titulo, descricao, data_evento, "
+            + "id_categoria_fk, inicio_hora, fim_hora, local, participantes, id_feito_fk, inicio_ts, fim_ts";
+
+    private static final String RETORNO_META = "id, id_usuario_fk, titulo, descricao, id_categoria_fk, "
+            + "id_prioridade_fk, meta, atual, unidade, prazo, id_feito_fk, id_estado_fk";
+
+    private static final String RETORNO_NOTA = "id, id_usuario_fk, titulo, descricao, id_cores_fk, tags, "
+            + "id_bolean_favorito_fk";
+
+    private static final RowMapper<TarefasEntity> TAREFA = mapeador(TarefasEntity.class);
+
+    private static final RowMapper<EventosEntity> EVENTO = mapeador(EventosEntity.class);
+
+    private static final RowMapper<MetasEntity> META = mapeador(MetasEntity.class);
+
+    private static final RowMapper<NotasEntity> NOTA = mapeador(NotasEntity.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Converte os campos do JSON (nomes das propriedades da entidade) nas
+     * colunas a gravar. Campo desconhecido, so de leitura ou com tipo errado
+     * gera {@link IllegalArgumentException}.
+     */
+    public static Map<String, Object> colunasTarefa(Map<String, Object> campos) {
+        Map<String, Object> colunas = colunas(CAMPOS_TAREFA, campos);
+        if (colunas.containsKey("data_vencimento")) {
+            TarefasEntity tarefa = new TarefasEntity();
+            tarefa.setDataVencimento((String) colunas.get("data_vencimento"));
+            tarefa.calcularVencimento();
+            colunas.put("vencimento_ts", tarefa.getVencimentoTs());
+        }
+        return colunas;
+    }
+
+    public static Map<String, Object> colunasEvento(Map<String, Object> campos) {
+        return colunas(CAMPOS_EVENTO, campos);
+    }
+
+    public static Map<String, Object> colunasMeta(Map<String, Object> campos) {
+        return colunas(CAMPOS_META, campos);
+    }
+
+    public static Map<String, Object> colunasNota(Map<String, Object> campos) {
+        return colunas(CAMPOS_NOTA, campos);
+    }
+
+    /** A tarefa como ficou, ou null se ela nao existe ou e de outro usuario. */
+    public TarefasEntity atualizarTarefa(Long id, int usuario, Map<String, Object> colunas) {
+        return atualizar("tarefas", RETORNO_TAREFA, TAREFA, id, usuario, colunas);
+    }
+
+    /*
+     * O intervalo depende de data, inicio e fim juntos; quando o PATCH muda so
+     * parte deles, o intervalo e recalculado com a linha devolvida e gravado
+     * num segundo UPDATE (so nesse caso).
+     */
+    public EventosEntity atualizarEvento(Long id, int usuario, Map<String, Object> colunas) {
+        EventosEntity evento = atualizar("eventos", RETORNO_EVENTO, EVENTO, id, usuario, colunas);
+        if (evento == null || !(colunas.containsKey("data_evento") || colunas.containsKey("inicio_hora")
+                || colunas.containsKey("fim_hora"))) {
+            return evento;
+        }
+        Long inicio = evento.getInicioTs();
+        Long fim = evento.getFimTs();
+        evento.calcularIntervalo();
+        if (!Objects.equals(inicio, evento.getInicioTs()) || !Objects.equals(fim, evento.getFimTs())) {
+            jdbcTemplate.update("UPDATE eventos SET inicio_ts = ?, fim_ts = ? WHERE id = ?",
+                    evento.getInicioTs(), evento.getFimTs(), id);
+        }
+        return evento;
+    }
+
+    public MetasEntity atualizarMeta(Long id, int usuario, Map<String, Object> colunas) {
+        return atualizar("metas", RETORNO_META, META, id, usuario, colunas);
+    }
+
+    public NotasEntity atualizarNota(Long id, int usuario, Map<String, Object> colunas) {
+        return atualizar("notas", RETORNO_NOTA, NOTA, id, usuario, colunas);
+    }
+
+    private <T> T atualizar(String tabela, String retorno, RowMapper<T> mapeador, Long id, int usuario,
+            Map<String, Object> colunas) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tabela).append(" SET ");
+        List<Object> argumentos = new ArrayList<>(colunas.size() + 2);
+        colunas.forEach((coluna, valor) -> {
+            if (!argumentos.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append(coluna).append(" = ?");
+            argumentos.add(valor);
+        });
+        sql.append(" WHERE id = ? AND id_usuario_fk = ? AND excluido_em IS NULL RETURNING ").append(retorno);
+        argumentos.add(id);
+        argumentos.add(usuario);
+        List<T> linhas = jdbcTemplate.query(sql.toString(), mapeador, argumentos.toArray());
+        return linhas.isEmpty() ? null : linhas.get(0);
+    }
+
+    private static Map<String, Object> colunas(Map<String, Campo> permitidos, Map<String, Object> campos) {
+        if (campos == null || campos.isEmpty()) {
+            throw new IllegalArgumentException("nenhum campo para atualizar");
+        }
+        Map<String, Object> colunas = new LinkedHashMap<>();
+        campos.forEach((nome, valor) -> {
+            Campo campo = permitidos.get(nome);
+            if (campo == null) {
+                throw new IllegalArgumentException("campo nao pode ser alterado: " + nome);
+            }
+            colunas.put(campo.coluna(), campo.valor(nome, valor));
+        });
+        return colunas;
+    }
+
+    /** Como no Hibernate, coluna inteira nula vira 0. */
+    private static <T> RowMapper<T> mapeador(Class<T> entidade) {
+        BeanPropertyRowMapper<T> mapeador = new BeanPropertyRowMapper<>(entidade);
+        mapeador.setPrimitivesDefaultedForNullValue(true);
+        return mapeador;
+    }
+
+    private record Campo(String coluna, boolean inteiro) {
+
+        static Campo texto(String coluna) {
+            return new Campo(coluna, false);
+        }
+
+        static Campo inteiro(String coluna) {
+            return new Campo(coluna, true);
+        }
+
+        Object valor(String nome, Object valor) {
+            if (!inteiro) {
+                if (valor != null && !(valor instanceof String)) {
+                    throw new IllegalArgumentException(nome + " deve ser texto");
+                }
+                return valor;
+            }
+            if (!(valor instanceof Integer || valor instanceof Long numero
+                    && numero >= Integer.MIN_VALUE && numero <= Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException(nome + " deve ser um numero inteiro");
+            }
+            return ((Number) valor).intValue();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.gasparelli.doolt.dto.NotaBusca;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Busca textual sobre a tabela FTS5 {@code notas_fts}. O id do usuario tambem
+ * e indexado como token, entao o filtro por usuario e uma intersecao de
+ * listas do proprio indice e nao uma varredura das notas de todo mundo.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class BuscaNotasRepository {
+
+    private static final String INICIO_DESTAQUE = "<mark>";
+
+    private static final String FIM_DESTAQUE = "</mark>";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<NotaBusca> buscar(int usuario, String consulta, int limit, int offset) {
+        String expressao = expressaoFts(usuario, consulta);
+        if (expressao == null) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT n.id, "
+                + "highlight(notas_fts, 0, ?, ?) AS titulo, "
+                + "snippet(notas_fts, 1, ?, ?, '…', 16) AS trecho, "
+                + "highlight(notas_fts, 2, ?, ?) AS tags, "
+                + "bm25(notas_fts, 10.0, 1.0, 5.0, 0.0) AS relevancia "
+                + "FROM notas_fts JOIN notas n ON n.id = notas_fts.rowid "
+                + "WHERE notas_fts MATCH ? AND n.id_usuario_fk = ? AND n.excluido_em IS NULL "
+                + "ORDER BY relevancia LIMIT ? OFFSET ?",
+                (rs, i) -> new NotaBusca(rs.getLong("id"), rs.getString("titulo"), rs.getString("trecho"),
+                        rs.getString("tags"), -rs.getDouble("relevancia")),
+                INICIO_DESTAQUE, FIM_DESTAQUE, INICIO_DESTAQUE, FIM_DESTAQUE, INICIO_DESTAQUE, FIM_DESTAQUE,
+                expressao, usuario, limit, offset);
+    }
+
+    /*
+     * Cada termo digitado vira uma string FTS5 entre aspas com busca por prefixo,
+     * assim operadores e caracteres especiais do usuario nao quebram a consulta.
+     */
+    static String expressaoFts(int usuario, String consulta) {
+        StringBuilder termos = new StringBuilder();
+        for (String termo : consulta.trim().split("\\s+")) {
+            String limpo = termo.replace("\"", "");
+            if (limpo.isEmpty()) {
+                continue;
+            }
+            if (!termos.isEmpty()) {
+                termos.append(' ');
+            }
+            termos.append('"').append(limpo).append("\"*");
+        }
+        if (termos.isEmpty()) {
+            return null;
+        }
+        return "id_usuario_fk : \"" + usuario + "\" AND {titulo descricao tags} : (" + termos + ")";
+    }
+}
@@ -1,8 +1,43 @@
 package com.gasparelli.doolt.repository;
 
+import com.gasparelli.doolt.dto.EventoResumo;
+import com.gasparelli.doolt.dto.IntervaloEvento;
 import com.gasparelli.doolt.model.EventosEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 public interface EventosRepository extends JpaRepository<EventosEntity, Long> {
+    /** Resultado no cache de consultas; invalidado pelas escritas na tabela. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     EventosEntity findByTitulo(String titulo);
+    List<EventosEntity> findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(int idUsuarioFk, Long id, Limit limit);
+
+    /** Mesma pagina do metodo acima, so com as colunas das listas. */
+    @Query("select new com.gasparelli.doolt.dto.EventoResumo(e.id, e.titulo, e.dataEvento, e.inicio_hora, e.fimHora, "
+            + "e.local, e.idCategoriaFk, e.idFeitoFk) from EventosEntity e where e.idUsuarioFk = :usuario "
+            + "and e.id > :after order by e.id")
+    List<EventoResumo> findResumos(@Param("usuario") int usuario, @Param("after") Long after, Limit limit);
+
+    @Query("select new com.gasparelli.doolt.dto.EventoResumo(e.id, e.titulo, e.dataEvento, e.inicio_hora, e.fimHora, "
+            + "e.local, e.idCategoriaFk, e.idFeitoFk) from EventosEntity e where e.idUsuarioFk = :usuario "
+            + "and e.id in :ids")
+    List<EventoResumo> findResumosByIds(@Param("usuario") int usuario, @Param("ids") List<Long> ids);
+
+    /** Cursor so de leitura para a exportacao; precisa de transacao aberta e deve ser fechado. */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<EventosEntity> streamByIdUsuarioFkOrderByIdAsc(int idUsuarioFk);
+
+    @Query("select new com.gasparelli.doolt.dto.IntervaloEvento(e.id, e.inicioTs, e.fimTs) from EventosEntity e "
+            + "where e.idUsuarioFk = :usuario and e.inicioTs is not null")
+    List<IntervaloEvento> findIntervalosByUsuario(@Param("usuario") int usuario);
 }
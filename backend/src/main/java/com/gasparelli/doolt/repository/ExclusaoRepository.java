@@ -0,0 +1,78 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Exclusoes sem carregar as entidades: cada chamada e um unico comando com
+ * {@code RETURNING id, id_usuario_fk}, que informa o que saiu para os caches.
+ * Com {@code doolt.exclusao.adiada} o comando e um UPDATE que marca
+ * {@code excluido_em} (as entidades filtram essas linhas) e a remocao fisica
+ * fica para a purga em segundo plano. Listas de ids vao num unico parametro
+ * via {@code json_each}. Deve ser chamado dentro de uma transacao de escrita.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class ExclusaoRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${doolt.exclusao.adiada:false}")
+    private boolean adiada;
+
+    /** So exclui as linhas de {@code usuario}; ids de outros donos sao ignorados. */
+    public List<Excluida> excluirPorIds(TabelaSincronizada tabela, int usuario, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String lista = ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+        return excluir(tabela, "id_usuario_fk = ? AND id IN (SELECT value FROM json_each(?))", usuario, lista);
+    }
+
+    public List<Excluida> excluirTarefasFeitas(int usuario, int idFeito) {
+        return excluir(TabelaSincronizada.TAREFAS, "id_usuario_fk = ? AND id_feito_fk = ?", usuario, idFeito);
+    }
+
+    /** Eventos que terminaram ate {@code ate} (segundos desde a epoca, hora local). */
+    public List<Excluida> excluirEventosPassados(int usuario, long ate) {
+        return excluir(TabelaSincronizada.EVENTOS, "id_usuario_fk = ? AND fim_ts <= ?", usuario, ate);
+    }
+
+    /**
+     * Remove de vez ate {@code limite} linhas marcadas; devolve quantas sairam.
+     * O trigger do log de alteracoes ignora essas linhas, que ja foram
+     * registradas como excluidas na marcacao.
+     */
+    public int purgar(TabelaSincronizada tabela, int limite) {
+        return jdbcTemplate.update("DELETE FROM " + tabela.nome() + " WHERE id IN (SELECT id FROM "
+                + tabela.nome() + " WHERE excluido_em IS NOT NULL LIMIT ?)", limite);
+    }
+
+    private List<Excluida> excluir(TabelaSincronizada tabela, String condicao, Object... argumentos) {
+        String sql;
+        List<Object> todos = new ArrayList<>(argumentos.length + 1);
+        if (adiada) {
+            sql = "UPDATE " + tabela.nome() + " SET excluido_em = ? WHERE excluido_em IS NULL AND " + condicao
+                    + " RETURNING id, id_usuario_fk";
+            todos.add(System.currentTimeMillis() / 1000);
+        } else {
+            sql = "DELETE FROM " + tabela.nome() + " WHERE excluido_em IS NULL AND " + condicao
+                    + " RETURNING id, id_usuario_fk";
+        }
+        todos.addAll(List.of(argumentos));
+        return jdbcTemplate.query(sql, (rs, n) -> new Excluida(rs.getLong(1), rs.getInt(2)), todos.toArray());
+    }
+
+    public record Excluida(long id, int usuario) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Insercoes em lote via JDBC batching. As entidades usam
+ * {@code GenerationType.IDENTITY}, o que impede o Hibernate de agrupar
+ * inserts, entao os lotes sao escritos direto com {@link JdbcTemplate}.
+ * Deve ser chamado dentro de uma transacao de escrita.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class InsercaoLoteRepository {
+
+    private static final int TAMANHO_BATCH = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void inserirTarefas(List<TarefasEntity> tarefas) {
+        inserir("INSERT INTO tarefas (id_usuario_fk, titulo, descricao, id_prioridade_fk, id_categoria_fk, "
+                + "data_vencimento, id_feito_fk, vencimento_ts) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", tarefas, (ps, t) -> {
+            t.calcularVencimento();
+            ps.setInt(1, t.getIdUsuarioFk());
+            ps.setString(2, t.getTitulo());
+            ps.setString(3, t.getDescricao());
+            ps.setInt(4, t.getIdPrioridadeFk());
+            ps.setInt(5, t.getIdCategoriaFk());
+            ps.setString(6, t.getDataVencimento());
+            ps.setInt(7, t.getIdFeitoFk());
+            ps.setObject(8, t.getVencimentoTs());
+        }, TarefasEntity::setId);
+    }
+
+    public void inserirEventos(List<EventosEntity> eventos) {
+        inserir("INSERT INTO eventos (id_usuario_fk, titulo, descricao, data_evento, id_categoria_fk, inicio_hora, "
+                + "fim_hora, local, participantes, id_feito_fk, inicio_ts, fim_ts) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", eventos, (ps, e) -> {
+            e.calcularIntervalo();
+            ps.setInt(1, e.getIdUsuarioFk());
+            ps.setString(2, e.getTitulo());
+            ps.setString(3, e.getDescricao());
+            ps.setString(4, e.getDataEvento());
+            ps.setInt(5, e.getIdCategoriaFk());
+            ps.setString(6, e.getInicio_hora());
+            ps.setString(7, e.getFimHora());
+            ps.setString(8, e.getLocal());
+            ps.setString(9, e.getParticipantes());
+            ps.setInt(10, e.getIdFeitoFk());
+            ps.setObject(11, e.getInicioTs());
+            ps.setObject(12, e.getFimTs());
+        }, EventosEntity::setId);
+    }
+
+    public void inserirMetas(List<MetasEntity> metas) {
+        inserir("INSERT INTO metas (id_usuario_fk, titulo, descricao, id_categoria_fk, id_prioridade_fk, meta, atual, "
+                + "unidade, prazo, id_feito_fk, id_estado_fk) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", metas, (ps, m) -> {
+            ps.setInt(1, m.getIdUsuarioFk());
+            ps.setString(2, m.getTitulo());
+            ps.setString(3, m.getDescricao());
+            ps.setInt(4, m.getIdCategoriaFk());
+            ps.setInt(5, m.getIdPrioridadeFk());
+            ps.setInt(6, m.getMeta());
+            ps.setInt(7, m.getAtual());
+            ps.setString(8, m.getUnidade());
+            ps.setString(9, m.getPrazo());
+            ps.setInt(10, m.getIdFeitoFk());
+            ps.setInt(11, m.getIdEstadoFk());
+        }, MetasEntity::setId);
+    }
+
+    public void inserirNotas(List<NotasEntity> notas) {
+        inserir("INSERT INTO notas (id_usuario_fk, titulo, descricao, id_cores_fk, tags, id_bolean_favorito_fk) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", notas, (ps, n) -> {
+            ps.setInt(1, n.getIdUsuarioFk());
+            ps.setString(2, n.getTitulo());
+            ps.setString(3, n.getDescricao());
+            ps.setInt(4, n.getIdCoresFk());
+            ps.setString(5, n.getTags());
+            ps.setInt(6, n.getIdBoleanFavoritoFk());
+        }, NotasEntity::setId);
+    }
+
+    /*
+     * Os ids sao AUTOINCREMENT: cada linha recebe o proximo valor da sequencia
+     * da tabela. Com um unico escritor nenhuma outra insercao entra no meio do
+     * lote, entao os ids sao contiguos e terminam em last_insert_rowid() da
+     * mesma conexao.
+     */
+    private <T> void inserir(String sql, List<T> linhas, ParameterizedPreparedStatementSetter<T> preencher,
+            BiConsumer<T, Long> atribuirId) {
+        if (linhas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, linhas, TAMANHO_BATCH, preencher);
+        Long ultimo = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Long.class);
+        long id = ultimo - linhas.size() + 1;
+        for (T linha : linhas) {
+            atribuirId.accept(linha, id++);
+        }
+    }
+}
@@ -1,8 +1,33 @@
 package com.gasparelli.doolt.repository;
 
+import com.gasparelli.doolt.dto.MetaResumo;
 import com.gasparelli.doolt.model.MetasEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 public interface MetasRepository extends JpaRepository<MetasEntity, Long> {
+    /** Resultado no cache de consultas; invalidado pelas escritas na tabela. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     MetasEntity findByTitulo(String titulo);
+    List<MetasEntity> findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(int idUsuarioFk, Long id, Limit limit);
+
+    /** Mesma pagina do metodo acima, so com as colunas das listas. */
+    @Query("select new com.gasparelli.doolt.dto.MetaResumo(m.id, m.titulo, m.idCategoriaFk, m.idPrioridadeFk, m.meta, m.atual, "
+            + "m.unidade, m.prazo, m.idEstadoFk) "
+            + "from MetasEntity m where m.idUsuarioFk = :usuario and m.id > :after order by m.id")
+    List<MetaResumo> findResumos(@Param("usuario") int usuario, @Param("after") Long after, Limit limit);
+
+    /** Cursor so de leitura para a exportacao; precisa de transacao aberta e deve ser fechado. */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<MetasEntity> streamByIdUsuarioFkOrderByIdAsc(int idUsuarioFk);
 }
@@ -1,8 +1,32 @@
 package com.gasparelli.doolt.repository;
 
+import com.gasparelli.doolt.dto.NotaResumo;
 import com.gasparelli.doolt.model.NotasEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 public interface NotasRepository extends JpaRepository<NotasEntity, Long> {
+    /** Resultado no cache de consultas; invalidado pelas escritas na tabela. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     NotasEntity findByTitulo(String titulo);
+    List<NotasEntity> findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(int idUsuarioFk, Long id, Limit limit);
+
+    /** Mesma pagina do metodo acima, so com as colunas das listas. */
+    @Query("select new com.gasparelli.doolt.dto.NotaResumo(n.id, n.titulo, n.idCoresFk, n.tags, n.idBoleanFavoritoFk) "
+            + "from NotasEntity n where n.idUsuarioFk = :usuario and n.id > :after order by n.id")
+    List<NotaResumo> findResumos(@Param("usuario") int usuario, @Param("after") Long after, Limit limit);
+
+    /** Cursor so de leitura para a exportacao; precisa de transacao aberta e deve ser fechado. */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<NotasEntity> streamByIdUsuarioFkOrderByIdAsc(int idUsuarioFk);
 }
@@ -0,0 +1,29 @@
+package com.gasparelli.doolt.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+
+/** Leituras usadas para montar os contadores do resumo de um usuario. */
+@Repository
+@Timed("doolt.repositorio")
+public class ResumoRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Percorre as tarefas do usuario como (id, id_prioridade_fk, id_categoria_fk, id_feito_fk). */
+    public void paraCadaTarefa(int usuario, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, id_prioridade_fk, id_categoria_fk, id_feito_fk FROM tarefas "
+                + "WHERE id_usuario_fk = ? AND excluido_em IS NULL", handler, usuario);
+    }
+
+    /** Percorre as metas do usuario como (id, meta, atual). */
+    public void paraCadaMeta(int usuario, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, meta, atual FROM metas WHERE id_usuario_fk = ? AND excluido_em IS NULL",
+                handler, usuario);
+    }
+}
@@ -0,0 +1,45 @@
+package com.gasparelli.doolt.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Copia persistente das revogacoes de token: {@code tokens_revogados} guarda
+ * tokens avulsos (logout) ate expirarem e {@code revogacoes_usuario} a menor
+ * serie ainda valida de cada usuario.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class RevogacoesRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void revogarToken(long serie, long expiraEm) {
+        jdbcTemplate.update("INSERT OR IGNORE INTO tokens_revogados (serie, expira_em) VALUES (?, ?)", serie, expiraEm);
+    }
+
+    public void revogarUsuario(long idUsuario, long serieMinima) {
+        jdbcTemplate.update("INSERT INTO revogacoes_usuario (id_usuario_fk, serie_minima) VALUES (?, ?) "
+                + "ON CONFLICT (id_usuario_fk) DO UPDATE SET serie_minima = excluded.serie_minima",
+                idUsuario, serieMinima);
+    }
+
+    public int removerExpirados(long agora) {
+        return jdbcTemplate.update("DELETE FROM tokens_revogados WHERE expira_em <= ?", agora);
+    }
+
+    /** Percorre os tokens revogados como (serie, expira_em). */
+    public void paraCadaToken(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT serie, expira_em FROM tokens_revogados", handler);
+    }
+
+    /** Percorre as revogacoes por usuario como (id_usuario_fk, serie_minima). */
+    public void paraCadaUsuario(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id_usuario_fk, serie_minima FROM revogacoes_usuario", handler);
+    }
+}
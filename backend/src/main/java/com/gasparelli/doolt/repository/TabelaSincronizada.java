@@ -0,0 +1,36 @@
+package com.gasparelli.doolt.repository;
+
+/** Tabelas registradas em {@code alteracoes}, com o codigo gravado na coluna {@code tabela}. */
+public enum TabelaSincronizada {
+
+    TAREFAS(1, "tarefas"),
+    EVENTOS(2, "eventos"),
+    METAS(3, "metas"),
+    NOTAS(4, "notas");
+
+    private final int codigo;
+
+    private final String nome;
+
+    TabelaSincronizada(int codigo, String nome) {
+        this.codigo = codigo;
+        this.nome = nome;
+    }
+
+    public int codigo() {
+        return codigo;
+    }
+
+    public String nome() {
+        return nome;
+    }
+
+    public static TabelaSincronizada doCodigo(int codigo) {
+        for (TabelaSincronizada tabela : values()) {
+            if (tabela.codigo == codigo) {
+                return tabela;
+            }
+        }
+        throw new IllegalArgumentException("Tabela desconhecida: " + codigo);
+    }
+}
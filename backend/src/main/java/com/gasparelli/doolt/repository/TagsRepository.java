@@ -0,0 +1,65 @@
+package com.gasparelli.doolt.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Tabelas normalizadas de tags: {@code tags(id, nome)} e o vinculo
+ * {@code nota_tag(id_nota_fk, id_tag_fk)}. Deve ser usado dentro da transacao
+ * que grava a nota.
+ */
+@Repository
+@Timed("doolt.repositorio")
+public class TagsRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void substituirTags(long idNota, List<String> nomes) {
+        jdbcTemplate.update("DELETE FROM nota_tag WHERE id_nota_fk = ?", idNota);
+        inserirTags(Map.of(idNota, nomes));
+    }
+
+    public void inserirTags(Map<Long, List<String>> tagsPorNota) {
+        List<Object[]> nomes = new ArrayList<>();
+        List<Object[]> vinculos = new ArrayList<>();
+        tagsPorNota.forEach((idNota, tags) -> {
+            for (String nome : tags) {
+                nomes.add(new Object[] { nome });
+                vinculos.add(new Object[] { idNota, nome });
+            }
+        });
+        if (vinculos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT OR IGNORE INTO tags (nome) VALUES (?)", nomes);
+        jdbcTemplate.batchUpdate("INSERT OR IGNORE INTO nota_tag (id_nota_fk, id_tag_fk) "
+                + "SELECT ?, id FROM tags WHERE nome = ?", vinculos);
+    }
+
+    public void removerNotas(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM nota_tag WHERE id_nota_fk IN (SELECT value FROM json_each(?))",
+                ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]")));
+    }
+
+    /** Percorre os vinculos como (id_usuario_fk, id_nota, nome) em ordem de usuario e nome. */
+    public void paraCadaVinculo(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT n.id_usuario_fk, nt.id_nota_fk, t.nome FROM nota_tag nt "
+                + "JOIN notas n ON n.id = nt.id_nota_fk "
+                + "JOIN tags t ON t.id = nt.id_tag_fk "
+                + "ORDER BY n.id_usuario_fk, t.nome, nt.id_nota_fk", handler);
+    }
+}
@@ -1,9 +1,40 @@
 package com.gasparelli.doolt.repository;
 
+import com.gasparelli.doolt.dto.Lembrete;
+import com.gasparelli.doolt.dto.TarefaResumo;
 import com.gasparelli.doolt.model.TarefasEntity;
 import com.gasparelli.doolt.model.UsuarioEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 public interface TarefasRepository extends JpaRepository<TarefasEntity, Long> {
+    /** Resultado no cache de consultas; invalidado pelas escritas na tabela. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     TarefasEntity findByTitulo(String titulo);
+    List<TarefasEntity> findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(int idUsuarioFk, Long id, Limit limit);
+
+    /** Mesma pagina do metodo acima, so com as colunas das listas. */
+    @Query("select new com.gasparelli.doolt.dto.TarefaResumo(t.id, t.titulo, t.idPrioridadeFk, t.idCategoriaFk, "
+            + "t.dataVencimento, t.idFeitoFk) from TarefasEntity t where t.idUsuarioFk = :usuario and t.id > :after "
+            + "order by t.id")
+    List<TarefaResumo> findResumos(@Param("usuario") int usuario, @Param("after") Long after, Limit limit);
+
+    /** Cursor so de leitura para a exportacao; precisa de transacao aberta e deve ser fechado. */
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+    Stream<TarefasEntity> streamByIdUsuarioFkOrderByIdAsc(int idUsuarioFk);
+
+    /** Tarefas com vencimento em {@code (desde, ate]}; o filtro de concluidas e feito por quem chama. */
+    @Query("select new com.gasparelli.doolt.dto.Lembrete(t.id, t.idUsuarioFk, t.titulo, t.vencimentoTs, t.idFeitoFk) "
+            + "from TarefasEntity t where t.vencimentoTs > :desde and t.vencimentoTs <= :ate")
+    List<Lembrete> findLembretes(@Param("desde") long desde, @Param("ate") long ate);
 }
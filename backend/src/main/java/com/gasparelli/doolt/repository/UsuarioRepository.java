@@ -1,11 +1,19 @@
 package com.gasparelli.doolt.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.gasparelli.doolt.dto.UsuarioPublico;
 import com.gasparelli.doolt.model.UsuarioEntity;
 
 public interface UsuarioRepository extends JpaRepository<UsuarioEntity, Long> {
 
-    UsuarioEntity findByEmailAndSenha(String email, String senha);
+    /** O indice unico {@code idx_usuarios_email} e criado pela migracao 5. */
+    UsuarioEntity findFirstByEmailOrderByIdAsc(String email);
     Long id(Long id);
+
+    @Query("select new com.gasparelli.doolt.dto.UsuarioPublico(u.id, u.nome, u.cargo, u.membroDesde) "
+            + "from UsuarioEntity u where u.id = :id")
+    UsuarioPublico findPublico(@Param("id") Long id);
 }
@@ -0,0 +1,141 @@
+package com.gasparelli.doolt.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gasparelli.doolt.dto.Disponibilidade;
+import com.gasparelli.doolt.dto.IntervaloEvento;
+import com.gasparelli.doolt.dto.Periodo;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.repository.EventosRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository.Excluida;
+import com.gasparelli.doolt.util.ArvoreIntervalos;
+import com.gasparelli.doolt.util.Datas;
+
+/**
+ * Arvores de intervalos dos eventos de cada usuario, montadas na primeira
+ * consulta a partir de {@code (id_usuario_fk, inicio_ts)} e mantidas depois
+ * do commit de cada escrita. Os metodos de consulta devem rodar dentro de uma
+ * transacao de leitura.
+ */
+@Service
+public class AgendaServices {
+
+    @Autowired
+    private EventosRepository eventosRepository;
+
+    private final Map<Integer, ArvoreIntervalos> arvores = new ConcurrentHashMap<>();
+
+    private final AtomicLong geracao = new AtomicLong();
+
+    public long[] sobrepostos(int usuario, LocalDateTime inicio, LocalDateTime fim) {
+        return arvore(usuario).sobrepostos(Datas.epoch(inicio), Datas.epoch(fim));
+    }
+
+    public Disponibilidade disponibilidade(int usuario, LocalDateTime inicio, LocalDateTime fim) {
+        long a = Datas.epoch(inicio);
+        long b = Datas.epoch(fim);
+        List<Periodo> ocupados = new ArrayList<>();
+        List<Periodo> livres = new ArrayList<>();
+        long cursor = a;
+        for (long[] periodo : arvore(usuario).ocupados(a, b)) {
+            if (periodo[0] > cursor) {
+                livres.add(new Periodo(Datas.deEpoch(cursor), Datas.deEpoch(periodo[0])));
+            }
+            ocupados.add(new Periodo(Datas.deEpoch(periodo[0]), Datas.deEpoch(periodo[1])));
+            cursor = periodo[1];
+        }
+        if (cursor < b) {
+            livres.add(new Periodo(Datas.deEpoch(cursor), Datas.deEpoch(b)));
+        }
+        return new Disponibilidade(ocupados, livres);
+    }
+
+    public void eventoSalvo(EventosEntity evento) {
+        AposCommit.executar(() -> atualizar(evento));
+    }
+
+    public void eventosInseridos(List<EventosEntity> eventos) {
+        AposCommit.executar(() -> {
+            geracao.incrementAndGet();
+            Map<Integer, List<EventosEntity>> porUsuario = new HashMap<>();
+            for (EventosEntity evento : eventos) {
+                if (evento.getInicioTs() != null) {
+                    porUsuario.computeIfAbsent(evento.getIdUsuarioFk(), u -> new ArrayList<>()).add(evento);
+                }
+            }
+            porUsuario.forEach((usuario, inseridos) -> arvores.computeIfPresent(usuario, (u, arvore) -> {
+                long[] ids = new long[inseridos.size()];
+                long[] inicios = new long[ids.length];
+                long[] fins = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = inseridos.get(i).getId();
+                    inicios[i] = inseridos.get(i).getInicioTs();
+                    fins[i] = inseridos.get(i).getFimTs();
+                }
+                return arvore.comTodos(ids, inicios, fins);
+            }));
+        });
+    }
+
+    public void eventosRemovidos(List<Excluida> eventos) {
+        AposCommit.executar(() -> {
+            geracao.incrementAndGet();
+            Map<Integer, Set<Long>> porUsuario = new HashMap<>();
+            for (Excluida evento : eventos) {
+                porUsuario.computeIfAbsent(evento.usuario(), u -> new HashSet<>()).add(evento.id());
+            }
+            porUsuario.forEach((usuario, ids) -> arvores.computeIfPresent(usuario,
+                    (u, arvore) -> arvore.semTodos(ids)));
+        });
+    }
+
+    public void descartar(int usuario) {
+        geracao.incrementAndGet();
+        arvores.remove(usuario);
+    }
+
+    private void atualizar(EventosEntity evento) {
+        geracao.incrementAndGet();
+        arvores.computeIfPresent(evento.getIdUsuarioFk(), (u, arvore) -> evento.getInicioTs() == null
+                ? arvore.sem(evento.getId())
+                : arvore.com(evento.getId(), evento.getInicioTs(), evento.getFimTs()));
+    }
+
+    /*
+     * Se alguma escrita terminar enquanto a arvore e montada, ela e usada so
+     * nesta consulta e nao fica no cache, porque pode ter perdido a atualizacao.
+     */
+    private ArvoreIntervalos arvore(int usuario) {
+        ArvoreIntervalos arvore = arvores.get(usuario);
+        if (arvore != null) {
+            return arvore;
+        }
+        long geracaoInicial = geracao.get();
+        List<IntervaloEvento> intervalos = eventosRepository.findIntervalosByUsuario(usuario);
+        long[] ids = new long[intervalos.size()];
+        long[] inicios = new long[ids.length];
+        long[] fins = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            IntervaloEvento intervalo = intervalos.get(i);
+            ids[i] = intervalo.id();
+            inicios[i] = intervalo.inicioTs();
+            fins[i] = intervalo.fimTs();
+        }
+        arvore = ArvoreIntervalos.de(ids, inicios, fins);
+        if (geracao.get() == geracaoInicial) {
+            arvores.putIfAbsent(usuario, arvore);
+        }
+        return arvore;
+    }
+}
@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.BoleanEntity;
 import com.gasparelli.doolt.repository.BoleanRepositoty;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class BoleanServices {
@@ -11,12 +12,20 @@ public class BoleanServices {
     @Autowired
     private BoleanRepositoty boleanRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public BoleanEntity salvarBolean(BoleanEntity bolean) {
-        return boleanRepository.save(bolean);
+        BoleanEntity salvo = boleanRepository.save(bolean);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarBoleanPorID(Long id) {
         boleanRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
@@ -0,0 +1,57 @@
+package com.gasparelli.doolt.services;
+
+import java.util.Collection;
+
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Mantem o cache de segundo nivel do Hibernate coerente com as escritas
+ * feitas direto por JDBC, que ele nao enxerga. Linhas novas so invalidam as
+ * consultas em cache (um findByTitulo pode passar a ter resultado); linhas
+ * alteradas tambem saem do cache de entidades. Roda depois do commit.
+ */
+@Component
+public class CacheEntidades {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void linhasInseridas() {
+        AposCommit.executar(() -> cache().evictQueryRegions());
+    }
+
+    public void linhasAlteradas(Class<?> entidade, Collection<Long> ids) {
+        AposCommit.executar(() -> {
+            Cache cache = cache();
+            ids.forEach(id -> cache.evictEntityData(entidade, id));
+        });
+    }
+
+    /** Linhas excluidas por SQL; um findByTitulo em cache pode apontar para elas. */
+    public void linhasExcluidas(Class<?> entidade, Collection<Long> ids) {
+        AposCommit.executar(() -> {
+            Cache cache = cache();
+            ids.forEach(id -> cache.evictEntityData(entidade, id));
+            cache.evictQueryRegions();
+        });
+    }
+
+    /** Atualizacao parcial; com o titulo alterado um findByTitulo em cache tambem fica velho. */
+    public void linhaAtualizada(Class<?> entidade, Long id, boolean tituloAlterado) {
+        AposCommit.executar(() -> {
+            Cache cache = cache();
+            cache.evictEntityData(entidade, id);
+            if (tituloAlterado) {
+                cache.evictQueryRegions();
+            }
+        });
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.CategoriaEventoEntity;
 import com.gasparelli.doolt.repository.CategoriaEventoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CategoriaEventoServices {
@@ -11,12 +12,20 @@ public class CategoriaEventoServices {
     @Autowired
     private CategoriaEventoRepository categoriaEventoRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public CategoriaEventoEntity salvarCategoriaEvento(CategoriaEventoEntity categoriaEvento) {
-        return categoriaEventoRepository.save(categoriaEvento);
+        CategoriaEventoEntity salvo = categoriaEventoRepository.save(categoriaEvento);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarCategoriaEventoPorID(Long id) {
         categoriaEventoRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.CategoriaMetaEntity;
 import com.gasparelli.doolt.repository.CategoriaMetaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CategoriaMetaServices {
@@ -11,12 +12,20 @@ public class CategoriaMetaServices {
     @Autowired
     private CategoriaMetaRepository categoriaMetaRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public CategoriaMetaEntity salvarCategoriaMeta(CategoriaMetaEntity categoriaMeta) {
-        return categoriaMetaRepository.save(categoriaMeta);
+        CategoriaMetaEntity salvo = categoriaMetaRepository.save(categoriaMeta);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarCategoriaMetaPorID(Long id) {
         categoriaMetaRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
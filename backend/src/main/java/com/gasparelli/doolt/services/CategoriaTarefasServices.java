@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.CategoriaTarefasEntity;
 import com.gasparelli.doolt.repository.CategoriaTarefasRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CategoriaTarefasServices {
@@ -11,12 +12,20 @@ public class CategoriaTarefasServices {
     @Autowired
     private CategoriaTarefasRepository categoriaTarefasRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public CategoriaTarefasEntity salvarCategoriaTarefa(CategoriaTarefasEntity categoriaTarefa) {
-        return categoriaTarefasRepository.save(categoriaTarefa);
+        CategoriaTarefasEntity salvo = categoriaTarefasRepository.save(categoriaTarefa);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarCategoriaTarefaPorID(Long id) {
         categoriaTarefasRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
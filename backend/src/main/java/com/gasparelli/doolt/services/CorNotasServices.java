@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.CorNotasEntity;
 import com.gasparelli.doolt.repository.CorNotasRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CorNotasServices {
@@ -11,12 +12,20 @@ public class CorNotasServices {
     @Autowired
     private CorNotasRepository corNotasRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public CorNotasEntity salvarCorNota(CorNotasEntity corNota) {
-        return corNotasRepository.save(corNota);
+        CorNotasEntity salvo = corNotasRepository.save(corNota);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarCorNotaPorID(Long id) {
         corNotasRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
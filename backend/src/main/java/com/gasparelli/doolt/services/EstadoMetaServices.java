@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.EstadoMetaEntity;
 import com.gasparelli.doolt.repository.EstadoMetaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class EstadoMetaServices {
@@ -11,12 +12,20 @@ public class EstadoMetaServices {
     @Autowired
     private EstadoMetaRepository estadoMetaRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public EstadoMetaEntity salvarEstadoMeta(EstadoMetaEntity estadoMeta) {
-        return estadoMetaRepository.save(estadoMeta);
+        EstadoMetaEntity salvo = estadoMetaRepository.save(estadoMeta);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarEstadoMetaPorID(Long id) {
         estadoMetaRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
@@ -1,26 +1,174 @@
 package com.gasparelli.doolt.services;
 
+import com.gasparelli.doolt.dto.Disponibilidade;
+import com.gasparelli.doolt.dto.EventoResumo;
+import com.gasparelli.doolt.dto.Exclusao;
 import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.repository.AtualizacaoParcialRepository;
 import com.gasparelli.doolt.repository.EventosRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository.Excluida;
+import com.gasparelli.doolt.repository.InsercaoLoteRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+import com.gasparelli.doolt.util.Datas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class EventosServices {
 
+    private static final int LIMITE_PAGINA = 200;
+
     @Autowired
     private EventosRepository eventosRepository;
 
+    @Autowired
+    private InsercaoLoteRepository insercaoLoteRepository;
+
+    @Autowired
+    private AtualizacaoParcialRepository atualizacaoParcialRepository;
+
+    @Autowired
+    private ExclusaoRepository exclusaoRepository;
+
+    @Autowired
+    private AgendaServices agendaServices;
+
+    @Autowired
+    private GrupoCommit grupoCommit;
+
+    @Autowired
+    private CacheEntidades cacheEntidades;
+
     public EventosEntity salvarEvento(EventosEntity evento) {
-        return eventosRepository.save(evento);
+        Long id = evento.getId();
+        return grupoCommit.executar(() -> {
+            evento.setId(id);
+            EventosEntity salvo = eventosRepository.save(evento);
+            agendaServices.eventoSalvo(salvo);
+            return salvo;
+        });
+    }
+
+    @Transactional
+    public List<EventosEntity> salvarEventosEmLote(List<EventosEntity> eventos) {
+        insercaoLoteRepository.inserirEventos(eventos);
+        cacheEntidades.linhasInseridas();
+        agendaServices.eventosInseridos(eventos);
+        return eventos;
+    }
+
+    @Transactional(readOnly = true)
+    public List<EventoResumo> listarEventosResumoNoIntervalo(int usuario, LocalDateTime inicio, LocalDateTime fim) {
+        long[] ids = agendaServices.sobrepostos(usuario, inicio, fim);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Map<Long, EventoResumo> porId = new HashMap<>();
+        for (EventoResumo evento : eventosRepository.findResumosByIds(usuario, Arrays.stream(ids).boxed().toList())) {
+            porId.put(evento.id(), evento);
+        }
+        List<EventoResumo> eventos = new ArrayList<>(porId.size());
+        for (long id : ids) {
+            EventoResumo evento = porId.get(id);
+            if (evento != null) {
+                eventos.add(evento);
+            }
+        }
+        return eventos;
+    }
+
+    /**
+     * Grava so os campos enviados, sem ler a linha antes. Devolve null se o evento
+     * nao existe ou e de outro usuario.
+     */
+    public EventosEntity atualizarEvento(Long id, int usuario, Map<String, Object> campos) {
+        Map<String, Object> colunas = AtualizacaoParcialRepository.colunasEvento(campos);
+        return grupoCommit.executar(() -> {
+            EventosEntity atualizado = atualizacaoParcialRepository.atualizarEvento(id, usuario, colunas);
+            if (atualizado != null) {
+                cacheEntidades.linhaAtualizada(EventosEntity.class, id, colunas.containsKey("titulo"));
+                agendaServices.eventoSalvo(atualizado);
+            }
+            return atualizado;
+        });
     }
 
+    @Transactional(readOnly = true)
     public EventosEntity buscarEvento(String titulo) {
         return eventosRepository.findByTitulo(titulo);
     }
 
-    public void deletarEventoPorID(Long id) {
-        eventosRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public List<EventosEntity> listarEventos(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return eventosRepository.findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<EventoResumo> listarEventosResumo(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return eventosRepository.findResumos(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<EventosEntity> listarEventosNoIntervalo(int usuario, LocalDateTime inicio, LocalDateTime fim) {
+        long[] ids = agendaServices.sobrepostos(usuario, inicio, fim);
+        Map<Long, EventosEntity> porId = new HashMap<>();
+        for (EventosEntity evento : eventosRepository.findAllById(Arrays.stream(ids).boxed().toList())) {
+            if (evento.getIdUsuarioFk() == usuario) {
+                porId.put(evento.getId(), evento);
+            }
+        }
+        List<EventosEntity> eventos = new ArrayList<>(porId.size());
+        for (long id : ids) {
+            EventosEntity evento = porId.get(id);
+            if (evento != null) {
+                eventos.add(evento);
+            }
+        }
+        return eventos;
+    }
+
+    @Transactional(readOnly = true)
+    public Disponibilidade disponibilidade(int usuario, LocalDateTime inicio, LocalDateTime fim) {
+        return agendaServices.disponibilidade(usuario, inicio, fim);
+    }
+
+    /** Exclui a linha se ela for de {@code usuario}; devolve false se nao havia o que excluir. */
+    @Transactional
+    public boolean deletarEventoPorID(int usuario, Long id) {
+        List<Excluida> excluidas = exclusaoRepository.excluirPorIds(TabelaSincronizada.EVENTOS, usuario, List.of(id));
+        return eventosExcluidos(excluidas).excluidas() > 0;
+    }
+
+    @Transactional
+    public Exclusao deletarEventos(int usuario, List<Long> ids) {
+        return eventosExcluidos(exclusaoRepository.excluirPorIds(TabelaSincronizada.EVENTOS, usuario, ids));
+    }
+
+    /** Eventos do usuario que terminaram ate {@code ate}, num unico comando. */
+    @Transactional
+    public Exclusao deletarEventosPassados(int usuario, LocalDateTime ate) {
+        return eventosExcluidos(exclusaoRepository.excluirEventosPassados(usuario, Datas.epoch(ate)));
+    }
+
+    private Exclusao eventosExcluidos(List<Excluida> excluidas) {
+        List<Long> ids = excluidas.stream().map(Excluida::id).toList();
+        if (!ids.isEmpty()) {
+            cacheEntidades.linhasExcluidas(EventosEntity.class, ids);
+            agendaServices.eventosRemovidos(excluidas);
+        }
+        return new Exclusao(ids.size(), ids);
     }
 }
 
@@ -0,0 +1,193 @@
+package com.gasparelli.doolt.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.EventosRepository;
+import com.gasparelli.doolt.repository.MetasRepository;
+import com.gasparelli.doolt.repository.NotasRepository;
+import com.gasparelli.doolt.repository.TarefasRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Exportacao de todos os dados de um usuario lendo cada tabela com um cursor
+ * ({@code Stream}) e escrevendo linha a linha. Cada entidade e desanexada
+ * depois de escrita, entao a memoria nao cresce com o volume do usuario.
+ */
+@Service
+public class ExportacaoServices {
+
+    private static final TypeReference<Map<String, Object>> MAPA = new TypeReference<>() {
+    };
+
+    public enum Formato {
+        NDJSON, CSV
+    }
+
+    @Autowired
+    private TarefasRepository tarefasRepository;
+
+    @Autowired
+    private EventosRepository eventosRepository;
+
+    @Autowired
+    private MetasRepository metasRepository;
+
+    @Autowired
+    private NotasRepository notasRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Colunas do CSV: {@code tipo} seguido da uniao dos campos das quatro entidades. */
+    private List<String> colunas;
+
+    @PostConstruct
+    void iniciar() {
+        Set<String> campos = new LinkedHashSet<>();
+        campos.add("tipo");
+        for (Object vazio : List.of(new TarefasEntity(), new EventosEntity(), new MetasEntity(), new NotasEntity())) {
+            campos.addAll(objectMapper.convertValue(vazio, MAPA).keySet());
+        }
+        colunas = new ArrayList<>(campos);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportar(int usuario, Formato formato, OutputStream saida) throws IOException {
+        Escritor escritor = formato == Formato.CSV ? new EscritorCsv(saida) : new EscritorNdjson(saida);
+        escritor.iniciar();
+        escrever(escritor, "tarefa", tarefasRepository.streamByIdUsuarioFkOrderByIdAsc(usuario));
+        escrever(escritor, "evento", eventosRepository.streamByIdUsuarioFkOrderByIdAsc(usuario));
+        escrever(escritor, "meta", metasRepository.streamByIdUsuarioFkOrderByIdAsc(usuario));
+        escrever(escritor, "nota", notasRepository.streamByIdUsuarioFkOrderByIdAsc(usuario));
+        escritor.terminar();
+    }
+
+    private <T> void escrever(Escritor escritor, String tipo, Stream<T> linhas) throws IOException {
+        try (linhas) {
+            linhas.forEach(linha -> {
+                try {
+                    escritor.escrever(tipo, linha);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                entityManager.detach(linha);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Escritor {
+
+        default void iniciar() throws IOException {
+        }
+
+        void escrever(String tipo, Object linha) throws IOException;
+
+        void terminar() throws IOException;
+    }
+
+    /** Uma linha JSON por registro: {@code {"tipo":"tarefa","dados":{...}}}. */
+    private final class EscritorNdjson implements Escritor {
+
+        private final JsonGenerator json;
+
+        private EscritorNdjson(OutputStream saida) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(saida);
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void escrever(String tipo, Object linha) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("tipo", tipo);
+            json.writeFieldName("dados");
+            objectMapper.writeValue(json, linha);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            json.flush();
+        }
+    }
+
+    private final class EscritorCsv implements Escritor {
+
+        private final Writer texto;
+
+        private EscritorCsv(OutputStream saida) {
+            this.texto = new OutputStreamWriter(saida, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void iniciar() throws IOException {
+            linha(colunas);
+        }
+
+        @Override
+        public void escrever(String tipo, Object linha) throws IOException {
+            Map<String, Object> campos = objectMapper.convertValue(linha, MAPA);
+            campos.put("tipo", tipo);
+            List<Object> valores = new ArrayList<>(colunas.size());
+            for (String coluna : colunas) {
+                valores.add(campos.get(coluna));
+            }
+            linha(valores);
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            texto.flush();
+        }
+
+        private void linha(List<?> valores) throws IOException {
+            for (int i = 0; i < valores.size(); i++) {
+                if (i > 0) {
+                    texto.write(',');
+                }
+                Object valor = valores.get(i);
+                if (valor != null) {
+                    texto.write(celula(valor.toString()));
+                }
+            }
+            texto.write("\r\n");
+        }
+
+        private static String celula(String valor) {
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0
+                    && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+}
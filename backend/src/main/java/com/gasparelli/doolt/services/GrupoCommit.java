@@ -0,0 +1,227 @@
+package com.gasparelli.doolt.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.config.Shards;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Group commit: escritas de uma linha que chegam dentro de uma janela curta
+ * sao executadas em uma unica transacao na thread de escrita, pagando um commit
+ * para o grupo todo. Se o grupo falhar, cada operacao e repetida na sua propria
+ * transacao para que uma linha ruim nao derrube as outras, por isso as
+ * operacoes precisam poder ser reexecutadas. Nenhuma falha, nem um
+ * {@link Error}, encerra a thread de escrita: quem pediu recebe a excecao e
+ * as proximas escritas continuam.
+ *
+ * Com a divisao em shards cada bucket tem a sua fila e a sua thread de
+ * escrita, criada no primeiro uso e encerrada depois de um tempo ociosa; um
+ * grupo nunca mistura arquivos.
+ */
+@Component
+public class GrupoCommit {
+
+    private static final Logger log = LoggerFactory.getLogger(GrupoCommit.class);
+
+    /** Chave da fila do banco principal. */
+    private static final int PRINCIPAL = -1;
+
+    private static final long OCIOSO_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<Integer, Escritor> escritores = new ConcurrentHashMap<>();
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${doolt.grupo-commit.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${doolt.grupo-commit.janela-ms:2}")
+    private long janelaMs;
+
+    @Value("${doolt.grupo-commit.tamanho-maximo:64}")
+    private int tamanhoMaximo;
+
+    private volatile boolean ativo;
+
+    public GrupoCommit(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        ativo = true;
+        escritores.computeIfAbsent(PRINCIPAL, Escritor::new);
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        ativo = false;
+        escritores.values().forEach(escritor -> escritor.thread.interrupt());
+        for (Escritor escritor : escritores.values()) {
+            escritor.thread.join(TimeUnit.SECONDS.toMillis(5));
+            List<Pedido<?>> restantes = new ArrayList<>();
+            escritor.fila.drainTo(restantes);
+            try (Shards.Escopo escopo = Shards.escopo(escritor.bucket())) {
+                restantes.forEach(this::executarSozinho);
+            }
+        }
+    }
+
+    public <T> T executar(Supplier<T> operacao) {
+        if (!ativo || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> operacao.get());
+        }
+        Pedido<T> pedido = new Pedido<>(operacao);
+        Integer bucket = Shards.atual();
+        escritores.compute(bucket == null ? PRINCIPAL : bucket, (chave, escritor) -> {
+            Escritor alvo = escritor != null ? escritor : new Escritor(chave);
+            alvo.fila.add(pedido);
+            return alvo;
+        });
+        try {
+            return pedido.resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw e;
+        }
+    }
+
+    private void executarGrupo(List<Pedido<?>> grupo) {
+        if (grupo.size() == 1) {
+            executarSozinho(grupo.get(0));
+            return;
+        }
+        List<Object> resultados = new ArrayList<>(grupo.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Pedido<?> pedido : grupo) {
+                    resultados.add(pedido.operacao.get());
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            log.debug("Grupo de {} escritas falhou, repetindo uma a uma", grupo.size(), e);
+            grupo.forEach(this::executarSozinho);
+            return;
+        }
+        for (int i = 0; i < grupo.size(); i++) {
+            grupo.get(i).concluir(resultados.get(i));
+        }
+    }
+
+    /* Um Error da operacao (StackOverflowError, AssertionError) volta so para quem pediu. */
+    private void executarSozinho(Pedido<?> pedido) {
+        try {
+            pedido.concluir(transactionTemplate.execute(status -> pedido.operacao.get()));
+        } catch (Throwable e) {
+            pedido.resultado.completeExceptionally(e);
+        }
+    }
+
+    /** Fila e thread de escrita de um arquivo; a thread roda com o escopo do bucket. */
+    private final class Escritor {
+
+        private final int chave;
+
+        private final BlockingQueue<Pedido<?>> fila = new LinkedBlockingQueue<>();
+
+        private final Thread thread;
+
+        private Escritor(int chave) {
+            this.chave = chave;
+            thread = new Thread(this::executarGrupos,
+                    chave == PRINCIPAL ? "doolt-grupo-commit" : "doolt-grupo-commit-shard-" + chave);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private Integer bucket() {
+            return chave == PRINCIPAL ? null : chave;
+        }
+
+        private void executarGrupos() {
+            List<Pedido<?>> grupo = new ArrayList<>(tamanhoMaximo);
+            try (Shards.Escopo escopo = Shards.escopo(bucket())) {
+                while (ativo) {
+                    try {
+                        Pedido<?> primeiro = chave == PRINCIPAL ? fila.take()
+                                : fila.poll(OCIOSO_MS, TimeUnit.MILLISECONDS);
+                        if (primeiro == null) {
+                            if (encerrarOcioso()) {
+                                return;
+                            }
+                            continue;
+                        }
+                        grupo.add(primeiro);
+                        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(janelaMs);
+                        while (grupo.size() < tamanhoMaximo) {
+                            Pedido<?> proximo = fila.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                            if (proximo == null) {
+                                break;
+                            }
+                            grupo.add(proximo);
+                        }
+                        executarGrupo(grupo);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        grupo.forEach(GrupoCommit.this::executarSozinho);
+                        return;
+                    } catch (Throwable e) {
+                        log.error("Falha no group commit; {} escritas recusadas", grupo.size(), e);
+                        grupo.forEach(pedido -> pedido.resultado.completeExceptionally(e));
+                    } finally {
+                        grupo.clear();
+                    }
+                }
+            }
+        }
+
+        /* So sai do mapa com a fila vazia; quem chegar depois cria outro escritor. */
+        private boolean encerrarOcioso() {
+            return escritores.computeIfPresent(chave, (k, atual) -> atual == this && fila.isEmpty() ? null : atual)
+                    != this;
+        }
+    }
+
+    private static final class Pedido<T> {
+
+        private final Supplier<T> operacao;
+
+        private final CompletableFuture<T> resultado = new CompletableFuture<>();
+
+        private Pedido(Supplier<T> operacao) {
+            this.operacao = operacao;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void concluir(Object valor) {
+            resultado.complete((T) valor);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.gasparelli.doolt.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gasparelli.doolt.dto.ErroImportacao;
+import com.gasparelli.doolt.dto.RelatorioImportacao;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.util.Datas;
+
+/**
+ * Importacao em massa lendo o corpo com o parser de streaming do Jackson: um
+ * registro por vez, seja NDJSON (um objeto por linha) ou um array JSON. Cada
+ * registro e {@code {"tipo":"tarefa","dados":{...}}} (o formato da exportacao)
+ * ou o objeto plano com o campo {@code tipo}. Nomes de referencia
+ * ({@code prioridade}, {@code categoria}, {@code cor}, {@code estado},
+ * {@code feito}, {@code favorito}) viram ids pelo {@link ReferenciasServices}.
+ * Os registros validos sao gravados em lotes, cada um na sua transacao, pelos
+ * mesmos metodos em lote dos controllers; so um lote fica em memoria.
+ */
+@Service
+public class ImportacaoServices {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacaoServices.class);
+
+    /** Recebe o andamento enquanto a importacao acontece. */
+    public interface Ouvinte {
+
+        void erro(ErroImportacao erro) throws IOException;
+
+        void progresso(RelatorioImportacao relatorio) throws IOException;
+    }
+
+    @Autowired
+    private TarefasServices tarefasServices;
+
+    @Autowired
+    private EventosServices eventosServices;
+
+    @Autowired
+    private MetasServices metasServices;
+
+    @Autowired
+    private NotasServices notasServices;
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${doolt.importacao.lote:2000}")
+    private int tamanhoLote;
+
+    /** Erros alem deste numero sao so contados, sem detalhe. */
+    @Value("${doolt.importacao.maximo-erros:1000}")
+    private int maximoErros;
+
+    /**
+     * Uma falha ao gravar qualquer lote, no meio ou no fim, encerra a leitura
+     * e volta em {@code falha} no relatorio final; os lotes ja gravados ficam.
+     */
+    public RelatorioImportacao importar(int usuario, InputStream entrada, Ouvinte ouvinte) throws IOException {
+        Importacao importacao = new Importacao(usuario, ouvinte);
+        String falha = null;
+        try {
+            try (JsonParser json = objectMapper.getFactory().createParser(entrada)) {
+                JsonToken token = json.nextToken();
+                boolean array = token == JsonToken.START_ARRAY;
+                if (array) {
+                    token = json.nextToken();
+                }
+                while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                    importacao.registro(json, token);
+                    token = json.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                falha = "JSON invalido na linha " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage();
+            }
+            importacao.gravar();
+        } catch (RuntimeException e) {
+            log.warn("Importacao do usuario {} interrompida", usuario, e);
+            falha = "Falha ao gravar o lote: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        }
+        return importacao.relatorio(true, falha);
+    }
+
+    private final class Importacao {
+
+        private final int usuario;
+
+        private final Ouvinte ouvinte;
+
+        private List<TarefasEntity> tarefas = new ArrayList<>();
+
+        private List<EventosEntity> eventos = new ArrayList<>();
+
+        private List<MetasEntity> metas = new ArrayList<>();
+
+        private List<NotasEntity> notas = new ArrayList<>();
+
+        private long lidos;
+
+        private long erros;
+
+        private long tarefasGravadas;
+
+        private long eventosGravados;
+
+        private long metasGravadas;
+
+        private long notasGravadas;
+
+        private Importacao(int usuario, Ouvinte ouvinte) {
+            this.usuario = usuario;
+            this.ouvinte = ouvinte;
+        }
+
+        void registro(JsonParser json, JsonToken token) throws IOException {
+            long registro = ++lidos;
+            int linha = json.currentTokenLocation().getLineNr();
+            if (token != JsonToken.START_OBJECT) {
+                json.skipChildren();
+                erro(registro, linha, "registro deve ser um objeto");
+                return;
+            }
+            ObjectNode no = objectMapper.readTree(json);
+            try {
+                adicionar(no);
+            } catch (IllegalArgumentException e) {
+                erro(registro, linha, e.getMessage());
+                return;
+            } catch (JsonProcessingException e) {
+                erro(registro, linha, e.getOriginalMessage());
+                return;
+            }
+            if (tarefas.size() + eventos.size() + metas.size() + notas.size() >= tamanhoLote) {
+                gravar();
+            }
+        }
+
+        private void adicionar(ObjectNode no) throws JsonProcessingException {
+            String tipo = no.path("tipo").asText("").toLowerCase(Locale.ROOT);
+            ObjectNode dados = no.get("dados") instanceof ObjectNode aninhado ? aninhado : no;
+            dados.remove(List.of("tipo", "id", "versao", "idUsuarioFk"));
+            exigirTitulo(dados);
+            switch (tipo.endsWith("s") ? tipo.substring(0, tipo.length() - 1) : tipo) {
+                case "tarefa" -> {
+                    referencia(dados, "prioridade", "idPrioridadeFk", referenciasServices::idPrioridade);
+                    referencia(dados, "categoria", "idCategoriaFk", referenciasServices::idCategoriaTarefa);
+                    referencia(dados, "feito", "idFeitoFk", this::idBolean);
+                    TarefasEntity tarefa = objectMapper.treeToValue(dados, TarefasEntity.class);
+                    exigirData(tarefa.getDataVencimento(), Datas.dataHora(tarefa.getDataVencimento()) != null,
+                            "dataVencimento");
+                    tarefa.setIdUsuarioFk(usuario);
+                    tarefas.add(tarefa);
+                }
+                case "evento" -> {
+                    referencia(dados, "categoria", "idCategoriaFk", referenciasServices::idCategoriaEvento);
+                    referencia(dados, "feito", "idFeitoFk", this::idBolean);
+                    EventosEntity evento = objectMapper.treeToValue(dados, EventosEntity.class);
+                    exigirData(evento.getDataEvento(), Datas.data(evento.getDataEvento()) != null, "dataEvento");
+                    evento.setIdUsuarioFk(usuario);
+                    eventos.add(evento);
+                }
+                case "meta" -> {
+                    referencia(dados, "categoria", "idCategoriaFk", referenciasServices::idCategoriaMeta);
+                    referencia(dados, "prioridade", "idPrioridadeFk", referenciasServices::idPrioridade);
+                    referencia(dados, "estado", "idEstadoFk", referenciasServices::idEstadoMetaPorNome);
+                    referencia(dados, "feito", "idFeitoFk", this::idBolean);
+                    MetasEntity meta = objectMapper.treeToValue(dados, MetasEntity.class);
+                    meta.setIdUsuarioFk(usuario);
+                    metas.add(meta);
+                }
+                case "nota" -> {
+                    referencia(dados, "cor", "idCoresFk", referenciasServices::idCorNota);
+                    referencia(dados, "favorito", "idBoleanFavoritoFk", this::idBolean);
+                    NotasEntity nota = objectMapper.treeToValue(dados, NotasEntity.class);
+                    nota.setIdUsuarioFk(usuario);
+                    notas.add(nota);
+                }
+                default -> throw new IllegalArgumentException(
+                        "tipo deve ser tarefa, evento, meta ou nota: '" + tipo + "'");
+            }
+        }
+
+        /** Grava o lote pendente numa transacao propria e informa o andamento. */
+        void gravar() throws IOException {
+            if (tarefas.isEmpty() && eventos.isEmpty() && metas.isEmpty() && notas.isEmpty()) {
+                return;
+            }
+            List<TarefasEntity> loteTarefas = tarefas;
+            List<EventosEntity> loteEventos = eventos;
+            List<MetasEntity> loteMetas = metas;
+            List<NotasEntity> loteNotas = notas;
+            tarefas = new ArrayList<>();
+            eventos = new ArrayList<>();
+            metas = new ArrayList<>();
+            notas = new ArrayList<>();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                tarefasServices.salvarTarefasEmLote(loteTarefas);
+                eventosServices.salvarEventosEmLote(loteEventos);
+                metasServices.salvarMetasEmLote(loteMetas);
+                notasServices.salvarNotasEmLote(loteNotas);
+            });
+            tarefasGravadas += loteTarefas.size();
+            eventosGravados += loteEventos.size();
+            metasGravadas += loteMetas.size();
+            notasGravadas += loteNotas.size();
+            ouvinte.progresso(relatorio(false, null));
+        }
+
+        RelatorioImportacao relatorio(boolean concluida, String falha) {
+            return new RelatorioImportacao(lidos, tarefasGravadas, eventosGravados, metasGravadas, notasGravadas,
+                    erros, concluida, falha);
+        }
+
+        private void erro(long registro, int linha, String mensagem) throws IOException {
+            if (++erros <= maximoErros) {
+                ouvinte.erro(new ErroImportacao(registro, linha, mensagem));
+            }
+        }
+
+        private int idBolean(String valor) {
+            if (!valor.equalsIgnoreCase("true") && !valor.equalsIgnoreCase("false")) {
+                return -1;
+            }
+            return referenciasServices.idBolean(Boolean.parseBoolean(valor));
+        }
+    }
+
+    /** Troca {@code nome} (texto ou boleano) pelo id correspondente em {@code campoId}. */
+    private static void referencia(ObjectNode dados, String nome, String campoId, ToIntFunction<String> resolver) {
+        JsonNode valor = dados.remove(nome);
+        if (valor == null || valor.isNull()) {
+            return;
+        }
+        int id = resolver.applyAsInt(valor.asText());
+        if (id < 0) {
+            throw new IllegalArgumentException(nome + " desconhecido(a): '" + valor.asText() + "'");
+        }
+        dados.put(campoId, id);
+    }
+
+    private static void exigirTitulo(ObjectNode dados) {
+        if (dados.path("titulo").asText("").isBlank()) {
+            throw new IllegalArgumentException("titulo obrigatorio");
+        }
+    }
+
+    private static void exigirData(String texto, boolean valida, String campo) {
+        if (texto != null && !texto.isBlank() && !valida) {
+            throw new IllegalArgumentException(campo + " invalida: '" + texto + "'");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.gasparelli.doolt.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.dto.Lembrete;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.TarefasRepository;
+import com.gasparelli.doolt.util.Datas;
+import com.gasparelli.doolt.util.RodaTemporizacao;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Lembretes de vencimento das tarefas. So as tarefas nao concluidas que vencem
+ * dentro da janela ({@code doolt.lembretes.janela-horas}) ficam em memoria, numa
+ * {@link RodaTemporizacao}; a janela e recarregada do banco quando falta um
+ * quarto dela. Cada lembrete disparado e publicado como evento da aplicacao e
+ * fica pendente para o usuario ate ser lido.
+ */
+@Service
+@DependsOn({ "migracoesSQLite", "referenciasServices" })
+public class LembretesServices {
+
+    private static final Logger log = LoggerFactory.getLogger(LembretesServices.class);
+
+    private static final int PENDENTES_POR_USUARIO = 100;
+
+    @Autowired
+    private TarefasRepository tarefasRepository;
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${doolt.lembretes.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${doolt.lembretes.janela-horas:168}")
+    private long janelaHoras;
+
+    @Value("${doolt.lembretes.atraso-maximo-horas:24}")
+    private long atrasoMaximoHoras;
+
+    private final Map<Integer, Deque<Lembrete>> pendentes = new ConcurrentHashMap<>();
+
+    private RodaTemporizacao<Lembrete> roda;
+
+    /** Vencimentos ate este segundo ja foram lidos do banco. */
+    private long carregadoAte;
+
+    /** Tarefas alteradas enquanto uma carga da janela esta em andamento. */
+    private Set<Long> alteradasNaCarga;
+
+    private ScheduledExecutorService relogio;
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        long agora = agora();
+        synchronized (this) {
+            roda = new RodaTemporizacao<>(agora);
+            carregadoAte = agora - TimeUnit.HOURS.toSeconds(atrasoMaximoHoras);
+        }
+        carregarJanela();
+        relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doolt-lembretes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relogio.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void parar() {
+        if (relogio != null) {
+            relogio.shutdownNow();
+        }
+    }
+
+    /**
+     * Atualiza a roda depois do commit de uma tarefa criada ou alterada. O
+     * vencimento so e lido no commit porque o {@code @PreUpdate} roda no flush.
+     * Vencimentos ja passados nao disparam de novo; atrasos so sao avisados na
+     * carga inicial.
+     */
+    public void tarefaSalva(TarefasEntity tarefa) {
+        AposCommit.executar(() -> reagendar(tarefa.getId(), lembrete(tarefa)));
+    }
+
+    public void tarefasInseridas(List<TarefasEntity> tarefas) {
+        AposCommit.executar(() -> tarefas.forEach(tarefa -> reagendar(tarefa.getId(), lembrete(tarefa))));
+    }
+
+    public void tarefasRemovidas(List<Long> ids) {
+        AposCommit.executar(() -> ids.forEach(id -> reagendar(id, null)));
+    }
+
+    /** Devolve e limpa os lembretes disparados para o usuario. */
+    public List<Lembrete> consumirPendentes(int usuario) {
+        Deque<Lembrete> fila = pendentes.get(usuario);
+        if (fila == null) {
+            return List.of();
+        }
+        synchronized (fila) {
+            List<Lembrete> lidos = new ArrayList<>(fila);
+            fila.clear();
+            return lidos;
+        }
+    }
+
+    public synchronized int agendados() {
+        return roda != null ? roda.tamanho() : 0;
+    }
+
+    private void tick() {
+        try {
+            long agora = agora();
+            List<Lembrete> vencidos = new ArrayList<>();
+            boolean recarregar;
+            synchronized (this) {
+                roda.avancar(agora, vencidos::add);
+                recarregar = alteradasNaCarga == null
+                        && carregadoAte - agora < TimeUnit.HOURS.toSeconds(janelaHoras) * 3 / 4;
+            }
+            vencidos.forEach(this::disparar);
+            if (recarregar) {
+                carregarJanela();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha no tick dos lembretes", e);
+        }
+    }
+
+    /*
+     * O limite novo e publicado antes da consulta para que escritas concluidas
+     * durante a carga ja entrem na roda; as linhas lidas dessas tarefas sao
+     * descartadas por poderem estar desatualizadas.
+     */
+    private void carregarJanela() {
+        long desde;
+        long ate;
+        synchronized (this) {
+            desde = carregadoAte;
+            ate = roda.atual() + TimeUnit.HOURS.toSeconds(janelaHoras);
+            carregadoAte = ate;
+            alteradasNaCarga = new HashSet<>();
+        }
+        List<Lembrete> lidos = new ArrayList<>();
+        try {
+            TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+            leitura.setReadOnly(true);
+            shards.emCada(() -> lidos.addAll(leitura.execute(status -> tarefasRepository.findLembretes(desde, ate))));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                carregadoAte = desde;
+            }
+            throw e;
+        } finally {
+            synchronized (this) {
+                int agendados = 0;
+                for (Lembrete lembrete : lidos) {
+                    if (!alteradasNaCarga.contains(lembrete.idTarefa()) && pendente(lembrete)
+                            && roda.agendar(lembrete.idTarefa(), lembrete.vencimentoTs(), lembrete)) {
+                        agendados++;
+                    }
+                }
+                alteradasNaCarga = null;
+                log.debug("Lembretes carregados ate {}: {} novos, {} na roda", Datas.deEpoch(ate), agendados,
+                        roda.tamanho());
+            }
+        }
+    }
+
+    private synchronized void reagendar(Long idTarefa, Lembrete lembrete) {
+        if (roda == null) {
+            return;
+        }
+        if (alteradasNaCarga != null) {
+            alteradasNaCarga.add(idTarefa);
+        }
+        if (lembrete != null && pendente(lembrete) && lembrete.vencimentoTs() <= carregadoAte
+                && lembrete.vencimentoTs() > roda.atual()) {
+            roda.agendar(idTarefa, lembrete.vencimentoTs(), lembrete);
+        } else {
+            roda.cancelar(idTarefa);
+        }
+    }
+
+    private void disparar(Lembrete lembrete) {
+        log.info("Lembrete: tarefa {} do usuario {} vence em {}", lembrete.idTarefa(), lembrete.idUsuario(),
+                Datas.deEpoch(lembrete.vencimentoTs()));
+        Deque<Lembrete> fila = pendentes.computeIfAbsent(lembrete.idUsuario(), u -> new ArrayDeque<>());
+        synchronized (fila) {
+            if (fila.size() == PENDENTES_POR_USUARIO) {
+                fila.removeFirst();
+            }
+            fila.addLast(lembrete);
+        }
+        eventos.publishEvent(lembrete);
+    }
+
+    private boolean pendente(Lembrete lembrete) {
+        return lembrete.vencimentoTs() != null && !referenciasServices.verdadeiro(lembrete.idFeitoFk());
+    }
+
+    private Lembrete lembrete(TarefasEntity tarefa) {
+        return new Lembrete(tarefa.getId(), tarefa.getIdUsuarioFk(), tarefa.getTitulo(), tarefa.getVencimentoTs(),
+                tarefa.getIdFeitoFk());
+    }
+
+    private static long agora() {
+        return Datas.epoch(LocalDateTime.now());
+    }
+}
@@ -1,26 +1,127 @@
 package com.gasparelli.doolt.services;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.MetaResumo;
 import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.repository.AtualizacaoParcialRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository.Excluida;
+import com.gasparelli.doolt.repository.InsercaoLoteRepository;
 import com.gasparelli.doolt.repository.MetasRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class MetasServices {
 
+    private static final int LIMITE_PAGINA = 200;
+
     @Autowired
     private MetasRepository metasRepository;
 
+    @Autowired
+    private InsercaoLoteRepository insercaoLoteRepository;
+
+    @Autowired
+    private AtualizacaoParcialRepository atualizacaoParcialRepository;
+
+    @Autowired
+    private ExclusaoRepository exclusaoRepository;
+
+    @Autowired
+    private ProgressoMetasServices progressoMetasServices;
+
+    @Autowired
+    private ResumoServices resumoServices;
+
+    @Autowired
+    private GrupoCommit grupoCommit;
+
+    @Autowired
+    private CacheEntidades cacheEntidades;
+
     public MetasEntity salvarMeta(MetasEntity meta) {
-        return metasRepository.save(meta);
+        Long id = meta.getId();
+        return grupoCommit.executar(() -> {
+            meta.setId(id);
+            MetasEntity salva = metasRepository.save(meta);
+            resumoServices.metaSalva(salva);
+            return salva;
+        });
+    }
+
+    @Transactional
+    public List<MetasEntity> salvarMetasEmLote(List<MetasEntity> metas) {
+        insercaoLoteRepository.inserirMetas(metas);
+        cacheEntidades.linhasInseridas();
+        resumoServices.metasInseridas(metas);
+        return metas;
+    }
+
+    /**
+     * Grava so os campos enviados, sem ler a linha antes. Devolve null se a meta
+     * nao existe ou e de outro usuario.
+     */
+    public MetasEntity atualizarMeta(Long id, int usuario, Map<String, Object> campos) {
+        Map<String, Object> colunas = AtualizacaoParcialRepository.colunasMeta(campos);
+        return grupoCommit.executar(() -> {
+            MetasEntity atualizada = atualizacaoParcialRepository.atualizarMeta(id, usuario, colunas);
+            if (atualizada != null) {
+                cacheEntidades.linhaAtualizada(MetasEntity.class, id, colunas.containsKey("titulo"));
+                resumoServices.metaSalva(atualizada);
+            }
+            return atualizada;
+        });
     }
 
+    @Transactional(readOnly = true)
     public MetasEntity buscarMeta(String titulo) {
         return metasRepository.findByTitulo(titulo);
     }
 
-    public void deletarMetaPorID(Long id) {
-        metasRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public List<MetasEntity> listarMetas(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return metasRepository.findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<MetaResumo> listarMetasResumo(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return metasRepository.findResumos(usuario, after, Limit.of(tamanho));
+    }
+
+    /** Devolve o progresso ainda nao gravado da meta, ou null se ela nao existe ou e de outro usuario. */
+    public Long registrarProgresso(Long id, int usuario, long delta) {
+        return progressoMetasServices.incrementar(id, usuario, delta);
+    }
+
+    /** Exclui a linha se ela for de {@code usuario}; devolve false se nao havia o que excluir. */
+    @Transactional
+    public boolean deletarMetaPorID(int usuario, Long id) {
+        List<Excluida> excluidas = exclusaoRepository.excluirPorIds(TabelaSincronizada.METAS, usuario, List.of(id));
+        return metasExcluidas(excluidas).excluidas() > 0;
+    }
+
+    @Transactional
+    public Exclusao deletarMetas(int usuario, List<Long> ids) {
+        return metasExcluidas(exclusaoRepository.excluirPorIds(TabelaSincronizada.METAS, usuario, ids));
+    }
+
+    private Exclusao metasExcluidas(List<Excluida> excluidas) {
+        List<Long> ids = excluidas.stream().map(Excluida::id).toList();
+        if (!ids.isEmpty()) {
+            cacheEntidades.linhasExcluidas(MetasEntity.class, ids);
+            progressoMetasServices.metasRemovidas(ids);
+            resumoServices.metasRemovidas(ids);
+        }
+        return new Exclusao(ids.size(), ids);
     }
 }
 
@@ -1,26 +1,154 @@
 package com.gasparelli.doolt.services;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.NotaBusca;
+import com.gasparelli.doolt.dto.NotaResumo;
+import com.gasparelli.doolt.dto.TagFaceta;
 import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.repository.AtualizacaoParcialRepository;
+import com.gasparelli.doolt.repository.BuscaNotasRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository.Excluida;
+import com.gasparelli.doolt.repository.InsercaoLoteRepository;
 import com.gasparelli.doolt.repository.NotasRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
 
 @Service
 public class NotasServices {
 
+    private static final int LIMITE_PAGINA = 200;
+
     @Autowired
     private NotasRepository notasRepository;
 
+    @Autowired
+    private InsercaoLoteRepository insercaoLoteRepository;
+
+    @Autowired
+    private AtualizacaoParcialRepository atualizacaoParcialRepository;
+
+    @Autowired
+    private ExclusaoRepository exclusaoRepository;
+
+    @Autowired
+    private BuscaNotasRepository buscaNotasRepository;
+
+    @Autowired
+    private TagsServices tagsServices;
+
+    @Autowired
+    private GrupoCommit grupoCommit;
+
+    @Autowired
+    private CacheEntidades cacheEntidades;
+
     public NotasEntity salvarNotas(NotasEntity notas) {
-        return notasRepository.save(notas);
+        Long id = notas.getId();
+        return grupoCommit.executar(() -> {
+            notas.setId(id);
+            NotasEntity salva = notasRepository.save(notas);
+            tagsServices.notaSalva(salva);
+            return salva;
+        });
+    }
+
+    @Transactional
+    public List<NotasEntity> salvarNotasEmLote(List<NotasEntity> notas) {
+        insercaoLoteRepository.inserirNotas(notas);
+        cacheEntidades.linhasInseridas();
+        tagsServices.notasInseridas(notas);
+        return notas;
+    }
+
+    /**
+     * Grava so os campos enviados, sem ler a linha antes. Devolve null se a nota
+     * nao existe ou e de outro usuario.
+     */
+    public NotasEntity atualizarNota(Long id, int usuario, Map<String, Object> campos) {
+        Map<String, Object> colunas = AtualizacaoParcialRepository.colunasNota(campos);
+        return grupoCommit.executar(() -> {
+            NotasEntity atualizada = atualizacaoParcialRepository.atualizarNota(id, usuario, colunas);
+            if (atualizada != null) {
+                cacheEntidades.linhaAtualizada(NotasEntity.class, id, colunas.containsKey("titulo"));
+                if (colunas.containsKey("tags")) {
+                    tagsServices.notaSalva(atualizada);
+                }
+            }
+            return atualizada;
+        });
     }
 
+    @Transactional(readOnly = true)
     public NotasEntity buscarNota(String titulo){
         return notasRepository.findByTitulo(titulo);
     }
 
-    public void deletarNotaPorID(Long id){
-        notasRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public List<NotasEntity> listarNotas(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return notasRepository.findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<NotaResumo> listarNotasResumo(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return notasRepository.findResumos(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<NotaBusca> buscarNotas(int usuario, String consulta, int limit, int offset) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return buscaNotasRepository.buscar(usuario, consulta, tamanho, Math.max(0, offset));
+    }
+
+    public List<TagFaceta> listarTags(int usuario) {
+        return tagsServices.facetas(usuario);
+    }
+
+    @Transactional(readOnly = true)
+    public List<NotasEntity> listarNotasPorTags(int usuario, List<String> tags, boolean todas, Long after, int limit) {
+        long[] ids = tagsServices.filtrar(usuario, tags, todas);
+        int inicio = Arrays.binarySearch(ids, after);
+        inicio = inicio >= 0 ? inicio + 1 : -inicio - 1;
+        int fim = Math.min(ids.length, inicio + Math.max(1, Math.min(limit, LIMITE_PAGINA)));
+        List<Long> pagina = new ArrayList<>(fim - inicio);
+        for (int i = inicio; i < fim; i++) {
+            pagina.add(ids[i]);
+        }
+        List<NotasEntity> notas = notasRepository.findAllById(pagina);
+        notas.sort(Comparator.comparing(NotasEntity::getId));
+        return notas;
+    }
+
+    /** Exclui a linha se ela for de {@code usuario}; devolve false se nao havia o que excluir. */
+    @Transactional
+    public boolean deletarNotaPorID(int usuario, Long id) {
+        List<Excluida> excluidas = exclusaoRepository.excluirPorIds(TabelaSincronizada.NOTAS, usuario, List.of(id));
+        return notasExcluidas(excluidas).excluidas() > 0;
+    }
+
+    @Transactional
+    public Exclusao deletarNotas(int usuario, List<Long> ids) {
+        return notasExcluidas(exclusaoRepository.excluirPorIds(TabelaSincronizada.NOTAS, usuario, ids));
+    }
+
+    private Exclusao notasExcluidas(List<Excluida> excluidas) {
+        List<Long> ids = excluidas.stream().map(Excluida::id).toList();
+        if (!ids.isEmpty()) {
+            cacheEntidades.linhasExcluidas(NotasEntity.class, ids);
+            tagsServices.notasRemovidas(ids);
+        }
+        return new Exclusao(ids.size(), ids);
     }
 }
@@ -4,6 +4,7 @@ import com.gasparelli.doolt.model.PrioridadesEntity;
 import com.gasparelli.doolt.repository.PrioridadesRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PrioridadesServices {
@@ -11,12 +12,20 @@ public class PrioridadesServices {
     @Autowired
     private PrioridadesRepository prioridadesRepository;
 
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Transactional
     public PrioridadesEntity salvarPrioridade(PrioridadesEntity prioridade) {
-        return prioridadesRepository.save(prioridade);
+        PrioridadesEntity salvo = prioridadesRepository.save(prioridade);
+        referenciasServices.recarregarAposCommit();
+        return salvo;
     }
 
+    @Transactional
     public void deletarPrioridadePorID(Long id) {
         prioridadesRepository.deleteById(id);
+        referenciasServices.recarregarAposCommit();
     }
 }
 
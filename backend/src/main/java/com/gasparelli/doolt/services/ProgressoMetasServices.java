@@ -0,0 +1,164 @@
+package com.gasparelli.doolt.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.repository.MetasRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Incrementos de progresso das metas. Cada incremento so soma num
+ * {@link LongAdder} da meta; a cada {@code doolt.metas.progresso.intervalo-ms}
+ * os acumulados sao gravados numa unica transacao com
+ * {@code atual = atual + ?}, sem ler a linha. O valor lido das metas pode ficar
+ * atrasado ate um intervalo. Com a divisao em shards, cada acumulado lembra o
+ * bucket em que a meta foi lida e e gravado numa transacao daquele bucket.
+ */
+@Service
+public class ProgressoMetasServices {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressoMetasServices.class);
+
+    /*
+     * Os acumuladores nao sao removidos enquanto a meta existe: remover um que
+     * outra thread acabou de pegar perderia o incremento dela.
+     */
+    private final Map<Long, Acumulado> acumulados = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MetasRepository metasRepository;
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Autowired
+    private ResumoServices resumoServices;
+
+    @Autowired
+    private CacheEntidades cacheEntidades;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${doolt.metas.progresso.intervalo-ms:1000}")
+    private long intervaloMs;
+
+    /** Prefixo do nome do estado de meta concluida (ou o id dele). */
+    @Value("${doolt.metas.estado-concluido:conclu}")
+    private String estadoConcluido;
+
+    private ScheduledExecutorService gravador;
+
+    @PostConstruct
+    void iniciar() {
+        gravador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doolt-progresso-metas");
+            thread.setDaemon(true);
+            return thread;
+        });
+        gravador.scheduleWithFixedDelay(this::gravar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        gravador.shutdown();
+        gravador.awaitTermination(5, TimeUnit.SECONDS);
+        gravar();
+    }
+
+    /**
+     * Soma {@code delta} ao progresso da meta e devolve o total ainda nao
+     * gravado, ou null se a meta nao existe ou nao e de {@code usuario}. O dono
+     * e lido uma vez, junto com o acumulador, e nao muda depois.
+     */
+    public Long incrementar(Long idMeta, int usuario, long delta) {
+        Acumulado acumulado = acumulados.get(idMeta);
+        if (acumulado == null) {
+            MetasEntity meta = metasRepository.findById(idMeta).orElse(null);
+            if (meta == null) {
+                return null;
+            }
+            acumulado = acumulados.computeIfAbsent(idMeta,
+                    id -> new Acumulado(Shards.atual(), meta.getIdUsuarioFk(), new LongAdder()));
+        }
+        if (acumulado.dono() != usuario) {
+            return null;
+        }
+        acumulado.soma().add(delta);
+        return acumulado.soma().sum();
+    }
+
+    public void metasRemovidas(List<Long> ids) {
+        AposCommit.executar(() -> ids.forEach(acumulados::remove));
+    }
+
+    synchronized void gravar() {
+        Map<Integer, List<Object[]>> linhas = new HashMap<>();
+        Map<Integer, List<LongAdder>> origens = new HashMap<>();
+        int concluido = idEstadoConcluido();
+        acumulados.forEach((idMeta, acumulado) -> {
+            long delta = acumulado.soma().sumThenReset();
+            if (delta != 0) {
+                linhas.computeIfAbsent(acumulado.bucket(), b -> new ArrayList<>())
+                        .add(new Object[] { delta, concluido, delta, concluido, idMeta });
+                origens.computeIfAbsent(acumulado.bucket(), b -> new ArrayList<>()).add(acumulado.soma());
+            }
+        });
+        linhas.forEach((bucket, doBucket) -> gravar(bucket, doBucket, origens.get(bucket)));
+    }
+
+    private void gravar(Integer bucket, List<Object[]> linhas, List<LongAdder> origens) {
+        try (Shards.Escopo escopo = Shards.escopo(bucket)) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "UPDATE metas SET atual = atual + ?, id_estado_fk = CASE WHEN ? >= 0 AND meta > 0 "
+                            + "AND atual + ? >= meta THEN ? ELSE id_estado_fk END WHERE id = ?", linhas));
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar o progresso de {} metas, tentando de novo no proximo intervalo",
+                    linhas.size(), e);
+            for (int i = 0; i < origens.size(); i++) {
+                origens.get(i).add((Long) linhas.get(i)[0]);
+            }
+            return;
+        }
+        List<Long> ids = new ArrayList<>(linhas.size());
+        for (Object[] linha : linhas) {
+            ids.add((Long) linha[4]);
+            resumoServices.metaProgrediu((Long) linha[4], (Long) linha[0]);
+        }
+        cacheEntidades.linhasAlteradas(MetasEntity.class, ids);
+    }
+
+    private int idEstadoConcluido() {
+        try {
+            return Integer.parseInt(estadoConcluido.trim());
+        } catch (NumberFormatException e) {
+            return referenciasServices.idEstadoMeta(estadoConcluido);
+        }
+    }
+
+    private record Acumulado(Integer bucket, int dono, LongAdder soma) {
+    }
+}
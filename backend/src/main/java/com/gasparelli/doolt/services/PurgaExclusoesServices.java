@@ -0,0 +1,152 @@
+package com.gasparelli.doolt.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.repository.ExclusaoRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Purga diaria, no horario de pouco uso ({@code doolt.exclusao.purga.hora}):
+ * remove de vez as linhas marcadas pela exclusao adiada, em lotes com uma
+ * transacao cada para nao prender a conexao de escrita, e devolve as paginas
+ * livres ao disco. Com {@code auto_vacuum = INCREMENTAL} basta um
+ * {@code incremental_vacuum}; senao, quando as paginas livres passam de
+ * {@code doolt.exclusao.vacuum.limiar} do arquivo, roda um VACUUM completo,
+ * que ja deixa o banco no modo incremental para as proximas vezes.
+ *
+ * Os ids sao AUTOINCREMENT, entao os das linhas purgadas nao voltam para
+ * linhas novas e a exclusao continua no log de alteracoes.
+ */
+@Service
+public class PurgaExclusoesServices {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgaExclusoesServices.class);
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    @Autowired
+    private ExclusaoRepository exclusaoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Shards shards;
+
+    @Value("${doolt.exclusao.purga.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${doolt.exclusao.purga.hora:3}")
+    private int hora;
+
+    @Value("${doolt.exclusao.purga.lote:1000}")
+    private int lote;
+
+    @Value("${doolt.exclusao.vacuum.limiar:0.25}")
+    private double limiar;
+
+    private ScheduledExecutorService agendador;
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "doolt-purga-exclusoes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime proxima = agora.toLocalDate().atTime(hora, 0);
+        if (!proxima.isAfter(agora)) {
+            proxima = proxima.plusDays(1);
+        }
+        agendador.scheduleAtFixedRate(this::executar, Duration.between(agora, proxima).toMillis(),
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void parar() throws InterruptedException {
+        if (agendador != null) {
+            agendador.shutdownNow();
+            agendador.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Purga e compacta agora (cada shard, se houver); devolve quantas linhas foram removidas. */
+    public synchronized int executar() {
+        int[] removidas = { 0 };
+        shards.emCada(() -> removidas[0] += purgar());
+        return removidas[0];
+    }
+
+    private int purgar() {
+        try {
+            TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+            int removidas = 0;
+            for (TabelaSincronizada tabela : TabelaSincronizada.values()) {
+                int lidas;
+                do {
+                    lidas = transacao.execute(status -> exclusaoRepository.purgar(tabela, lote));
+                    removidas += lidas;
+                } while (lidas == lote && !Thread.currentThread().isInterrupted());
+            }
+            long liberadas = compactar();
+            log.info("Purga de exclusoes: {} linhas removidas, {} paginas devolvidas", removidas, liberadas);
+            return removidas;
+        } catch (RuntimeException e) {
+            log.warn("Falha na purga de exclusoes, tentando de novo na proxima execucao", e);
+            return 0;
+        }
+    }
+
+    /*
+     * Fora de transacao, entao na conexao de escrita. O driver so da um passo
+     * no incremental_vacuum, que libera uma pagina por passo; por isso repete
+     * enquanto houver paginas livres.
+     */
+    private long compactar() {
+        long livres = pragma("freelist_count");
+        if (livres == 0) {
+            return 0;
+        }
+        if (pragma("auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+            long restantes = livres;
+            long antes;
+            do {
+                antes = restantes;
+                jdbcTemplate.execute("PRAGMA incremental_vacuum");
+                restantes = pragma("freelist_count");
+            } while (restantes > 0 && restantes < antes);
+        } else if (livres >= pragma("page_count") * limiar) {
+            jdbcTemplate.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            jdbcTemplate.execute("VACUUM");
+        }
+        return livres - pragma("freelist_count");
+    }
+
+    private long pragma(String nome) {
+        return jdbcTemplate.queryForObject("PRAGMA " + nome, Long.class);
+    }
+}
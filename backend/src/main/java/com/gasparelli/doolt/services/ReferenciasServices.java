@@ -0,0 +1,276 @@
+package com.gasparelli.doolt.services;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.model.BoleanEntity;
+import com.gasparelli.doolt.model.CategoriaEventoEntity;
+import com.gasparelli.doolt.model.CategoriaMetaEntity;
+import com.gasparelli.doolt.model.CategoriaTarefasEntity;
+import com.gasparelli.doolt.model.CorNotasEntity;
+import com.gasparelli.doolt.model.EstadoMetaEntity;
+import com.gasparelli.doolt.model.PrioridadesEntity;
+import com.gasparelli.doolt.repository.BoleanRepositoty;
+import com.gasparelli.doolt.repository.CategoriaEventoRepository;
+import com.gasparelli.doolt.repository.CategoriaMetaRepository;
+import com.gasparelli.doolt.repository.CategoriaTarefasRepository;
+import com.gasparelli.doolt.repository.CorNotasRepository;
+import com.gasparelli.doolt.repository.EstadoMetaRepository;
+import com.gasparelli.doolt.repository.PrioridadesRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Cache imutavel das tabelas de referencia (categorias, prioridades, cores,
+ * estados e boleanos). Tudo e carregado de uma vez em arrays indexados pelo id
+ * junto com o JSON ja serializado e o ETag; uma alteracao em qualquer tabela
+ * troca o snapshot inteiro depois do commit.
+ */
+@Service
+public class ReferenciasServices {
+
+    private static final int AUSENTE = Integer.MIN_VALUE;
+
+    @Autowired
+    private PrioridadesRepository prioridadesRepository;
+
+    @Autowired
+    private CategoriaTarefasRepository categoriaTarefasRepository;
+
+    @Autowired
+    private CategoriaEventoRepository categoriaEventoRepository;
+
+    @Autowired
+    private CategoriaMetaRepository categoriaMetaRepository;
+
+    @Autowired
+    private CorNotasRepository corNotasRepository;
+
+    @Autowired
+    private EstadoMetaRepository estadoMetaRepository;
+
+    @Autowired
+    private BoleanRepositoty boleanRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void recarregar() {
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        try (Shards.Escopo escopo = Shards.principal()) {
+            snapshot = leitura.execute(status -> carregar());
+        }
+    }
+
+    /**
+     * Recarrega o cache quando a transacao atual confirmar, ou na hora se nao
+     * houver transacao.
+     */
+    public void recarregarAposCommit() {
+        AposCommit.executar(this::recarregar);
+    }
+
+    public ReferenciasJson json() {
+        return snapshot.json();
+    }
+
+    public String prioridade(int id) {
+        return valor(snapshot.prioridades(), id);
+    }
+
+    public String categoriaTarefa(int id) {
+        return valor(snapshot.categoriasTarefas(), id);
+    }
+
+    public String categoriaEvento(int id) {
+        return valor(snapshot.categoriasEventos(), id);
+    }
+
+    public String categoriaMeta(int id) {
+        return valor(snapshot.categoriasMetas(), id);
+    }
+
+    public String corNota(int id) {
+        return valor(snapshot.coresNotas(), id);
+    }
+
+    public String estadoMeta(int id) {
+        return valor(snapshot.estadosMeta(), id);
+    }
+
+    /**
+     * Id do primeiro estado de meta cujo nome comeca com {@code prefixo}
+     * (sem diferenciar maiusculas e acentos), ou -1 se nenhum servir.
+     */
+    public int idEstadoMeta(String prefixo) {
+        String procurado = semAcentos(prefixo);
+        String[] estados = snapshot.estadosMeta();
+        for (int id = 0; id < estados.length; id++) {
+            if (estados[id] != null && semAcentos(estados[id]).startsWith(procurado)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Caminho inverso, usado na importacao: id pelo nome exato (sem diferenciar
+     * maiusculas e acentos), ou -1 se o nome nao existir.
+     */
+    public int idPrioridade(String nome) {
+        return id(snapshot.prioridades(), nome);
+    }
+
+    public int idCategoriaTarefa(String nome) {
+        return id(snapshot.categoriasTarefas(), nome);
+    }
+
+    public int idCategoriaEvento(String nome) {
+        return id(snapshot.categoriasEventos(), nome);
+    }
+
+    public int idCategoriaMeta(String nome) {
+        return id(snapshot.categoriasMetas(), nome);
+    }
+
+    public int idCorNota(String nome) {
+        return id(snapshot.coresNotas(), nome);
+    }
+
+    public int idEstadoMetaPorNome(String nome) {
+        return id(snapshot.estadosMeta(), nome);
+    }
+
+    /** Id do boleano com o valor dado, ou -1 se a tabela nao tiver esse valor. */
+    public int idBolean(boolean valor) {
+        int[] boleanos = snapshot.boleanos();
+        for (int id = 0; id < boleanos.length; id++) {
+            if (boleanos[id] == (valor ? 1 : 0)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    public boolean verdadeiro(int idBolean) {
+        int[] boleanos = snapshot.boleanos();
+        return idBolean >= 0 && idBolean < boleanos.length && boleanos[idBolean] == 1;
+    }
+
+    private Snapshot carregar() {
+        List<PrioridadesEntity> prioridades = prioridadesRepository.findAll();
+        List<CategoriaTarefasEntity> categoriasTarefas = categoriaTarefasRepository.findAll();
+        List<CategoriaEventoEntity> categoriasEventos = categoriaEventoRepository.findAll();
+        List<CategoriaMetaEntity> categoriasMetas = categoriaMetaRepository.findAll();
+        List<CorNotasEntity> coresNotas = corNotasRepository.findAll();
+        List<EstadoMetaEntity> estadosMeta = estadoMetaRepository.findAll();
+        List<BoleanEntity> boleanos = boleanRepository.findAll();
+
+        Map<String, Object> tabelas = new LinkedHashMap<>();
+        tabelas.put("prioridades", prioridades);
+        tabelas.put("categoriasTarefas", categoriasTarefas);
+        tabelas.put("categoriasEventos", categoriasEventos);
+        tabelas.put("categoriasMetas", categoriasMetas);
+        tabelas.put("coresNotas", coresNotas);
+        tabelas.put("estadosMeta", estadosMeta);
+        tabelas.put("boleanos", boleanos);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(tabelas);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar as tabelas de referencia", e);
+        }
+
+        int[] valoresBoleanos = new int[tamanho(boleanos, BoleanEntity::getId)];
+        Arrays.fill(valoresBoleanos, AUSENTE);
+        for (BoleanEntity bolean : boleanos) {
+            valoresBoleanos[bolean.getId().intValue()] = bolean.getBoleano();
+        }
+
+        return new Snapshot(
+                indexar(prioridades, PrioridadesEntity::getId, PrioridadesEntity::getPrioridade),
+                indexar(categoriasTarefas, CategoriaTarefasEntity::getId, CategoriaTarefasEntity::getCategoria),
+                indexar(categoriasEventos, CategoriaEventoEntity::getId, CategoriaEventoEntity::getCategoria),
+                indexar(categoriasMetas, CategoriaMetaEntity::getId, CategoriaMetaEntity::getCategoria),
+                indexar(coresNotas, CorNotasEntity::getId, CorNotasEntity::getCor),
+                indexar(estadosMeta, EstadoMetaEntity::getId, EstadoMetaEntity::getEstado),
+                valoresBoleanos,
+                new ReferenciasJson(json, etag(json)));
+    }
+
+    private static <T> String[] indexar(List<T> linhas, ToLongFunction<T> id, Function<T, String> valor) {
+        String[] indice = new String[tamanho(linhas, id)];
+        for (T linha : linhas) {
+            indice[(int) id.applyAsLong(linha)] = valor.apply(linha);
+        }
+        return indice;
+    }
+
+    private static <T> int tamanho(List<T> linhas, ToLongFunction<T> id) {
+        long maior = -1;
+        for (T linha : linhas) {
+            maior = Math.max(maior, id.applyAsLong(linha));
+        }
+        return Math.toIntExact(maior + 1);
+    }
+
+    private static String valor(String[] indice, int id) {
+        return id >= 0 && id < indice.length ? indice[id] : null;
+    }
+
+    private static int id(String[] indice, String nome) {
+        String procurado = semAcentos(nome);
+        for (int id = 0; id < indice.length; id++) {
+            if (indice[id] != null && semAcentos(indice[id]).equals(procurado)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static String semAcentos(String texto) {
+        return Normalizer.normalize(texto.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Snapshot(String[] prioridades, String[] categoriasTarefas, String[] categoriasEventos,
+            String[] categoriasMetas, String[] coresNotas, String[] estadosMeta, int[] boleanos,
+            ReferenciasJson json) {
+    }
+
+    public record ReferenciasJson(byte[] corpo, String etag) {
+    }
+}
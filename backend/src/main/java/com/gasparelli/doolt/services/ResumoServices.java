@@ -0,0 +1,288 @@
+package com.gasparelli.doolt.services;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.gasparelli.doolt.dto.Resumo;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.ResumoRepository;
+
+/**
+ * Contadores do resumo (painel inicial) de cada usuario. Sao montados com uma
+ * leitura das tarefas e metas do usuario no primeiro pedido e depois mantidos
+ * pelas escritas, depois do commit; cada pedido so monta a resposta a partir
+ * deles. Os eventos de hoje vem da arvore de intervalos da
+ * {@link AgendaServices}.
+ */
+@Service
+public class ResumoServices {
+
+    private static final int ESCALA_PROGRESSO = 10_000;
+
+    @Autowired
+    private ResumoRepository resumoRepository;
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Autowired
+    private AgendaServices agendaServices;
+
+    private final Map<Integer, Contadores> porUsuario = new ConcurrentHashMap<>();
+
+    /** Dono de cada tarefa/meta dos usuarios carregados, para aplicar remocoes pelo id. */
+    private final Map<Long, Integer> donoTarefa = new HashMap<>();
+
+    private final Map<Long, Integer> donoMeta = new HashMap<>();
+
+    private final AtomicLong geracao = new AtomicLong();
+
+    @Transactional(readOnly = true)
+    public Resumo resumo(int usuario) {
+        Contadores contadores = contadores(usuario);
+        LocalDate hoje = LocalDate.now();
+        int eventosHoje = agendaServices.sobrepostos(usuario, hoje.atStartOfDay(),
+                hoje.plusDays(1).atStartOfDay()).length;
+        return contadores.resumo(referenciasServices, eventosHoje);
+    }
+
+    /** Descarta os contadores (e a agenda) do usuario e monta tudo de novo a partir do banco. */
+    @Transactional(readOnly = true)
+    public Resumo reconstruir(int usuario) {
+        descartar(usuario);
+        agendaServices.descartar(usuario);
+        return resumo(usuario);
+    }
+
+    /** Descarta os contadores de todos os usuarios; cada um e remontado no proximo pedido. */
+    public synchronized void reconstruirTodos() {
+        geracao.incrementAndGet();
+        porUsuario.clear();
+        donoTarefa.clear();
+        donoMeta.clear();
+    }
+
+    public void tarefaSalva(TarefasEntity tarefa) {
+        AposCommit.executar(() -> aplicarTarefa(tarefa.getId(), tarefa.getIdUsuarioFk(), tarefa(tarefa)));
+    }
+
+    public void tarefasInseridas(List<TarefasEntity> tarefas) {
+        AposCommit.executar(() -> tarefas.forEach(t -> aplicarTarefa(t.getId(), t.getIdUsuarioFk(), tarefa(t))));
+    }
+
+    public void tarefasRemovidas(List<Long> ids) {
+        AposCommit.executar(() -> ids.forEach(id -> aplicarTarefa(id, 0, null)));
+    }
+
+    public void metaSalva(MetasEntity meta) {
+        AposCommit.executar(() -> aplicarMeta(meta.getId(), meta.getIdUsuarioFk(), meta(meta)));
+    }
+
+    public void metasInseridas(List<MetasEntity> metas) {
+        AposCommit.executar(() -> metas.forEach(m -> aplicarMeta(m.getId(), m.getIdUsuarioFk(), meta(m))));
+    }
+
+    public void metasRemovidas(List<Long> ids) {
+        AposCommit.executar(() -> ids.forEach(id -> aplicarMeta(id, 0, null)));
+    }
+
+    /** Chamado depois que um incremento de progresso ja foi gravado. */
+    public synchronized void metaProgrediu(Long idMeta, long delta) {
+        geracao.incrementAndGet();
+        Integer dono = donoMeta.get(idMeta);
+        Contadores contadores = dono != null ? porUsuario.get(dono) : null;
+        if (contadores != null) {
+            contadores.progredirMeta(idMeta, delta);
+        }
+    }
+
+    private synchronized void aplicarTarefa(Long id, int usuario, Tarefa nova) {
+        geracao.incrementAndGet();
+        Integer dono = donoTarefa.remove(id);
+        if (dono != null && porUsuario.get(dono) != null) {
+            porUsuario.get(dono).removerTarefa(id);
+        }
+        Contadores contadores = nova != null ? porUsuario.get(usuario) : null;
+        if (contadores != null) {
+            contadores.colocarTarefa(id, nova);
+            donoTarefa.put(id, usuario);
+        }
+    }
+
+    private synchronized void aplicarMeta(Long id, int usuario, Meta nova) {
+        geracao.incrementAndGet();
+        Integer dono = donoMeta.remove(id);
+        if (dono != null && porUsuario.get(dono) != null) {
+            porUsuario.get(dono).removerMeta(id);
+        }
+        Contadores contadores = nova != null ? porUsuario.get(usuario) : null;
+        if (contadores != null) {
+            contadores.colocarMeta(id, nova);
+            donoMeta.put(id, usuario);
+        }
+    }
+
+    private synchronized void descartar(int usuario) {
+        geracao.incrementAndGet();
+        Contadores contadores = porUsuario.remove(usuario);
+        if (contadores != null) {
+            contadores.tarefas.keySet().forEach(donoTarefa::remove);
+            contadores.metas.keySet().forEach(donoMeta::remove);
+        }
+    }
+
+    /*
+     * Como na agenda: se alguma escrita for aplicada durante a leitura, os
+     * contadores lidos servem so para este pedido e nao ficam no cache.
+     */
+    private Contadores contadores(int usuario) {
+        Contadores contadores = porUsuario.get(usuario);
+        if (contadores != null) {
+            return contadores;
+        }
+        long geracaoInicial = geracao.get();
+        Contadores lidos = new Contadores();
+        resumoRepository.paraCadaTarefa(usuario, rs -> lidos.colocarTarefa(rs.getLong(1),
+                new Tarefa(rs.getInt(2), rs.getInt(3), rs.getInt(4))));
+        resumoRepository.paraCadaMeta(usuario, rs -> lidos.colocarMeta(rs.getLong(1),
+                new Meta(rs.getInt(2), rs.getLong(3))));
+        synchronized (this) {
+            if (geracao.get() != geracaoInicial) {
+                return lidos;
+            }
+            contadores = porUsuario.get(usuario);
+            if (contadores != null) {
+                return contadores;
+            }
+            porUsuario.put(usuario, lidos);
+            lidos.tarefas.keySet().forEach(id -> donoTarefa.put(id, usuario));
+            lidos.metas.keySet().forEach(id -> donoMeta.put(id, usuario));
+            return lidos;
+        }
+    }
+
+    private static Tarefa tarefa(TarefasEntity tarefa) {
+        return new Tarefa(tarefa.getIdPrioridadeFk(), tarefa.getIdCategoriaFk(), tarefa.getIdFeitoFk());
+    }
+
+    private static Meta meta(MetasEntity meta) {
+        return new Meta(meta.getMeta(), meta.getAtual());
+    }
+
+    private record Tarefa(int prioridade, int categoria, int feito) {
+    }
+
+    private record Meta(int meta, long atual) {
+
+        boolean concluida() {
+            return meta > 0 && atual >= meta;
+        }
+
+        /** Fracao concluida em decimos de milesimo (0 a {@value ResumoServices#ESCALA_PROGRESSO}). */
+        long progresso() {
+            if (meta <= 0) {
+                return 0;
+            }
+            return Math.max(0, Math.min(ESCALA_PROGRESSO, atual * ESCALA_PROGRESSO / meta));
+        }
+    }
+
+    /** Contadores de um usuario; as somas sao inteiras para nao acumular erro. */
+    private static final class Contadores {
+
+        private final Map<Long, Tarefa> tarefas = new HashMap<>();
+
+        private final Map<Integer, Integer> porPrioridade = new HashMap<>();
+
+        private final Map<Integer, Integer> porCategoria = new HashMap<>();
+
+        private final Map<Integer, Integer> porFeito = new HashMap<>();
+
+        private final Map<Long, Meta> metas = new HashMap<>();
+
+        private int metasConcluidas;
+
+        private long somaProgresso;
+
+        synchronized void colocarTarefa(Long id, Tarefa tarefa) {
+            removerTarefa(id);
+            tarefas.put(id, tarefa);
+            porPrioridade.merge(tarefa.prioridade(), 1, Integer::sum);
+            porCategoria.merge(tarefa.categoria(), 1, Integer::sum);
+            porFeito.merge(tarefa.feito(), 1, Integer::sum);
+        }
+
+        synchronized void removerTarefa(Long id) {
+            Tarefa anterior = tarefas.remove(id);
+            if (anterior != null) {
+                decrementar(porPrioridade, anterior.prioridade());
+                decrementar(porCategoria, anterior.categoria());
+                decrementar(porFeito, anterior.feito());
+            }
+        }
+
+        synchronized void colocarMeta(Long id, Meta meta) {
+            removerMeta(id);
+            metas.put(id, meta);
+            metasConcluidas += meta.concluida() ? 1 : 0;
+            somaProgresso += meta.progresso();
+        }
+
+        synchronized void removerMeta(Long id) {
+            Meta anterior = metas.remove(id);
+            if (anterior != null) {
+                metasConcluidas -= anterior.concluida() ? 1 : 0;
+                somaProgresso -= anterior.progresso();
+            }
+        }
+
+        synchronized void progredirMeta(Long id, long delta) {
+            Meta anterior = metas.get(id);
+            if (anterior != null) {
+                colocarMeta(id, new Meta(anterior.meta(), anterior.atual() + delta));
+            }
+        }
+
+        synchronized Resumo resumo(ReferenciasServices referencias, int eventosHoje) {
+            int feitas = 0;
+            for (Map.Entry<Integer, Integer> feito : porFeito.entrySet()) {
+                if (referencias.verdadeiro(feito.getKey())) {
+                    feitas += feito.getValue();
+                }
+            }
+            double progressoMedio = metas.isEmpty() ? 0
+                    : Math.round(somaProgresso * 1000.0 / metas.size() / ESCALA_PROGRESSO) / 10.0;
+            return new Resumo(tarefas.size(), feitas, tarefas.size() - feitas,
+                    porNome(porPrioridade, referencias::prioridade),
+                    porNome(porCategoria, referencias::categoriaTarefa),
+                    metas.size(), metasConcluidas, progressoMedio, eventosHoje);
+        }
+
+        private static Map<String, Integer> porNome(Map<Integer, Integer> contagens, IntFunction<String> nome) {
+            Map<String, Integer> resultado = new LinkedHashMap<>();
+            contagens.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> {
+                        String chave = nome.apply(e.getKey());
+                        resultado.merge(chave != null ? chave : String.valueOf(e.getKey()), e.getValue(),
+                                Integer::sum);
+                    });
+            return resultado;
+        }
+
+        private static void decrementar(Map<Integer, Integer> contagens, int chave) {
+            contagens.computeIfPresent(chave, (k, n) -> n == 1 ? null : n - 1);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.gasparelli.doolt.services;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.gasparelli.doolt.dto.Sincronizacao;
+import com.gasparelli.doolt.model.EventosEntity;
+import com.gasparelli.doolt.model.MetasEntity;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.AlteracoesRepository;
+import com.gasparelli.doolt.repository.AlteracoesRepository.Alteracao;
+import com.gasparelli.doolt.repository.EventosRepository;
+import com.gasparelli.doolt.repository.MetasRepository;
+import com.gasparelli.doolt.repository.NotasRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
+import com.gasparelli.doolt.repository.TarefasRepository;
+
+@Service
+public class SincronizacaoServices {
+
+    private static final int LIMITE_PAGINA = 5000;
+
+    @Autowired
+    private AlteracoesRepository alteracoesRepository;
+
+    @Autowired
+    private TarefasRepository tarefasRepository;
+
+    @Autowired
+    private EventosRepository eventosRepository;
+
+    @Autowired
+    private MetasRepository metasRepository;
+
+    @Autowired
+    private NotasRepository notasRepository;
+
+    /**
+     * Le o log e as linhas na mesma transacao de leitura, entao o que volta e
+     * um retrato consistente do banco ate {@code cursor}.
+     */
+    @Transactional(readOnly = true)
+    public Sincronizacao alteracoes(int usuario, long desde, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        List<Alteracao> alteracoes = alteracoesRepository.listar(usuario, desde, tamanho);
+
+        Map<TabelaSincronizada, List<Long>> alterados = new EnumMap<>(TabelaSincronizada.class);
+        Map<String, List<Long>> excluidos = new LinkedHashMap<>();
+        long cursor = desde;
+        for (Alteracao alteracao : alteracoes) {
+            cursor = alteracao.seq();
+            if (alteracao.excluido()) {
+                excluidos.computeIfAbsent(alteracao.tabela().nome(), t -> new ArrayList<>()).add(alteracao.idLinha());
+            } else {
+                alterados.computeIfAbsent(alteracao.tabela(), t -> new ArrayList<>()).add(alteracao.idLinha());
+            }
+        }
+        return new Sincronizacao(cursor, alteracoes.size() < tamanho,
+                buscar(tarefasRepository, alterados.get(TabelaSincronizada.TAREFAS), TarefasEntity::getVersao),
+                buscar(eventosRepository, alterados.get(TabelaSincronizada.EVENTOS), EventosEntity::getVersao),
+                buscar(metasRepository, alterados.get(TabelaSincronizada.METAS), MetasEntity::getVersao),
+                buscar(notasRepository, alterados.get(TabelaSincronizada.NOTAS), NotasEntity::getVersao),
+                excluidos);
+    }
+
+    private static <T> List<T> buscar(JpaRepository<T, Long> repository, List<Long> ids, Function<T, Long> versao) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<T> linhas = new ArrayList<>(repository.findAllById(ids));
+        linhas.sort((a, b) -> Long.compare(versao.apply(a), versao.apply(b)));
+        return linhas;
+    }
+}
@@ -0,0 +1,179 @@
+package com.gasparelli.doolt.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.dto.TagFaceta;
+import com.gasparelli.doolt.model.NotasEntity;
+import com.gasparelli.doolt.repository.TagsRepository;
+import com.gasparelli.doolt.util.ListaIdsCompactada;
+import com.gasparelli.doolt.util.NormalizadorTags;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Indice invertido de tags por usuario, em memoria: para cada usuario e tag
+ * uma {@link ListaIdsCompactada} com os ids das notas. As tabelas
+ * {@code tags}/{@code nota_tag} sao a copia persistente e so sao lidas na
+ * carga inicial.
+ */
+@Service
+@DependsOn("migracoesSQLite")
+public class TagsServices {
+
+    @Autowired
+    private TagsRepository tagsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Shards shards;
+
+    private final Map<Integer, Map<String, ListaIdsCompactada>> indices = new ConcurrentHashMap<>();
+
+    private final Map<Long, TagsNota> tagsPorNota = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void carregar() {
+        Map<Integer, Map<String, List<Long>>> vinculos = new HashMap<>();
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        shards.emCada(() -> leitura.executeWithoutResult(status -> tagsRepository.paraCadaVinculo(rs -> {
+            int usuario = rs.getInt(1);
+            long idNota = rs.getLong(2);
+            String nome = rs.getString(3);
+            vinculos.computeIfAbsent(usuario, u -> new HashMap<>())
+                    .computeIfAbsent(nome, n -> new ArrayList<>())
+                    .add(idNota);
+        })));
+
+        indices.clear();
+        tagsPorNota.clear();
+        vinculos.forEach((usuario, porTag) -> {
+            Map<String, ListaIdsCompactada> indice = new ConcurrentHashMap<>();
+            porTag.forEach((nome, ids) -> {
+                long[] ordenados = ids.stream().mapToLong(Long::longValue).toArray();
+                indice.put(nome, ListaIdsCompactada.de(ordenados, ordenados.length));
+                for (Long id : ids) {
+                    tagsPorNota.computeIfAbsent(id, i -> new TagsNota(usuario, new ArrayList<>())).nomes().add(nome);
+                }
+            });
+            indices.put(usuario, indice);
+        });
+    }
+
+    /** Grava as tags da nota na transacao atual e atualiza o indice depois do commit. */
+    public void notaSalva(NotasEntity nota) {
+        List<String> nomes = NormalizadorTags.normalizar(nota.getTags());
+        tagsRepository.substituirTags(nota.getId(), nomes);
+        AposCommit.executar(() -> indexar(nota.getIdUsuarioFk(), nota.getId(), nomes));
+    }
+
+    public void notasInseridas(List<NotasEntity> notas) {
+        Map<Long, List<String>> nomesPorNota = new LinkedHashMap<>();
+        for (NotasEntity nota : notas) {
+            nomesPorNota.put(nota.getId(), NormalizadorTags.normalizar(nota.getTags()));
+        }
+        tagsRepository.inserirTags(nomesPorNota);
+        AposCommit.executar(() -> indexarLote(notas, nomesPorNota));
+    }
+
+    public void notasRemovidas(List<Long> ids) {
+        tagsRepository.removerNotas(ids);
+        AposCommit.executar(() -> ids.forEach(this::desindexar));
+    }
+
+    public List<TagFaceta> facetas(int usuario) {
+        Map<String, ListaIdsCompactada> indice = indices.getOrDefault(usuario, Map.of());
+        List<TagFaceta> facetas = new ArrayList<>(indice.size());
+        indice.forEach((nome, ids) -> facetas.add(new TagFaceta(nome, ids.tamanho())));
+        facetas.sort(Comparator.comparingInt(TagFaceta::quantidade).reversed().thenComparing(TagFaceta::tag));
+        return facetas;
+    }
+
+    /**
+     * Ids (em ordem crescente) das notas do usuario que tem todas as tags
+     * ({@code todas = true}) ou pelo menos uma delas.
+     */
+    public long[] filtrar(int usuario, List<String> tags, boolean todas) {
+        Map<String, ListaIdsCompactada> indice = indices.getOrDefault(usuario, Map.of());
+        List<ListaIdsCompactada> listas = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            ListaIdsCompactada ids = indice.get(NormalizadorTags.normalizarNome(tag));
+            if (ids == null && todas) {
+                return new long[0];
+            }
+            if (ids != null) {
+                listas.add(ids);
+            }
+        }
+        return todas ? ListaIdsCompactada.intersecao(listas) : ListaIdsCompactada.uniao(listas);
+    }
+
+    private synchronized void indexar(int usuario, long idNota, List<String> nomes) {
+        desindexar(idNota);
+        if (nomes.isEmpty()) {
+            return;
+        }
+        Map<String, ListaIdsCompactada> indice = indices.computeIfAbsent(usuario, u -> new ConcurrentHashMap<>());
+        for (String nome : nomes) {
+            indice.compute(nome, (n, ids) -> (ids == null ? ListaIdsCompactada.VAZIA : ids).com(idNota));
+        }
+        tagsPorNota.put(idNota, new TagsNota(usuario, nomes));
+    }
+
+    /** Como {@link #indexar}, mas mescla os ids de cada tag de uma vez. */
+    private synchronized void indexarLote(List<NotasEntity> notas, Map<Long, List<String>> nomesPorNota) {
+        Map<Integer, Map<String, List<Long>>> novos = new HashMap<>();
+        for (NotasEntity nota : notas) {
+            desindexar(nota.getId());
+            List<String> nomes = nomesPorNota.get(nota.getId());
+            if (nomes.isEmpty()) {
+                continue;
+            }
+            Map<String, List<Long>> porTag = novos.computeIfAbsent(nota.getIdUsuarioFk(), u -> new HashMap<>());
+            for (String nome : nomes) {
+                porTag.computeIfAbsent(nome, n -> new ArrayList<>()).add(nota.getId());
+            }
+            tagsPorNota.put(nota.getId(), new TagsNota(nota.getIdUsuarioFk(), nomes));
+        }
+        novos.forEach((usuario, porTag) -> {
+            Map<String, ListaIdsCompactada> indice = indices.computeIfAbsent(usuario, u -> new ConcurrentHashMap<>());
+            porTag.forEach((nome, ids) -> indice.compute(nome, (n, atuais) -> (atuais == null
+                    ? ListaIdsCompactada.VAZIA : atuais).comTodos(ids.stream().mapToLong(Long::longValue).toArray())));
+        });
+    }
+
+    private synchronized void desindexar(long idNota) {
+        TagsNota anterior = tagsPorNota.remove(idNota);
+        if (anterior == null) {
+            return;
+        }
+        Map<String, ListaIdsCompactada> indice = indices.get(anterior.usuario());
+        if (indice == null) {
+            return;
+        }
+        for (String nome : anterior.nomes()) {
+            indice.computeIfPresent(nome, (n, ids) -> {
+                ListaIdsCompactada restantes = ids.sem(idNota);
+                return restantes.tamanho() == 0 ? null : restantes;
+            });
+        }
+    }
+
+    private record TagsNota(int usuario, List<String> nomes) {
+    }
+}
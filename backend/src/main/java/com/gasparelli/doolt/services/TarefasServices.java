@@ -1,25 +1,142 @@
 package com.gasparelli.doolt.services;
 
+import com.gasparelli.doolt.dto.Exclusao;
+import com.gasparelli.doolt.dto.Lembrete;
+import com.gasparelli.doolt.dto.TarefaResumo;
 import com.gasparelli.doolt.model.TarefasEntity;
+import com.gasparelli.doolt.repository.AtualizacaoParcialRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository;
+import com.gasparelli.doolt.repository.ExclusaoRepository.Excluida;
+import com.gasparelli.doolt.repository.InsercaoLoteRepository;
+import com.gasparelli.doolt.repository.TabelaSincronizada;
 import com.gasparelli.doolt.repository.TarefasRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class TarefasServices {
 
+    private static final int LIMITE_PAGINA = 200;
+
     @Autowired
     private TarefasRepository tarefasRepository;
 
+    @Autowired
+    private InsercaoLoteRepository insercaoLoteRepository;
+
+    @Autowired
+    private AtualizacaoParcialRepository atualizacaoParcialRepository;
+
+    @Autowired
+    private ExclusaoRepository exclusaoRepository;
+
+    @Autowired
+    private LembretesServices lembretesServices;
+
+    @Autowired
+    private ReferenciasServices referenciasServices;
+
+    @Autowired
+    private ResumoServices resumoServices;
+
+    @Autowired
+    private GrupoCommit grupoCommit;
+
+    @Autowired
+    private CacheEntidades cacheEntidades;
+
     public TarefasEntity salvarTarefa(TarefasEntity tarefas) {
-        return tarefasRepository.save(tarefas);
+        Long id = tarefas.getId();
+        return grupoCommit.executar(() -> {
+            tarefas.setId(id);
+            TarefasEntity salva = tarefasRepository.save(tarefas);
+            lembretesServices.tarefaSalva(salva);
+            resumoServices.tarefaSalva(salva);
+            return salva;
+        });
+    }
+
+    @Transactional
+    public List<TarefasEntity> salvarTarefasEmLote(List<TarefasEntity> tarefas) {
+        insercaoLoteRepository.inserirTarefas(tarefas);
+        cacheEntidades.linhasInseridas();
+        lembretesServices.tarefasInseridas(tarefas);
+        resumoServices.tarefasInseridas(tarefas);
+        return tarefas;
+    }
+
+    /**
+     * Grava so os campos enviados, sem ler a linha antes. Devolve null se a tarefa
+     * nao existe ou e de outro usuario.
+     */
+    public TarefasEntity atualizarTarefa(Long id, int usuario, Map<String, Object> campos) {
+        Map<String, Object> colunas = AtualizacaoParcialRepository.colunasTarefa(campos);
+        return grupoCommit.executar(() -> {
+            TarefasEntity atualizada = atualizacaoParcialRepository.atualizarTarefa(id, usuario, colunas);
+            if (atualizada != null) {
+                cacheEntidades.linhaAtualizada(TarefasEntity.class, id, colunas.containsKey("titulo"));
+                lembretesServices.tarefaSalva(atualizada);
+                resumoServices.tarefaSalva(atualizada);
+            }
+            return atualizada;
+        });
     }
 
+    @Transactional(readOnly = true)
     public TarefasEntity procurarTarefa(String titulo) {
         return tarefasRepository.findByTitulo(titulo);
     }
 
-    public void deletarTarefaPorID(Long id) {
-        tarefasRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public List<TarefasEntity> listarTarefas(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return tarefasRepository.findByIdUsuarioFkAndIdGreaterThanOrderByIdAsc(usuario, after, Limit.of(tamanho));
+    }
+
+    @Transactional(readOnly = true)
+    public List<TarefaResumo> listarTarefasResumo(int usuario, Long after, int limit) {
+        int tamanho = Math.max(1, Math.min(limit, LIMITE_PAGINA));
+        return tarefasRepository.findResumos(usuario, after, Limit.of(tamanho));
+    }
+
+    public List<Lembrete> consumirLembretes(int usuario) {
+        return lembretesServices.consumirPendentes(usuario);
+    }
+
+    /** Exclui a linha se ela for de {@code usuario}; devolve false se nao havia o que excluir. */
+    @Transactional
+    public boolean deletarTarefaPorID(int usuario, Long id) {
+        List<Excluida> excluidas = exclusaoRepository.excluirPorIds(TabelaSincronizada.TAREFAS, usuario, List.of(id));
+        return tarefasExcluidas(excluidas).excluidas() > 0;
+    }
+
+    @Transactional
+    public Exclusao deletarTarefas(int usuario, List<Long> ids) {
+        return tarefasExcluidas(exclusaoRepository.excluirPorIds(TabelaSincronizada.TAREFAS, usuario, ids));
+    }
+
+    /** Todas as tarefas concluidas do usuario, num unico comando. */
+    @Transactional
+    public Exclusao deletarTarefasFeitas(int usuario) {
+        int feito = referenciasServices.idBolean(true);
+        if (feito < 0) {
+            return new Exclusao(0, List.of());
+        }
+        return tarefasExcluidas(exclusaoRepository.excluirTarefasFeitas(usuario, feito));
+    }
+
+    private Exclusao tarefasExcluidas(List<Excluida> excluidas) {
+        List<Long> ids = excluidas.stream().map(Excluida::id).toList();
+        if (!ids.isEmpty()) {
+            cacheEntidades.linhasExcluidas(TarefasEntity.class, ids);
+            lembretesServices.tarefasRemovidas(ids);
+            resumoServices.tarefasRemovidas(ids);
+        }
+        return new Exclusao(ids.size(), ids);
     }
 }
@@ -0,0 +1,163 @@
+package com.gasparelli.doolt.services;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gasparelli.doolt.dto.Sessao;
+import com.gasparelli.doolt.dto.TokenAcesso;
+import com.gasparelli.doolt.repository.RevogacoesRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Tokens de sessao assinados com HMAC-SHA256, verificados sem ir ao banco. O
+ * token carrega (usuario, serie, expiracao); a serie cresce a cada emissao e
+ * comeca no segundo atual deslocado 20 bits, entao nao se repete entre
+ * reinicios. Revogacoes ficam num bitmap esparso de series (palavras de 64
+ * bits) mais a menor serie valida de cada usuario, as duas copiadas no banco.
+ */
+@Service
+@DependsOn("migracoesSQLite")
+public class TokensServices {
+
+    private static final Logger log = LoggerFactory.getLogger(TokensServices.class);
+
+    private static final int BYTES_CONTEUDO = 24;
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder BASE64_LEITURA = Base64.getUrlDecoder();
+
+    @Autowired
+    private RevogacoesRepository revogacoesRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Chave HMAC em base64; sem ela e gerada uma por execucao e os tokens morrem no reinicio. */
+    @Value("${doolt.auth.segredo:}")
+    private String segredo;
+
+    @Value("${doolt.auth.validade-horas:24}")
+    private long validadeHoras;
+
+    private Mac prototipo;
+
+    private final AtomicLong proximaSerie = new AtomicLong(Instant.now().getEpochSecond() << 20);
+
+    private final Map<Long, Long> revogadas = new ConcurrentHashMap<>();
+
+    private final Map<Long, Long> serieMinimaPorUsuario = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void iniciar() throws GeneralSecurityException {
+        byte[] chave;
+        if (segredo.isBlank()) {
+            log.warn("doolt.auth.segredo nao definido: usando uma chave temporaria");
+            chave = new byte[32];
+            new SecureRandom().nextBytes(chave);
+        } else {
+            chave = Base64.getDecoder().decode(segredo.trim());
+        }
+        prototipo = Mac.getInstance("HmacSHA256");
+        prototipo.init(new SecretKeySpec(chave, "HmacSHA256"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            revogacoesRepository.removerExpirados(Instant.now().getEpochSecond());
+            revogacoesRepository.paraCadaToken(rs -> marcar(rs.getLong(1)));
+            revogacoesRepository.paraCadaUsuario(rs -> serieMinimaPorUsuario.put(rs.getLong(1), rs.getLong(2)));
+        });
+    }
+
+    public TokenAcesso emitir(long idUsuario) {
+        long expiraEm = Instant.now().getEpochSecond() + validadeHoras * 3600;
+        byte[] conteudo = ByteBuffer.allocate(BYTES_CONTEUDO)
+                .putLong(idUsuario)
+                .putLong(proximaSerie.getAndIncrement())
+                .putLong(expiraEm)
+                .array();
+        String token = BASE64.encodeToString(conteudo) + "." + BASE64.encodeToString(assinar(conteudo));
+        return new TokenAcesso(token, idUsuario, expiraEm);
+    }
+
+    /** Devolve a sessao do token, ou null se ele for invalido, expirado ou revogado. */
+    public Sessao verificar(String token) {
+        if (token == null) {
+            return null;
+        }
+        int ponto = token.indexOf('.');
+        if (ponto <= 0) {
+            return null;
+        }
+        byte[] conteudo;
+        byte[] assinatura;
+        try {
+            conteudo = BASE64_LEITURA.decode(token.substring(0, ponto));
+            assinatura = BASE64_LEITURA.decode(token.substring(ponto + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (conteudo.length != BYTES_CONTEUDO || !MessageDigest.isEqual(assinatura, assinar(conteudo))) {
+            return null;
+        }
+        ByteBuffer leitura = ByteBuffer.wrap(conteudo);
+        Sessao sessao = new Sessao(leitura.getLong(), leitura.getLong(), leitura.getLong());
+        if (sessao.expiraEm() <= Instant.now().getEpochSecond() || revogada(sessao)) {
+            return null;
+        }
+        return sessao;
+    }
+
+    /** Revoga um token (logout); a revogacao vale depois do commit. */
+    public void revogar(Sessao sessao) {
+        revogacoesRepository.revogarToken(sessao.serie(), sessao.expiraEm());
+        AposCommit.executar(() -> marcar(sessao.serie()));
+    }
+
+    /** Invalida todos os tokens ja emitidos para o usuario. */
+    public void revogarUsuario(long idUsuario) {
+        long serieMinima = proximaSerie.get();
+        revogacoesRepository.revogarUsuario(idUsuario, serieMinima);
+        AposCommit.executar(() -> serieMinimaPorUsuario.merge(idUsuario, serieMinima, Math::max));
+    }
+
+    private boolean revogada(Sessao sessao) {
+        Long minima = serieMinimaPorUsuario.get(sessao.idUsuario());
+        if (minima != null && sessao.serie() < minima) {
+            return true;
+        }
+        Long palavra = revogadas.get(sessao.serie() >>> 6);
+        return palavra != null && (palavra & (1L << sessao.serie())) != 0;
+    }
+
+    private void marcar(long serie) {
+        revogadas.merge(serie >>> 6, 1L << serie, (a, b) -> a | b);
+    }
+
+    private byte[] assinar(byte[] conteudo) {
+        try {
+            return ((Mac) prototipo.clone()).doFinal(conteudo);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,10 +1,22 @@
 package com.gasparelli.doolt.services;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.gasparelli.doolt.config.Shards;
+import com.gasparelli.doolt.dto.RelatorioImportacao;
+import com.gasparelli.doolt.dto.Resumo;
+import com.gasparelli.doolt.dto.Sessao;
+import com.gasparelli.doolt.dto.TokenAcesso;
+import com.gasparelli.doolt.dto.UsuarioPublico;
 import com.gasparelli.doolt.model.UsuarioEntity;
 import com.gasparelli.doolt.repository.UsuarioRepository;
+import com.gasparelli.doolt.util.Senhas;
 
 @Service
 public class UsuarioServices {
@@ -12,15 +24,118 @@ public class UsuarioServices {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private TokensServices tokensServices;
+
+    @Autowired
+    private ResumoServices resumoServices;
+
+    @Autowired
+    private ExportacaoServices exportacaoServices;
+
+    @Autowired
+    private ImportacaoServices importacaoServices;
+
+    @Autowired
+    private Shards shards;
+
+    /**
+     * Cadastro: sempre cria um usuario novo, mesmo que o corpo traga um id. A
+     * senha sempre passa pelo hash, mesmo que ja pareca um, para o cliente nao
+     * escolher sal nem iteracoes.
+     */
+    @Transactional
     public UsuarioEntity salvarUsuario(UsuarioEntity user){
+        user.setId(null);
+        if (user.getEmail() != null) {
+            user.setEmail(user.getEmail().trim());
+        }
+        if (user.getSenha() != null) {
+            user.setSenha(Senhas.gerar(user.getSenha()));
+        }
         return usuarioRepository.save(user);
     }
 
+    /**
+     * Troca o perfil do usuario pelo do corpo; sem senha no corpo a atual e
+     * mantida. Uma senha nova revoga os tokens ja emitidos. Devolve null se o
+     * usuario nao existir.
+     */
+    @Transactional
+    public UsuarioEntity atualizarUsuario(Long id, UsuarioEntity dados) {
+        UsuarioEntity usuario = usuarioRepository.findById(id).orElse(null);
+        if (usuario == null) {
+            return null;
+        }
+        usuario.setNome(dados.getNome());
+        usuario.setEmail(dados.getEmail() != null ? dados.getEmail().trim() : null);
+        usuario.setTelefone(dados.getTelefone());
+        usuario.setCargo(dados.getCargo());
+        usuario.setMembroDesde(dados.getMembroDesde());
+        usuario.setSobreMim(dados.getSobreMim());
+        if (dados.getSenha() != null) {
+            usuario.setSenha(Senhas.gerar(dados.getSenha()));
+            tokensServices.revogarUsuario(id);
+        }
+        return usuario;
+    }
+
+    @Transactional(readOnly = true)
     public UsuarioEntity procurarUsuario(String email, String senha){
-        return usuarioRepository.findByEmailAndSenha(email, senha);
+        UsuarioEntity usuario = usuarioRepository.findFirstByEmailOrderByIdAsc(email.trim());
+        boolean confere = Senhas.confere(senha, usuario != null ? usuario.getSenha() : null);
+        return confere ? usuario : null;
+    }
+
+    /** Confere a senha uma vez e devolve um token assinado, ou null se o login falhar. */
+    @Transactional(readOnly = true)
+    public TokenAcesso login(String email, String senha) {
+        if (email == null) {
+            return null;
+        }
+        UsuarioEntity usuario = usuarioRepository.findFirstByEmailOrderByIdAsc(email.trim());
+        if (!Senhas.confere(senha, usuario != null ? usuario.getSenha() : null)) {
+            return null;
+        }
+        return tokensServices.emitir(usuario.getId());
+    }
+
+    @Transactional
+    public void logout(Sessao sessao) {
+        tokensServices.revogar(sessao);
+    }
+
+    /** Perfil sem email nem senha, lido so com as colunas publicas. */
+    @Transactional(readOnly = true)
+    public UsuarioPublico buscarPublico(Long id) {
+        return usuarioRepository.findPublico(id);
+    }
+
+    public Resumo resumo(int id) {
+        return resumoServices.resumo(id);
+    }
+
+    public Resumo reconstruirResumo(int id) {
+        return resumoServices.reconstruir(id);
+    }
+
+    /* Exportacao e importacao rodam na thread assincrona da resposta, fora do escopo do ShardFiltro. */
+    public void exportar(int id, ExportacaoServices.Formato formato, OutputStream saida) throws IOException {
+        try (Shards.Escopo escopo = shards.usar(id)) {
+            exportacaoServices.exportar(id, formato, saida);
+        }
+    }
+
+    public RelatorioImportacao importar(int id, InputStream entrada, ImportacaoServices.Ouvinte ouvinte)
+            throws IOException {
+        try (Shards.Escopo escopo = shards.usar(id)) {
+            return importacaoServices.importar(id, entrada, ouvinte);
+        }
     }
 
+    @Transactional
     public void deletarUsuarioPorID(Long id) {
         usuarioRepository.deleteById(id);
+        tokensServices.revogarUsuario(id);
     }
 }
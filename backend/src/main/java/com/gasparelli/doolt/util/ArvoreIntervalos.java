@@ -0,0 +1,204 @@
+package com.gasparelli.doolt.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Arvore de intervalos imutavel sobre arrays ordenados pelo inicio. A arvore
+ * e implicita: o no de um trecho {@code [lo, hi)} e o elemento do meio e
+ * {@code maiorFim} guarda o maior fim da subarvore, o que permite descartar
+ * ramos inteiros. Consultas de sobreposicao custam O(log n + k); inclusoes e
+ * remocoes copiam os arrays (O(n)) e devolvem uma nova arvore.
+ *
+ * Os intervalos sao semiabertos: {@code [inicio, fim)}.
+ */
+public final class ArvoreIntervalos {
+
+    public static final ArvoreIntervalos VAZIA = new ArvoreIntervalos(new long[0], new long[0], new long[0]);
+
+    private final long[] inicios;
+
+    private final long[] fins;
+
+    private final long[] ids;
+
+    private final long[] maiorFim;
+
+    private ArvoreIntervalos(long[] inicios, long[] fins, long[] ids) {
+        this.inicios = inicios;
+        this.fins = fins;
+        this.ids = ids;
+        this.maiorFim = new long[ids.length];
+        construir(0, ids.length);
+    }
+
+    public static ArvoreIntervalos de(long[] ids, long[] inicios, long[] fins) {
+        Integer[] ordem = new Integer[ids.length];
+        for (int i = 0; i < ordem.length; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> inicios[a] != inicios[b] ? Long.compare(inicios[a], inicios[b])
+                : Long.compare(ids[a], ids[b]));
+        long[] novosInicios = new long[ids.length];
+        long[] novosFins = new long[ids.length];
+        long[] novosIds = new long[ids.length];
+        for (int i = 0; i < ordem.length; i++) {
+            novosInicios[i] = inicios[ordem[i]];
+            novosFins[i] = fins[ordem[i]];
+            novosIds[i] = ids[ordem[i]];
+        }
+        return new ArvoreIntervalos(novosInicios, novosFins, novosIds);
+    }
+
+    public int tamanho() {
+        return ids.length;
+    }
+
+    /** Inclui ou substitui o intervalo do id. */
+    public ArvoreIntervalos com(long id, long inicio, long fim) {
+        ArvoreIntervalos base = sem(id);
+        int n = base.ids.length;
+        int posicao = 0;
+        while (posicao < n && base.inicios[posicao] <= inicio) {
+            posicao++;
+        }
+        long[] novosInicios = inserir(base.inicios, posicao, inicio);
+        long[] novosFins = inserir(base.fins, posicao, fim);
+        long[] novosIds = inserir(base.ids, posicao, id);
+        return new ArvoreIntervalos(novosInicios, novosFins, novosIds);
+    }
+
+    /** Inclui ou substitui varios intervalos reconstruindo a arvore uma vez so. */
+    public ArvoreIntervalos comTodos(long[] novosIds, long[] novosInicios, long[] novosFins) {
+        Set<Long> substituidos = new HashSet<>();
+        for (long id : novosIds) {
+            substituidos.add(id);
+        }
+        int n = ids.length + novosIds.length;
+        long[] todosIds = new long[n];
+        long[] todosInicios = new long[n];
+        long[] todosFins = new long[n];
+        int total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (!substituidos.contains(ids[i])) {
+                todosIds[total] = ids[i];
+                todosInicios[total] = inicios[i];
+                todosFins[total++] = fins[i];
+            }
+        }
+        System.arraycopy(novosIds, 0, todosIds, total, novosIds.length);
+        System.arraycopy(novosInicios, 0, todosInicios, total, novosIds.length);
+        System.arraycopy(novosFins, 0, todosFins, total, novosIds.length);
+        total += novosIds.length;
+        return de(Arrays.copyOf(todosIds, total), Arrays.copyOf(todosInicios, total),
+                Arrays.copyOf(todosFins, total));
+    }
+
+    public ArvoreIntervalos sem(long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return new ArvoreIntervalos(remover(inicios, i), remover(fins, i), remover(ids, i));
+            }
+        }
+        return this;
+    }
+
+    /** Remove varios ids numa passada so, mantendo a ordem por inicio. */
+    public ArvoreIntervalos semTodos(Set<Long> removidos) {
+        long[] novosInicios = new long[ids.length];
+        long[] novosFins = new long[ids.length];
+        long[] novosIds = new long[ids.length];
+        int total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (!removidos.contains(ids[i])) {
+                novosInicios[total] = inicios[i];
+                novosFins[total] = fins[i];
+                novosIds[total++] = ids[i];
+            }
+        }
+        if (total == ids.length) {
+            return this;
+        }
+        return new ArvoreIntervalos(Arrays.copyOf(novosInicios, total), Arrays.copyOf(novosFins, total),
+                Arrays.copyOf(novosIds, total));
+    }
+
+    /** Ids dos intervalos que se sobrepoem a {@code [inicio, fim)}, em ordem de inicio. */
+    public long[] sobrepostos(long inicio, long fim) {
+        List<Integer> posicoes = new ArrayList<>();
+        buscar(0, ids.length, inicio, fim, posicoes);
+        long[] resultado = new long[posicoes.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = ids[posicoes.get(i)];
+        }
+        return resultado;
+    }
+
+    /**
+     * Periodos ocupados dentro de {@code [inicio, fim)}: a uniao dos intervalos
+     * sobrepostos, recortada na janela. Cada periodo e um par {inicio, fim}.
+     */
+    public List<long[]> ocupados(long inicio, long fim) {
+        List<Integer> posicoes = new ArrayList<>();
+        buscar(0, ids.length, inicio, fim, posicoes);
+        List<long[]> periodos = new ArrayList<>();
+        long[] atual = null;
+        for (int posicao : posicoes) {
+            long a = Math.max(inicios[posicao], inicio);
+            long b = Math.min(fins[posicao], fim);
+            if (atual != null && a <= atual[1]) {
+                atual[1] = Math.max(atual[1], b);
+            } else {
+                atual = new long[] { a, b };
+                periodos.add(atual);
+            }
+        }
+        return periodos;
+    }
+
+    private long construir(int lo, int hi) {
+        if (lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int meio = (lo + hi) >>> 1;
+        long maior = Math.max(fins[meio], Math.max(construir(lo, meio), construir(meio + 1, hi)));
+        maiorFim[meio] = maior;
+        return maior;
+    }
+
+    private void buscar(int lo, int hi, long inicio, long fim, List<Integer> posicoes) {
+        if (lo >= hi) {
+            return;
+        }
+        int meio = (lo + hi) >>> 1;
+        if (maiorFim[meio] <= inicio) {
+            return;
+        }
+        buscar(lo, meio, inicio, fim, posicoes);
+        if (inicios[meio] >= fim) {
+            return;
+        }
+        if (fins[meio] > inicio) {
+            posicoes.add(meio);
+        }
+        buscar(meio + 1, hi, inicio, fim, posicoes);
+    }
+
+    private static long[] inserir(long[] valores, int posicao, long valor) {
+        long[] novos = new long[valores.length + 1];
+        System.arraycopy(valores, 0, novos, 0, posicao);
+        novos[posicao] = valor;
+        System.arraycopy(valores, posicao, novos, posicao + 1, valores.length - posicao);
+        return novos;
+    }
+
+    private static long[] remover(long[] valores, int posicao) {
+        long[] novos = new long[valores.length - 1];
+        System.arraycopy(valores, 0, novos, 0, posicao);
+        System.arraycopy(valores, posicao + 1, novos, posicao, novos.length - posicao);
+        return novos;
+    }
+}
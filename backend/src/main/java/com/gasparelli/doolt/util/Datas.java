@@ -0,0 +1,71 @@
+package com.gasparelli.doolt.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversao das datas e horas gravadas como texto ("2025-03-10", "10/03/2025",
+ * "14:30") para segundos desde a epoca. As colunas guardam hora local, sem
+ * fuso: o valor e o instante lido como se fosse UTC, o que basta para ordenar
+ * e comparar intervalos.
+ */
+public final class Datas {
+
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private Datas() {
+    }
+
+    public static LocalDate data(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        String valor = texto.trim();
+        try {
+            if (valor.contains("/")) {
+                return LocalDate.parse(valor, DATA_BR);
+            }
+            return LocalDate.parse(valor.length() > 10 ? valor.substring(0, 10) : valor);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static LocalTime hora(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        String valor = texto.trim();
+        int separador = valor.indexOf('T');
+        if (separador >= 0) {
+            valor = valor.substring(separador + 1);
+        }
+        try {
+            return LocalTime.parse(valor);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** Aceita data ({@code 2025-03-10}) ou data e hora ({@code 2025-03-10T14:30}). */
+    public static LocalDateTime dataHora(String texto) {
+        LocalDate data = data(texto);
+        if (data == null) {
+            return null;
+        }
+        LocalTime hora = texto.trim().length() > 10 ? hora(texto) : null;
+        return data.atTime(hora != null ? hora : LocalTime.MIDNIGHT);
+    }
+
+    public static long epoch(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime deEpoch(long segundos) {
+        return LocalDateTime.ofEpochSecond(segundos, 0, ZoneOffset.UTC);
+    }
+}
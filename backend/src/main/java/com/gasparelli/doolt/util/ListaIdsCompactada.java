@@ -0,0 +1,189 @@
+package com.gasparelli.doolt.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lista imutavel de ids em ordem crescente, gravada como deltas em varint
+ * (ids proximos ocupam um ou dois bytes cada). Usada como posting list do
+ * indice invertido: intersecao e uniao percorrem as listas em ordem, com custo
+ * proporcional ao tamanho delas.
+ */
+public final class ListaIdsCompactada {
+
+    public static final ListaIdsCompactada VAZIA = new ListaIdsCompactada(new byte[0], 0);
+
+    private final byte[] dados;
+
+    private final int tamanho;
+
+    private ListaIdsCompactada(byte[] dados, int tamanho) {
+        this.dados = dados;
+        this.tamanho = tamanho;
+    }
+
+    /** Os ids precisam estar em ordem crescente e sem repeticao. */
+    public static ListaIdsCompactada de(long[] ids, int quantidade) {
+        if (quantidade == 0) {
+            return VAZIA;
+        }
+        byte[] buffer = new byte[quantidade * 10];
+        int posicao = 0;
+        long anterior = 0;
+        for (int i = 0; i < quantidade; i++) {
+            long delta = ids[i] - anterior;
+            anterior = ids[i];
+            while ((delta & ~0x7FL) != 0) {
+                buffer[posicao++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[posicao++] = (byte) delta;
+        }
+        return new ListaIdsCompactada(Arrays.copyOf(buffer, posicao), quantidade);
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    public long[] paraArray() {
+        long[] ids = new long[tamanho];
+        Cursor cursor = cursor();
+        for (int i = 0; i < tamanho; i++) {
+            ids[i] = cursor.proximo();
+        }
+        return ids;
+    }
+
+    public ListaIdsCompactada com(long id) {
+        long[] ids = paraArray();
+        int posicao = Arrays.binarySearch(ids, id);
+        if (posicao >= 0) {
+            return this;
+        }
+        int insercao = -posicao - 1;
+        long[] novos = new long[ids.length + 1];
+        System.arraycopy(ids, 0, novos, 0, insercao);
+        novos[insercao] = id;
+        System.arraycopy(ids, insercao, novos, insercao + 1, ids.length - insercao);
+        return de(novos, novos.length);
+    }
+
+    /** Inclui varios ids de uma vez, numa unica mescla (em vez de uma copia por id). */
+    public ListaIdsCompactada comTodos(long[] novos) {
+        long[] ordenados = novos.clone();
+        Arrays.sort(ordenados);
+        long[] ids = paraArray();
+        long[] mesclados = new long[ids.length + ordenados.length];
+        int i = 0;
+        int j = 0;
+        int total = 0;
+        while (i < ids.length || j < ordenados.length) {
+            long id = j >= ordenados.length || (i < ids.length && ids[i] <= ordenados[j]) ? ids[i++] : ordenados[j++];
+            if (total == 0 || mesclados[total - 1] != id) {
+                mesclados[total++] = id;
+            }
+        }
+        return de(mesclados, total);
+    }
+
+    public ListaIdsCompactada sem(long id) {
+        long[] ids = paraArray();
+        int posicao = Arrays.binarySearch(ids, id);
+        if (posicao < 0) {
+            return this;
+        }
+        long[] novos = new long[ids.length - 1];
+        System.arraycopy(ids, 0, novos, 0, posicao);
+        System.arraycopy(ids, posicao + 1, novos, posicao, novos.length - posicao);
+        return de(novos, novos.length);
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Ids presentes em todas as listas, comecando pela menor. */
+    public static long[] intersecao(List<ListaIdsCompactada> listas) {
+        if (listas.isEmpty()) {
+            return new long[0];
+        }
+        ListaIdsCompactada[] ordenadas = listas.toArray(ListaIdsCompactada[]::new);
+        Arrays.sort(ordenadas, Comparator.comparingInt(ListaIdsCompactada::tamanho));
+        long[] resultado = ordenadas[0].paraArray();
+        int quantidade = resultado.length;
+        for (int i = 1; i < ordenadas.length && quantidade > 0; i++) {
+            Cursor cursor = ordenadas[i].cursor();
+            int mantidos = 0;
+            long atual = cursor.temProximo() ? cursor.proximo() : Long.MAX_VALUE;
+            for (int j = 0; j < quantidade; j++) {
+                long id = resultado[j];
+                while (atual < id && cursor.temProximo()) {
+                    atual = cursor.proximo();
+                }
+                if (atual == id) {
+                    resultado[mantidos++] = id;
+                }
+            }
+            quantidade = mantidos;
+        }
+        return Arrays.copyOf(resultado, quantidade);
+    }
+
+    /** Ids presentes em pelo menos uma das listas, em ordem crescente. */
+    public static long[] uniao(List<ListaIdsCompactada> listas) {
+        long[] resultado = new long[0];
+        int quantidade = 0;
+        for (ListaIdsCompactada lista : listas) {
+            long[] mesclado = new long[quantidade + lista.tamanho()];
+            Cursor cursor = lista.cursor();
+            int i = 0;
+            int total = 0;
+            long proximo = cursor.temProximo() ? cursor.proximo() : Long.MAX_VALUE;
+            while (i < quantidade || proximo != Long.MAX_VALUE) {
+                long id;
+                if (i < quantidade && resultado[i] <= proximo) {
+                    id = resultado[i++];
+                    if (id == proximo) {
+                        proximo = cursor.temProximo() ? cursor.proximo() : Long.MAX_VALUE;
+                    }
+                } else {
+                    id = proximo;
+                    proximo = cursor.temProximo() ? cursor.proximo() : Long.MAX_VALUE;
+                }
+                mesclado[total++] = id;
+            }
+            resultado = mesclado;
+            quantidade = total;
+        }
+        return Arrays.copyOf(resultado, quantidade);
+    }
+
+    public final class Cursor {
+
+        private int posicao;
+
+        private int lidos;
+
+        private long anterior;
+
+        public boolean temProximo() {
+            return lidos < tamanho;
+        }
+
+        public long proximo() {
+            long delta = 0;
+            int deslocamento = 0;
+            byte b;
+            do {
+                b = dados[posicao++];
+                delta |= (long) (b & 0x7F) << deslocamento;
+                deslocamento += 7;
+            } while ((b & 0x80) != 0);
+            lidos++;
+            anterior += delta;
+            return anterior;
+        }
+    }
+}
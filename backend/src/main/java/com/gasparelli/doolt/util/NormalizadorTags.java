@@ -0,0 +1,39 @@
+package com.gasparelli.doolt.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Converte a coluna livre {@code notas.tags} ("Trabalho, #urgente;casa") na
+ * lista de nomes normalizados usada pelas tabelas {@code tags}/{@code nota_tag}.
+ */
+public final class NormalizadorTags {
+
+    private NormalizadorTags() {
+    }
+
+    public static List<String> normalizar(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return List.of();
+        }
+        Set<String> nomes = new LinkedHashSet<>();
+        for (String parte : tags.split("[,;]")) {
+            String nome = normalizarNome(parte);
+            if (!nome.isEmpty()) {
+                nomes.add(nome);
+            }
+        }
+        return new ArrayList<>(nomes);
+    }
+
+    public static String normalizarNome(String tag) {
+        String nome = tag.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        while (nome.startsWith("#")) {
+            nome = nome.substring(1).trim();
+        }
+        return nome;
+    }
+}
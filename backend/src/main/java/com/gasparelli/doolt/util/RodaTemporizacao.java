@@ -0,0 +1,163 @@
+package com.gasparelli.doolt.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Roda de temporizacao hierarquica (tick de um segundo, {@value #NIVEIS}
+ * niveis de {@value #SLOTS} posicoes, alcance de 64^4 s, cerca de 194 dias).
+ * Agendar e cancelar sao O(1); cada tick so visita a posicao atual do
+ * primeiro nivel, e as entradas dos niveis de cima descem quando o nivel de
+ * baixo da a volta. Nao e thread-safe.
+ */
+public final class RodaTemporizacao<T> {
+
+    private static final int BITS = 6;
+
+    private static final int SLOTS = 1 << BITS;
+
+    private static final int MASCARA = SLOTS - 1;
+
+    private static final int NIVEIS = 4;
+
+    public static final long ALCANCE = 1L << (BITS * NIVEIS);
+
+    private final Entrada<T>[][] posicoes;
+
+    private final Map<Long, Entrada<T>> porId = new HashMap<>();
+
+    private long atual;
+
+    @SuppressWarnings("unchecked")
+    public RodaTemporizacao(long agora) {
+        this.posicoes = new Entrada[NIVEIS][SLOTS];
+        this.atual = agora;
+    }
+
+    public long atual() {
+        return atual;
+    }
+
+    public int tamanho() {
+        return porId.size();
+    }
+
+    /**
+     * Agenda (ou reagenda) {@code id} para o segundo {@code prazo}; prazos ja
+     * vencidos disparam no proximo tick. Retorna false se o prazo estiver alem
+     * do alcance da roda.
+     */
+    public boolean agendar(long id, long prazo, T valor) {
+        cancelar(id);
+        long momento = Math.max(prazo, atual + 1);
+        if (momento - atual >= ALCANCE) {
+            return false;
+        }
+        Entrada<T> entrada = new Entrada<>(id, momento, valor);
+        porId.put(id, entrada);
+        inserir(entrada);
+        return true;
+    }
+
+    public boolean cancelar(long id) {
+        Entrada<T> entrada = porId.remove(id);
+        if (entrada == null) {
+            return false;
+        }
+        desligar(entrada);
+        return true;
+    }
+
+    /** Avanca ate o segundo {@code ate}, entregando as entradas vencidas em ordem de prazo. */
+    public void avancar(long ate, Consumer<T> vencidas) {
+        while (atual < ate) {
+            atual++;
+            descer(1);
+            Entrada<T> entrada = posicoes[0][(int) (atual & MASCARA)];
+            posicoes[0][(int) (atual & MASCARA)] = null;
+            while (entrada != null) {
+                Entrada<T> proxima = entrada.proxima;
+                entrada.anterior = null;
+                entrada.proxima = null;
+                porId.remove(entrada.id);
+                vencidas.accept(entrada.valor);
+                entrada = proxima;
+            }
+        }
+    }
+
+    /*
+     * Quando os niveis abaixo de {@code nivel} completam uma volta, a posicao
+     * atual deste nivel e redistribuida; os niveis de cima descem primeiro.
+     */
+    private void descer(int nivel) {
+        if (nivel >= NIVEIS || (atual & ((1L << (BITS * nivel)) - 1)) != 0) {
+            return;
+        }
+        descer(nivel + 1);
+        int indice = (int) ((atual >>> (BITS * nivel)) & MASCARA);
+        Entrada<T> entrada = posicoes[nivel][indice];
+        posicoes[nivel][indice] = null;
+        while (entrada != null) {
+            Entrada<T> proxima = entrada.proxima;
+            entrada.anterior = null;
+            entrada.proxima = null;
+            inserir(entrada);
+            entrada = proxima;
+        }
+    }
+
+    private void inserir(Entrada<T> entrada) {
+        long distancia = entrada.momento - atual;
+        int nivel = 0;
+        while (nivel < NIVEIS - 1 && distancia >= 1L << (BITS * (nivel + 1))) {
+            nivel++;
+        }
+        int indice = (int) ((entrada.momento >>> (BITS * nivel)) & MASCARA);
+        entrada.nivel = nivel;
+        entrada.indice = indice;
+        Entrada<T> cabeca = posicoes[nivel][indice];
+        entrada.proxima = cabeca;
+        if (cabeca != null) {
+            cabeca.anterior = entrada;
+        }
+        posicoes[nivel][indice] = entrada;
+    }
+
+    private void desligar(Entrada<T> entrada) {
+        if (entrada.anterior != null) {
+            entrada.anterior.proxima = entrada.proxima;
+        } else {
+            posicoes[entrada.nivel][entrada.indice] = entrada.proxima;
+        }
+        if (entrada.proxima != null) {
+            entrada.proxima.anterior = entrada.anterior;
+        }
+        entrada.anterior = null;
+        entrada.proxima = null;
+    }
+
+    private static final class Entrada<T> {
+
+        private final long id;
+
+        private final long momento;
+
+        private final T valor;
+
+        private int nivel;
+
+        private int indice;
+
+        private Entrada<T> anterior;
+
+        private Entrada<T> proxima;
+
+        private Entrada(long id, long momento, T valor) {
+            this.id = id;
+            this.momento = momento;
+            this.valor = valor;
+        }
+    }
+}
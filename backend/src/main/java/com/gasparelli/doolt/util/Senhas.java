@@ -0,0 +1,91 @@
+package com.gasparelli.doolt.util;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hash de senhas com PBKDF2-HMAC-SHA256 e sal aleatorio. O valor gravado tem
+ * o formato {@code pbkdf2$<iteracoes>$<sal>$<hash>} (base64), para que o numero
+ * de iteracoes possa subir sem invalidar as senhas antigas.
+ */
+public final class Senhas {
+
+    public static final int ITERACOES = 310_000;
+
+    /** Menos que isso nao e aceito nem de valores antigos. */
+    static final int MINIMO_ITERACOES = 100_000;
+
+    private static final String PREFIXO = "pbkdf2$";
+
+    private static final int BYTES_SAL = 16;
+
+    private static final int BITS_HASH = 256;
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    /** Usado quando o email nao existe, para o login levar o mesmo tempo. */
+    private static final String FICTICIA = gerar("senha-ficticia");
+
+    private Senhas() {
+    }
+
+    public static String gerar(String senha) {
+        byte[] sal = new byte[BYTES_SAL];
+        ALEATORIO.nextBytes(sal);
+        byte[] hash = derivar(senha, sal, ITERACOES);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + ITERACOES + "$" + base64.encodeToString(sal) + "$" + base64.encodeToString(hash);
+    }
+
+    public static boolean gerada(String valor) {
+        return valor != null && valor.startsWith(PREFIXO);
+    }
+
+    /**
+     * Compara em tempo constante; {@code armazenada} nulo ou invalido nunca
+     * confere. Iteracoes fora de [{@link #MINIMO_ITERACOES}, {@link #ITERACOES}]
+     * tambem nao, sem derivar: um valor gravado nao pode prender a CPU nem
+     * ficar abaixo da politica.
+     */
+    public static boolean confere(String senha, String armazenada) {
+        if (senha == null || !gerada(armazenada)) {
+            derivarFicticia(senha);
+            return false;
+        }
+        String[] partes = armazenada.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        try {
+            int iteracoes = Integer.parseInt(partes[1]);
+            if (iteracoes < MINIMO_ITERACOES || iteracoes > ITERACOES) {
+                return false;
+            }
+            byte[] sal = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(esperado, derivar(senha, sal, iteracoes));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void derivarFicticia(String senha) {
+        confere(senha != null ? senha : "", FICTICIA);
+    }
+
+    private static byte[] derivar(String senha, byte[] sal, int iteracoes) {
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), sal, iteracoes, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 indisponivel", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.gasparelli.doolt;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class DooltApplicationTests {
 
+	@DynamicPropertySource
+	static void banco(DynamicPropertyRegistry registro) throws IOException {
+		Path pasta = Files.createTempDirectory("doolt-aplicacao");
+		registro.add("spring.datasource.url", () -> "jdbc:sqlite:" + pasta.resolve("teste.db"));
+	}
+
 	@Test
 	void contextLoads() {
 	}
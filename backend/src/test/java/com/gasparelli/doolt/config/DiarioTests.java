@@ -0,0 +1,176 @@
+package com.gasparelli.doolt.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class DiarioTests {
+
+    private static final int BLOCO = 4096;
+
+    @TempDir
+    Path pasta;
+
+    private Path arquivo;
+
+    private Diario diario;
+
+    private final AtomicInteger paradas = new AtomicInteger();
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        arquivo = pasta.resolve("diario-1.log");
+        diario = new Diario(arquivo, BLOCO, false, paradas::incrementAndGet);
+    }
+
+    /* O que foi confirmado volta igual; o desfeito por rollback e savepoint nao entra. */
+    @Test
+    void reproduzRegistrosConfirmados() throws Exception {
+        DiarioDataSource dados = new DiarioDataSource(
+                new DriverManagerDataSource("jdbc:sqlite:" + pasta.resolve("origem.db")), diario);
+        try (Connection conexao = dados.getConnection()) {
+            try (Statement comando = conexao.createStatement()) {
+                comando.execute("create table itens (id integer primary key, nome text, peso real, dados blob)");
+            }
+            conexao.setAutoCommit(false);
+            try (PreparedStatement comando = conexao.prepareStatement("insert into itens values (?, ?, ?, ?)")) {
+                for (int i = 1; i <= 300; i++) {
+                    comando.setInt(1, i);
+                    comando.setString(2, "item " + i);
+                    comando.setDouble(3, i / 4.0);
+                    if (i % 2 == 0) {
+                        comando.setBytes(4, new byte[] { (byte) i });
+                    } else {
+                        comando.setNull(4, Types.BLOB);
+                    }
+                    comando.addBatch();
+                }
+                comando.executeBatch();
+            }
+            Savepoint marca = conexao.setSavepoint();
+            try (Statement comando = conexao.createStatement()) {
+                comando.executeUpdate("delete from itens where id > 100");
+            }
+            conexao.rollback(marca);
+            try (PreparedStatement comando = conexao.prepareStatement("update itens set nome = ? where id = ?")) {
+                comando.setString(1, "trocado");
+                comando.setLong(2, 7L);
+                comando.executeUpdate();
+            }
+            conexao.commit();
+            try (Statement comando = conexao.createStatement()) {
+                comando.executeUpdate("delete from itens");
+            }
+            conexao.rollback();
+            conexao.setAutoCommit(true);
+        }
+        diario.close();
+
+        try (Connection origem = DriverManager.getConnection("jdbc:sqlite:" + pasta.resolve("origem.db"));
+                Connection copia = DriverManager.getConnection("jdbc:sqlite:" + pasta.resolve("copia.db"))) {
+            assertThat(Diario.reproduzir(arquivo, copia)).isEqualTo(2);
+            assertThat(linhas(copia)).isEqualTo(linhas(origem))
+                    .hasSize(300)
+                    .contains("7|trocado|1.75|", "8|item 8|2.0|08");
+        }
+    }
+
+    /* Registros maiores que o bloco mapeiam trechos novos sem perder nada. */
+    @Test
+    void atravessaBlocos() throws Throwable {
+        List<byte[]> comandos = List.of(Diario.comando("insert into t values (1)", null));
+        int registros = 0;
+        while (diario.tamanho() < 3L * BLOCO) {
+            diario.confirmar(() -> null, comandos);
+            registros++;
+        }
+        diario.confirmar(() -> null, List.of(Diario.comando("insert into t values (?)",
+                List.of(Map.of(1, "x".repeat(2 * BLOCO))))));
+        diario.close();
+
+        try (Connection copia = DriverManager.getConnection("jdbc:sqlite:" + pasta.resolve("copia.db"))) {
+            try (Statement comando = copia.createStatement()) {
+                comando.execute("create table t (v)");
+            }
+            assertThat(Diario.reproduzir(arquivo, copia)).isEqualTo(registros + 1);
+        }
+    }
+
+    /*
+     * Uma escrita que falha depois do commit para o diario: os commits seguintes
+     * nem rodam ate a troca por um arquivo novo, que volta a aceitar.
+     */
+    @Test
+    void paraDepoisDeFalharAteATroca() throws Throwable {
+        List<byte[]> comandos = List.of(Diario.comando("insert into t values (1)", null));
+        diario.confirmar(() -> null, comandos);
+        AtomicInteger executadas = new AtomicInteger();
+
+        assertThatThrownBy(() -> diario.confirmar(() -> {
+            executadas.incrementAndGet();
+            ReflectionTestUtils.setField(diario, "mapa", somenteLeitura());
+            return null;
+        }, comandos)).isInstanceOf(SQLException.class).hasMessageContaining("nao gravada no diario");
+        assertThat(paradas).hasValue(1);
+        assertThat(diario.parado()).isTrue();
+
+        assertThatThrownBy(() -> diario.confirmar(executadas::incrementAndGet, comandos))
+                .isInstanceOf(SQLException.class).hasMessageContaining("Diario parado");
+        assertThat(executadas).hasValue(1);
+
+        Path novo = pasta.resolve("diario-2.log");
+        diario.trocar(() -> null, novo);
+        assertThat(diario.parado()).isFalse();
+        assertThat(diario.confirmar(executadas::incrementAndGet, comandos)).isEqualTo(2);
+        diario.close();
+
+        try (Connection copia = DriverManager.getConnection("jdbc:sqlite:" + pasta.resolve("copia.db"))) {
+            try (Statement comando = copia.createStatement()) {
+                comando.execute("create table t (v)");
+            }
+            assertThat(Diario.reproduzir(novo, copia)).isEqualTo(1);
+        }
+    }
+
+    private MappedByteBuffer somenteLeitura() throws IOException {
+        try (FileChannel leitura = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return leitura.map(FileChannel.MapMode.READ_ONLY, 0, Files.size(arquivo));
+        }
+    }
+
+    private static List<String> linhas(Connection conexao) throws SQLException {
+        List<String> linhas = new ArrayList<>();
+        String sql = "select id, nome, peso, hex(dados) from itens order by id";
+        try (Statement comando = conexao.createStatement(); ResultSet resultado = comando.executeQuery(sql)) {
+            while (resultado.next()) {
+                linhas.add(resultado.getLong(1) + "|" + resultado.getString(2) + "|" + resultado.getDouble(3) + "|"
+                        + resultado.getString(4));
+            }
+        }
+        return linhas;
+    }
+}
@@ -0,0 +1,97 @@
+package com.gasparelli.doolt.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExclusaoControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registro) throws IOException {
+        Path pasta = Files.createTempDirectory("doolt-exclusao");
+        registro.add("spring.datasource.url", () -> "jdbc:sqlite:" + pasta.resolve("teste.db"));
+    }
+
+    /* A conta so sai com o token do proprio dono. */
+    @Test
+    void contaSoComTokenDoDono() throws Exception {
+        JsonNode ana = entrar("ana");
+        JsonNode bia = entrar("bia");
+        long idBia = bia.get("idUsuario").asLong();
+
+        mockMvc.perform(delete("/usuario/usuario/{id}", idBia))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(delete("/usuario/usuario/{id}", idBia).header(HttpHeaders.AUTHORIZATION, bearer(ana)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/usuario/usuario/{id}", idBia).header(HttpHeaders.AUTHORIZATION, bearer(bia)))
+                .andExpect(status().isNoContent());
+    }
+
+    /* A tarefa de outro usuario responde como inexistente e continua la para o dono. */
+    @Test
+    void tarefaSoDoDono() throws Exception {
+        JsonNode cai = entrar("cai");
+        JsonNode dani = entrar("dani");
+        long idCai = cai.get("idUsuario").asLong();
+        long idDani = dani.get("idUsuario").asLong();
+        String corpo = mockMvc.perform(post("/tarefas").param("usuario", String.valueOf(idCai))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"titulo\":\"tarefa\",\"idUsuarioFk\":" + idCai + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long tarefa = objectMapper.readTree(corpo).get("id").asLong();
+
+        mockMvc.perform(delete("/tarefas/tarefas/{id}", tarefa).param("usuario", String.valueOf(idDani))
+                .header(HttpHeaders.AUTHORIZATION, bearer(dani)))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/tarefas/tarefas/{id}", tarefa).param("usuario", String.valueOf(idCai))
+                .header(HttpHeaders.AUTHORIZATION, bearer(dani)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/tarefas/tarefas/{id}", tarefa).param("usuario", String.valueOf(idCai))
+                .header(HttpHeaders.AUTHORIZATION, bearer(cai)))
+                .andExpect(status().isNoContent());
+    }
+
+    private JsonNode entrar(String nome) throws Exception {
+        String email = nome + "@doolt.test";
+        mockMvc.perform(post("/usuario")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"nome\":\"" + nome + "\",\"email\":\"" + email + "\",\"senha\":\"segredo\"}"))
+                .andExpect(status().isOk());
+        String corpo = mockMvc.perform(post("/usuario/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"senha\":\"segredo\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(corpo);
+    }
+
+    private static String bearer(JsonNode token) {
+        return "Bearer " + token.get("token").asText();
+    }
+}
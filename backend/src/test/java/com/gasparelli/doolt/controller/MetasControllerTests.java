@@ -0,0 +1,60 @@
+package com.gasparelli.doolt.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetasControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registro) throws IOException {
+        Path pasta = Files.createTempDirectory("doolt-metas");
+        registro.add("spring.datasource.url", () -> "jdbc:sqlite:" + pasta.resolve("teste.db"));
+    }
+
+    /* So o dono soma progresso; a meta de outro usuario responde como inexistente. */
+    @Test
+    void progressoSoDoDono() throws Exception {
+        String corpo = mockMvc.perform(post("/metas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"titulo\":\"correr\",\"idUsuarioFk\":301,\"meta\":10}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(corpo).get("id").asLong();
+
+        mockMvc.perform(post("/metas/{id}/progresso", id).param("delta", "3"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/metas/{id}/progresso", id).param("usuario", "302").param("delta", "3"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/metas/{id}/progresso", id).param("usuario", "301").param("delta", "3"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.pendente").value(3));
+        mockMvc.perform(post("/metas/{id}/progresso", id).param("usuario", "302").param("delta", "5"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/metas/{id}/progresso", id + 1000).param("usuario", "301"))
+                .andExpect(status().isNotFound());
+    }
+}
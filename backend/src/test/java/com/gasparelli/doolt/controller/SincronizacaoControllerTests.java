@@ -0,0 +1,77 @@
+package com.gasparelli.doolt.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SincronizacaoControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registro) throws IOException {
+        Path pasta = Files.createTempDirectory("doolt-sincronizacao");
+        registro.add("spring.datasource.url", () -> "jdbc:sqlite:" + pasta.resolve("teste.db"));
+    }
+
+    /* O id liberado pela exclusao nao pode voltar para outro usuario e apagar a exclusao do log. */
+    @Test
+    void exclusaoContinuaNoLogDepoisDeOutroUsuarioInserir() throws Exception {
+        long primeira = criarTarefa(101);
+        long segunda = criarTarefa(101);
+        mockMvc.perform(delete("/tarefas/tarefas/{id}", segunda).param("usuario", "101"))
+                .andExpect(status().isNoContent());
+        assertThat(excluidas(101)).containsExactly(segunda);
+
+        long deOutro = criarTarefa(102);
+
+        assertThat(deOutro).isGreaterThan(segunda);
+        assertThat(excluidas(101)).containsExactly(segunda);
+        assertThat(primeira).isLessThan(segunda);
+    }
+
+    private long criarTarefa(int usuario) throws Exception {
+        String corpo = mockMvc.perform(post("/tarefas").param("usuario", String.valueOf(usuario))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"titulo\":\"tarefa\",\"idUsuarioFk\":" + usuario + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(corpo).get("id").asLong();
+    }
+
+    private long[] excluidas(int usuario) throws Exception {
+        String corpo = mockMvc.perform(get("/sync").param("usuario", String.valueOf(usuario)).param("desde", "0"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode tarefas = objectMapper.readTree(corpo).path("excluidos").path("tarefas");
+        long[] ids = new long[tarefas.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tarefas.get(i).asLong();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,85 @@
+package com.gasparelli.doolt.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AtualizacaoParcialRepositoryTests {
+
+    @Test
+    void converteCamposEmColunas() {
+        Map<String, Object> colunas = AtualizacaoParcialRepository.colunasMeta(
+                Map.of("titulo", "Correr", "idEstadoFk", 2, "atual", 15L));
+
+        assertThat(colunas).containsOnly(entry("titulo", "Correr"), entry("id_estado_fk", 2), entry("atual", 15));
+        assertThat(AtualizacaoParcialRepository.colunasNota(Map.of("idBoleanFavoritoFk", 1)))
+                .containsOnly(entry("id_bolean_favorito_fk", 1));
+        assertThat(AtualizacaoParcialRepository.colunasEvento(Map.of("fimHora", "18:00")))
+                .containsOnly(entry("fim_hora", "18:00"));
+    }
+
+    /* O dono, o id e as colunas calculadas nao vem do cliente. */
+    @Test
+    void campoDesconhecidoOuSoDeLeitura() {
+        for (String campo : new String[] { "id", "idUsuarioFk", "vencimentoTs", "versao", "data_vencimento", "x" }) {
+            assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasTarefa(Map.of(campo, "1")))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("campo nao pode ser alterado: " + campo);
+        }
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasEvento(Map.of("inicioTs", 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasNota(Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("nenhum campo para atualizar");
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasMeta(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tipoErrado() {
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasTarefa(Map.of("titulo", 5)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("titulo deve ser texto");
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasTarefa(Map.of("idFeitoFk", "1")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("idFeitoFk deve ser um numero inteiro");
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasMeta(Map.of("meta", 1.5)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasMeta(Map.of("meta", 1L << 40)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AtualizacaoParcialRepository.colunasMeta(nulo("atual")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(nulo("descricao")))
+                .containsOnly(entry("descricao", null));
+    }
+
+    /* A data de vencimento grava junto o vencimento_ts usado nas consultas por periodo. */
+    @Test
+    void dataVencimentoRecalculaVencimentoTs() {
+        long esperado = LocalDateTime.of(2025, 3, 10, 14, 30).toEpochSecond(ZoneOffset.UTC);
+
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(Map.of("dataVencimento", "2025-03-10T14:30")))
+                .containsOnly(entry("data_vencimento", "2025-03-10T14:30"), entry("vencimento_ts", esperado));
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(Map.of("dataVencimento", "10/03/2025")))
+                .containsEntry("vencimento_ts", esperado - (14 * 60 + 30) * 60);
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(Map.of("dataVencimento", "amanha")))
+                .containsEntry("vencimento_ts", null);
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(nulo("dataVencimento")))
+                .containsOnly(entry("data_vencimento", null), entry("vencimento_ts", null));
+        assertThat(AtualizacaoParcialRepository.colunasTarefa(Map.of("titulo", "sem data")))
+                .doesNotContainKey("vencimento_ts");
+    }
+
+    private static Map<String, Object> nulo(String campo) {
+        Map<String, Object> campos = new HashMap<>();
+        campos.put(campo, null);
+        return campos;
+    }
+}
@@ -0,0 +1,137 @@
+package com.gasparelli.doolt.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+class GrupoCommitTests {
+
+    private static final int PEDIDOS = 8;
+
+    private final Transacoes transacoes = new Transacoes();
+
+    private final ExecutorService chamadores = Executors.newFixedThreadPool(PEDIDOS);
+
+    private GrupoCommit grupoCommit;
+
+    @BeforeEach
+    void iniciar() {
+        grupoCommit = new GrupoCommit(transacoes);
+        ReflectionTestUtils.setField(grupoCommit, "habilitado", true);
+        ReflectionTestUtils.setField(grupoCommit, "janelaMs", 300L);
+        ReflectionTestUtils.setField(grupoCommit, "tamanhoMaximo", 64);
+        grupoCommit.iniciar();
+    }
+
+    @AfterEach
+    void parar() throws InterruptedException {
+        grupoCommit.parar();
+        chamadores.shutdownNow();
+    }
+
+    /*
+     * O grupo falha por causa de uma operacao e e desfeito; cada uma e repetida
+     * na sua transacao, entao as boas confirmam sozinhas e so a ruim e desfeita.
+     */
+    @Test
+    void grupoQueFalhaRepeteCadaOperacao() throws Exception {
+        List<Future<Integer>> resultados = enviarJuntos(i -> i == 3
+                ? () -> {
+                    throw new IllegalStateException("linha ruim");
+                }
+                : () -> i);
+
+        for (int i = 0; i < PEDIDOS; i++) {
+            Future<Integer> resultado = resultados.get(i);
+            if (i == 3) {
+                assertThatThrownBy(() -> resultado.get(5, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(IllegalStateException.class);
+            } else {
+                assertThat(resultado.get(5, TimeUnit.SECONDS)).isEqualTo(i);
+            }
+        }
+        assertThat(transacoes.confirmadas.get()).isEqualTo(PEDIDOS - 1);
+        assertThat(transacoes.desfeitas.get()).isEqualTo(2);
+    }
+
+    /* Um Error nao mata a thread de escrita: os outros recebem o resultado e as escritas seguintes tambem. */
+    @Test
+    void errorNaOperacaoNaoParaAsOutras() throws Exception {
+        List<Future<Integer>> resultados = enviarJuntos(i -> i == 0
+                ? () -> {
+                    throw new AssertionError("falha grave");
+                }
+                : () -> i);
+
+        assertThatThrownBy(() -> resultados.get(0).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(AssertionError.class);
+        for (int i = 1; i < PEDIDOS; i++) {
+            assertThat(resultados.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+        }
+        Future<Integer> depois = chamadores.submit(() -> grupoCommit.executar(() -> 42));
+        assertThat(depois.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+    }
+
+    private List<Future<Integer>> enviarJuntos(Operacoes operacoes) throws InterruptedException {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> resultados = new ArrayList<>();
+        for (int i = 0; i < PEDIDOS; i++) {
+            Supplier<Integer> operacao = operacoes.criar(i);
+            resultados.add(chamadores.submit(() -> {
+                largada.await();
+                return grupoCommit.executar(operacao);
+            }));
+        }
+        largada.countDown();
+        return resultados;
+    }
+
+    private interface Operacoes {
+
+        Supplier<Integer> criar(int indice);
+    }
+
+    /** Gerenciador sem banco que so conta commits e rollbacks. */
+    private static final class Transacoes extends AbstractPlatformTransactionManager {
+
+        private final AtomicInteger confirmadas = new AtomicInteger();
+
+        private final AtomicInteger desfeitas = new AtomicInteger();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transacao, TransactionDefinition definicao) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            confirmadas.incrementAndGet();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            desfeitas.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.gasparelli.doolt.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gasparelli.doolt.dto.ErroImportacao;
+import com.gasparelli.doolt.dto.RelatorioImportacao;
+import com.gasparelli.doolt.model.TarefasEntity;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacaoServicesTests {
+
+    @Mock
+    private TarefasServices tarefasServices;
+
+    @Mock
+    private EventosServices eventosServices;
+
+    @Mock
+    private MetasServices metasServices;
+
+    @Mock
+    private NotasServices notasServices;
+
+    @Mock
+    private ReferenciasServices referenciasServices;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ImportacaoServices importacaoServices;
+
+    private final List<RelatorioImportacao> progressos = new ArrayList<>();
+
+    private final ImportacaoServices.Ouvinte ouvinte = new ImportacaoServices.Ouvinte() {
+
+        @Override
+        public void erro(ErroImportacao erro) {
+        }
+
+        @Override
+        public void progresso(RelatorioImportacao relatorio) {
+            progressos.add(relatorio);
+        }
+    };
+
+    @BeforeEach
+    void iniciar() {
+        ReflectionTestUtils.setField(importacaoServices, "tamanhoLote", 1);
+        ReflectionTestUtils.setField(importacaoServices, "maximoErros", 10);
+    }
+
+    /* Um lote que falha no meio da leitura encerra a importacao com a falha no relatorio final. */
+    @Test
+    void falhaNoMeioTerminaComRelatorioDeFalha() throws IOException {
+        when(tarefasServices.salvarTarefasEmLote(anyList()))
+                .thenAnswer(chamada -> chamada.<List<TarefasEntity>>getArgument(0))
+                .thenThrow(new DataAccessResourceFailureException("disco cheio"));
+        String corpo = """
+                {"tipo":"tarefa","titulo":"um"}
+                {"tipo":"tarefa","titulo":"dois"}
+                {"tipo":"tarefa","titulo":"tres"}
+                """;
+
+        RelatorioImportacao fim = importacaoServices.importar(7,
+                new ByteArrayInputStream(corpo.getBytes(StandardCharsets.UTF_8)), ouvinte);
+
+        assertThat(fim.concluida()).isTrue();
+        assertThat(fim.falha()).contains("disco cheio");
+        assertThat(fim.tarefas()).isEqualTo(1);
+        assertThat(fim.lidos()).isEqualTo(2);
+        assertThat(progressos).hasSize(1);
+    }
+
+    @Test
+    void jsonInvalidoGravaOQueVeioAntes() throws IOException {
+        when(tarefasServices.salvarTarefasEmLote(anyList()))
+                .thenAnswer(chamada -> chamada.<List<TarefasEntity>>getArgument(0));
+        String corpo = """
+                {"tipo":"tarefa","titulo":"um"}
+                {"tipo":"tarefa",
+                """;
+
+        RelatorioImportacao fim = importacaoServices.importar(7,
+                new ByteArrayInputStream(corpo.getBytes(StandardCharsets.UTF_8)), ouvinte);
+
+        assertThat(fim.falha()).startsWith("JSON invalido na linha");
+        assertThat(fim.tarefas()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gasparelli.doolt.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.gasparelli.doolt.model.TarefasEntity;
+
+@SpringBootTest(properties = { "doolt.exclusao.adiada=true", "doolt.exclusao.purga.habilitada=false" })
+class PurgaExclusoesServicesTests {
+
+    @Autowired
+    private TarefasServices tarefasServices;
+
+    @Autowired
+    private PurgaExclusoesServices purgaExclusoesServices;
+
+    @Autowired
+    private SincronizacaoServices sincronizacaoServices;
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registro) throws IOException {
+        Path pasta = Files.createTempDirectory("doolt-purga");
+        registro.add("spring.datasource.url", () -> "jdbc:sqlite:" + pasta.resolve("teste.db"));
+    }
+
+    /* A purga remove a linha de vez; o id dela nao pode voltar e apagar a exclusao do log. */
+    @Test
+    void exclusaoContinuaNoLogDepoisDaPurga() {
+        tarefasServices.salvarTarefa(tarefa(201));
+        long excluida = tarefasServices.salvarTarefa(tarefa(201)).getId();
+        assertThat(tarefasServices.deletarTarefas(201, List.of(excluida)).ids()).containsExactly(excluida);
+
+        assertThat(purgaExclusoesServices.executar()).isEqualTo(1);
+        long deOutro = tarefasServices.salvarTarefa(tarefa(202)).getId();
+
+        assertThat(deOutro).isGreaterThan(excluida);
+        assertThat(sincronizacaoServices.alteracoes(201, 0, 100).excluidos().get("tarefas"))
+                .containsExactly(excluida);
+    }
+
+    private static TarefasEntity tarefa(int usuario) {
+        TarefasEntity tarefa = new TarefasEntity();
+        tarefa.setTitulo("tarefa");
+        tarefa.setIdUsuarioFk(usuario);
+        return tarefa;
+    }
+}
@@ -0,0 +1,142 @@
+package com.gasparelli.doolt.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.gasparelli.doolt.dto.Sessao;
+import com.gasparelli.doolt.dto.TokenAcesso;
+import com.gasparelli.doolt.repository.RevogacoesRepository;
+
+@ExtendWith(MockitoExtension.class)
+class TokensServicesTests {
+
+    private static final String SEGREDO = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @Mock
+    private RevogacoesRepository revogacoesRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TokensServices tokensServices;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        configurar(tokensServices, SEGREDO, 24);
+    }
+
+    @Test
+    void tokenEmitidoVoltaASessao() {
+        TokenAcesso token = tokensServices.emitir(42);
+
+        Sessao sessao = tokensServices.verificar(token.token());
+
+        assertThat(sessao).isNotNull();
+        assertThat(sessao.idUsuario()).isEqualTo(42);
+        assertThat(sessao.expiraEm()).isEqualTo(token.expiraEm());
+    }
+
+    /* Trocar o dono no conteudo, mexer na assinatura ou assinar com outra chave invalida o token. */
+    @Test
+    void tokenAdulteradoNaoVale() throws Exception {
+        String token = tokensServices.emitir(42).token();
+        int ponto = token.indexOf('.');
+        byte[] conteudo = Base64.getUrlDecoder().decode(token.substring(0, ponto));
+        ByteBuffer.wrap(conteudo).putLong(0, 1);
+        String outroDono = Base64.getUrlEncoder().withoutPadding().encodeToString(conteudo) + token.substring(ponto);
+        String assinatura = token.substring(ponto + 1);
+        String outraAssinatura = token.substring(0, ponto + 1)
+                + (assinatura.charAt(0) == 'A' ? "B" : "A") + assinatura.substring(1);
+
+        TokensServices outraChave = new TokensServices();
+        ReflectionTestUtils.setField(outraChave, "revogacoesRepository", revogacoesRepository);
+        ReflectionTestUtils.setField(outraChave, "transactionManager", transactionManager);
+        configurar(outraChave, Base64.getEncoder().encodeToString(new byte[] { 1, 2, 3, 4 }), 24);
+
+        assertThat(tokensServices.verificar(outroDono)).isNull();
+        assertThat(tokensServices.verificar(outraAssinatura)).isNull();
+        assertThat(tokensServices.verificar(outraChave.emitir(42).token())).isNull();
+        assertThat(tokensServices.verificar(token.substring(0, ponto))).isNull();
+        assertThat(tokensServices.verificar("nao.e-base64!")).isNull();
+        assertThat(tokensServices.verificar(null)).isNull();
+    }
+
+    @Test
+    void tokenExpiradoNaoVale() throws Exception {
+        configurar(tokensServices, SEGREDO, 0);
+
+        assertThat(tokensServices.verificar(tokensServices.emitir(42).token())).isNull();
+    }
+
+    @Test
+    void tokenRevogadoNaoVale() {
+        String revogado = tokensServices.emitir(42).token();
+        String outro = tokensServices.emitir(42).token();
+        Sessao sessao = tokensServices.verificar(revogado);
+
+        tokensServices.revogar(sessao);
+
+        verify(revogacoesRepository).revogarToken(sessao.serie(), sessao.expiraEm());
+        assertThat(tokensServices.verificar(revogado)).isNull();
+        assertThat(tokensServices.verificar(outro)).isNotNull();
+    }
+
+    /* Revogar o usuario derruba os tokens ja emitidos dele, nao os de outros nem os novos. */
+    @Test
+    void revogarUsuarioDerrubaOsTokensAnteriores() {
+        String antigo = tokensServices.emitir(42).token();
+        String deOutro = tokensServices.emitir(7).token();
+
+        tokensServices.revogarUsuario(42);
+        String novo = tokensServices.emitir(42).token();
+
+        verify(revogacoesRepository).revogarUsuario(eq(42L), anyLong());
+        assertThat(tokensServices.verificar(antigo)).isNull();
+        assertThat(tokensServices.verificar(deOutro)).isNotNull();
+        assertThat(tokensServices.verificar(novo)).isNotNull();
+    }
+
+    /* As revogacoes gravadas no banco voltam na subida. */
+    @Test
+    void revogacaoSobreviveAoReinicio() throws Exception {
+        String token = tokensServices.emitir(42).token();
+        long serie = tokensServices.verificar(token).serie();
+        ResultSet linha = mock(ResultSet.class);
+        when(linha.getLong(1)).thenReturn(serie);
+        doAnswer(chamada -> {
+            chamada.<RowCallbackHandler>getArgument(0).processRow(linha);
+            return null;
+        }).when(revogacoesRepository).paraCadaToken(any());
+
+        configurar(tokensServices, SEGREDO, 24);
+
+        assertThat(tokensServices.verificar(token)).isNull();
+    }
+
+    private static void configurar(TokensServices servico, String segredo, long validadeHoras) throws Exception {
+        ReflectionTestUtils.setField(servico, "segredo", segredo);
+        ReflectionTestUtils.setField(servico, "validadeHoras", validadeHoras);
+        servico.iniciar();
+    }
+}
@@ -0,0 +1,98 @@
+package com.gasparelli.doolt.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ArvoreIntervalosTests {
+
+    private final ArvoreIntervalos arvore = ArvoreIntervalos.de(
+            new long[] { 1, 2, 3, 4 },
+            new long[] { 0, 10, 10, 30 },
+            new long[] { 10, 20, 15, 40 });
+
+    /* Semiabertos: encostar no fim ou no inicio nao e sobrepor. */
+    @Test
+    void intervalosQueSoEncostamNaoSobrepoem() {
+        assertThat(arvore.sobrepostos(20, 30)).isEmpty();
+        assertThat(arvore.sobrepostos(40, 50)).isEmpty();
+        assertThat(arvore.sobrepostos(-5, 0)).isEmpty();
+        assertThat(arvore.sobrepostos(10, 11)).containsExactly(2, 3);
+        assertThat(arvore.sobrepostos(9, 10)).containsExactly(1);
+        assertThat(arvore.sobrepostos(19, 31)).containsExactly(2, 4);
+    }
+
+    @Test
+    void janelaQueCobreTudo() {
+        assertThat(arvore.sobrepostos(Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly(1, 2, 3, 4);
+        assertThat(ArvoreIntervalos.VAZIA.sobrepostos(0, 100)).isEmpty();
+    }
+
+    @Test
+    void comSubstituiOIntervaloDoId() {
+        ArvoreIntervalos movida = arvore.com(2, 50, 60).com(5, 5, 6);
+
+        assertThat(movida.tamanho()).isEqualTo(5);
+        assertThat(movida.sobrepostos(15, 20)).isEmpty();
+        assertThat(movida.sobrepostos(55, 56)).containsExactly(2);
+        assertThat(movida.sobrepostos(0, 100)).containsExactly(1, 5, 3, 4, 2);
+        assertThat(arvore.sobrepostos(15, 20)).containsExactly(2);
+    }
+
+    @Test
+    void comTodosESemTodos() {
+        ArvoreIntervalos alterada = arvore.comTodos(new long[] { 1, 9 }, new long[] { 100, 12 },
+                new long[] { 110, 13 });
+
+        assertThat(alterada.sobrepostos(0, 10)).isEmpty();
+        assertThat(alterada.sobrepostos(12, 13)).containsExactly(2, 3, 9);
+        assertThat(alterada.semTodos(Set.of(2L, 3L)).sobrepostos(12, 13)).containsExactly(9);
+        assertThat(alterada.semTodos(Set.of(77L))).isSameAs(alterada);
+        assertThat(arvore.sem(77)).isSameAs(arvore);
+        assertThat(arvore.sem(1).sobrepostos(0, 10)).isEmpty();
+    }
+
+    @Test
+    void ocupadosUneEncostadosERecortaNaJanela() {
+        List<long[]> periodos = arvore.ocupados(5, 35);
+
+        assertThat(periodos).hasSize(2);
+        assertThat(periodos.get(0)).containsExactly(5, 20);
+        assertThat(periodos.get(1)).containsExactly(30, 35);
+        assertThat(arvore.ocupados(20, 30)).isEmpty();
+    }
+
+    /* Compara com a busca linear em arvores sorteadas, inclusive nas bordas dos intervalos. */
+    @Test
+    void bateComBuscaLinear() {
+        Random sorteio = new Random(7);
+        for (int rodada = 0; rodada < 30; rodada++) {
+            int n = sorteio.nextInt(60);
+            long[] ids = new long[n];
+            long[] inicios = new long[n];
+            long[] fins = new long[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i + 1;
+                inicios[i] = sorteio.nextInt(100);
+                fins[i] = inicios[i] + 1 + sorteio.nextInt(20);
+            }
+            ArvoreIntervalos sorteada = ArvoreIntervalos.de(ids, inicios, fins);
+            for (long inicio = -1; inicio <= 121; inicio += 3) {
+                long fim = inicio + sorteio.nextInt(15) + 1;
+                List<Long> esperados = new ArrayList<>();
+                for (int i = 0; i < n; i++) {
+                    if (inicios[i] < fim && fins[i] > inicio) {
+                        esperados.add(ids[i]);
+                    }
+                }
+                assertThat(sorteada.sobrepostos(inicio, fim)).containsExactlyInAnyOrder(
+                        esperados.stream().mapToLong(Long::longValue).toArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.gasparelli.doolt.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class ListaIdsCompactadaTests {
+
+    /* Deltas nas fronteiras de cada byte do varint, ids de shard (2^41) e o maior long positivo util. */
+    @Test
+    void voltaOsMesmosIds() {
+        long[] ids = { 0, 1, 127, 128, 255, 16_383, 16_384, 16_385, 1L << 41, (1L << 41) + 1, 1L << 62 };
+
+        ListaIdsCompactada lista = ListaIdsCompactada.de(ids, ids.length);
+
+        assertThat(lista.tamanho()).isEqualTo(ids.length);
+        assertThat(lista.paraArray()).containsExactly(ids);
+    }
+
+    @Test
+    void usaSoOsPrimeirosIds() {
+        long[] ids = { 3, 9, 40, 0, 0 };
+
+        assertThat(ListaIdsCompactada.de(ids, 3).paraArray()).containsExactly(3, 9, 40);
+        assertThat(ListaIdsCompactada.de(ids, 0)).isSameAs(ListaIdsCompactada.VAZIA);
+    }
+
+    @Test
+    void cursorPercorreEmOrdem() {
+        ListaIdsCompactada.Cursor cursor = ListaIdsCompactada.de(new long[] { 5, 300, 70_000 }, 3).cursor();
+
+        assertThat(cursor.proximo()).isEqualTo(5);
+        assertThat(cursor.proximo()).isEqualTo(300);
+        assertThat(cursor.temProximo()).isTrue();
+        assertThat(cursor.proximo()).isEqualTo(70_000);
+        assertThat(cursor.temProximo()).isFalse();
+    }
+
+    @Test
+    void incluiERemoveMantendoAOrdem() {
+        ListaIdsCompactada lista = ListaIdsCompactada.de(new long[] { 10, 20, 30 }, 3);
+
+        assertThat(lista.com(20)).isSameAs(lista);
+        assertThat(lista.com(5).com(25).com(1000).paraArray()).containsExactly(5, 10, 20, 25, 30, 1000);
+        assertThat(lista.sem(99)).isSameAs(lista);
+        assertThat(lista.sem(10).sem(30).paraArray()).containsExactly(20);
+        assertThat(lista.sem(10).sem(20).sem(30).tamanho()).isZero();
+        assertThat(lista.comTodos(new long[] { 40, 5, 20, 5 }).paraArray()).containsExactly(5, 10, 20, 30, 40);
+    }
+
+    @Test
+    void intersecao() {
+        ListaIdsCompactada pares = lista(2, 4, 6, 8, 10, 12);
+        ListaIdsCompactada tres = lista(3, 6, 9, 12, 15);
+        ListaIdsCompactada grandes = lista(12, 1L << 41);
+
+        assertThat(ListaIdsCompactada.intersecao(List.of(pares, tres))).containsExactly(6, 12);
+        assertThat(ListaIdsCompactada.intersecao(List.of(pares, tres, grandes))).containsExactly(12);
+        assertThat(ListaIdsCompactada.intersecao(List.of(pares))).containsExactly(2, 4, 6, 8, 10, 12);
+        assertThat(ListaIdsCompactada.intersecao(List.of(pares, ListaIdsCompactada.VAZIA))).isEmpty();
+        assertThat(ListaIdsCompactada.intersecao(List.of(lista(1, 2), lista(3, 4)))).isEmpty();
+        assertThat(ListaIdsCompactada.intersecao(List.of())).isEmpty();
+    }
+
+    @Test
+    void uniao() {
+        ListaIdsCompactada pares = lista(2, 4, 6);
+        ListaIdsCompactada tres = lista(3, 6, 9);
+
+        assertThat(ListaIdsCompactada.uniao(List.of(pares, tres))).containsExactly(2, 3, 4, 6, 9);
+        assertThat(ListaIdsCompactada.uniao(List.of(pares, ListaIdsCompactada.VAZIA, pares))).containsExactly(2, 4, 6);
+        assertThat(ListaIdsCompactada.uniao(List.of(lista(1L << 41), lista(1)))).containsExactly(1, 1L << 41);
+        assertThat(ListaIdsCompactada.uniao(List.of())).isEmpty();
+    }
+
+    /* Compara com conjuntos comuns em listas sorteadas, com sobreposicao parcial. */
+    @Test
+    void intersecaoEUniaoBatemComConjuntos() {
+        Random sorteio = new Random(42);
+        for (int rodada = 0; rodada < 50; rodada++) {
+            TreeSet<Long> a = sortear(sorteio);
+            TreeSet<Long> b = sortear(sorteio);
+            TreeSet<Long> comuns = new TreeSet<>(a);
+            comuns.retainAll(b);
+            TreeSet<Long> todos = new TreeSet<>(a);
+            todos.addAll(b);
+
+            List<ListaIdsCompactada> listas = List.of(lista(a), lista(b));
+
+            assertThat(ListaIdsCompactada.intersecao(listas)).containsExactly(array(comuns));
+            assertThat(ListaIdsCompactada.uniao(listas)).containsExactly(array(todos));
+        }
+    }
+
+    private static TreeSet<Long> sortear(Random sorteio) {
+        TreeSet<Long> ids = new TreeSet<>();
+        int quantidade = sorteio.nextInt(200);
+        for (int i = 0; i < quantidade; i++) {
+            ids.add((long) sorteio.nextInt(500) * (sorteio.nextBoolean() ? 1 : 1000));
+        }
+        return ids;
+    }
+
+    private static ListaIdsCompactada lista(TreeSet<Long> ids) {
+        return lista(array(ids));
+    }
+
+    private static ListaIdsCompactada lista(long... ids) {
+        return ListaIdsCompactada.de(ids, ids.length);
+    }
+
+    private static long[] array(TreeSet<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
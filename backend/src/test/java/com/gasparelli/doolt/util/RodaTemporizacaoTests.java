@@ -0,0 +1,114 @@
+package com.gasparelli.doolt.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+class RodaTemporizacaoTests {
+
+    /** Uma volta dos dois primeiros niveis. */
+    private static final long VOLTA_2 = 64 * 64;
+
+    /** Uma volta dos tres primeiros niveis. */
+    private static final long VOLTA_3 = 64 * 64 * 64;
+
+    /* Prazos nas bordas de cada nivel, partindo de um segundo que nao e multiplo de 64. */
+    @Test
+    void desceOsNiveisEDisparaNoSegundoCerto() {
+        long agora = VOLTA_2 - 3;
+        RodaTemporizacao<Long> roda = new RodaTemporizacao<>(agora);
+        long[] prazos = { agora + 1, agora + 63, agora + 64, agora + 65,
+            VOLTA_2, VOLTA_2 + 1, 2 * VOLTA_2 - 1, agora + VOLTA_2,
+            VOLTA_3 - 1, VOLTA_3, VOLTA_3 + 1, agora + VOLTA_3 + 5, agora + RodaTemporizacao.ALCANCE - 1 };
+        for (long prazo : prazos) {
+            assertThat(roda.agendar(prazo, prazo, prazo)).isTrue();
+        }
+
+        Map<Long, Long> disparos = avancarAte(roda, agora + RodaTemporizacao.ALCANCE);
+
+        assertThat(disparos).hasSize(prazos.length);
+        disparos.forEach((prazo, momento) -> assertThat(momento).as("prazo %d", prazo).isEqualTo(prazo));
+        assertThat(roda.tamanho()).isZero();
+    }
+
+    @Test
+    void prazoVencidoDisparaNoProximoTickEAlemDoAlcanceRecusa() {
+        RodaTemporizacao<String> roda = new RodaTemporizacao<>(1000);
+
+        assertThat(roda.agendar(1, 10, "vencido")).isTrue();
+        assertThat(roda.agendar(2, 1000 + RodaTemporizacao.ALCANCE, "longe")).isFalse();
+        assertThat(roda.tamanho()).isEqualTo(1);
+
+        List<String> vencidas = new ArrayList<>();
+        roda.avancar(1001, vencidas::add);
+        assertThat(vencidas).containsExactly("vencido");
+    }
+
+    @Test
+    void cancelarEReagendar() {
+        RodaTemporizacao<String> roda = new RodaTemporizacao<>(0);
+        roda.agendar(1, 100, "um");
+        roda.agendar(2, 100, "dois");
+        roda.agendar(3, 100, "tres");
+        roda.agendar(4, 5000, "quatro");
+
+        assertThat(roda.cancelar(2)).isTrue();
+        assertThat(roda.cancelar(2)).isFalse();
+        roda.agendar(4, 50, "quatro antes");
+        roda.agendar(3, 9000, "tres depois");
+
+        List<String> vencidas = new ArrayList<>();
+        roda.avancar(100, vencidas::add);
+        assertThat(vencidas).containsExactly("quatro antes", "um");
+        roda.avancar(10_000, vencidas::add);
+        assertThat(vencidas).containsExactly("quatro antes", "um", "tres depois");
+    }
+
+    /* Agenda, cancela e avanca aos saltos; cada entrada dispara no seu prazo e em ordem. */
+    @Test
+    void bateComOsPrazosSorteados() {
+        Random sorteio = new Random(11);
+        RodaTemporizacao<Long> roda = new RodaTemporizacao<>(sorteio.nextInt(100_000));
+        Map<Long, Long> esperados = new HashMap<>();
+        List<long[]> disparos = new ArrayList<>();
+        Consumer<Long> registrar = valor -> disparos.add(new long[] { valor, roda.atual() });
+        long id = 0;
+        for (int passo = 0; passo < 200; passo++) {
+            for (int i = 0; i < 20; i++) {
+                long distancia = (long) Math.pow(2, sorteio.nextInt(24)) + sorteio.nextInt(64);
+                long prazo = roda.atual() + Math.min(distancia, RodaTemporizacao.ALCANCE - 1);
+                roda.agendar(++id, prazo, id);
+                esperados.put(id, prazo);
+            }
+            if (sorteio.nextBoolean()) {
+                long cancelado = 1 + sorteio.nextInt((int) id);
+                if (roda.cancelar(cancelado)) {
+                    esperados.remove(cancelado);
+                }
+            }
+            roda.avancar(roda.atual() + sorteio.nextInt(50_000), registrar);
+        }
+        roda.avancar(roda.atual() + RodaTemporizacao.ALCANCE, registrar);
+
+        assertThat(disparos).hasSize(esperados.size());
+        long anterior = Long.MIN_VALUE;
+        for (long[] disparo : disparos) {
+            assertThat(disparo[1]).as("id %d", disparo[0]).isEqualTo(esperados.get(disparo[0]));
+            assertThat(disparo[1]).isGreaterThanOrEqualTo(anterior);
+            anterior = disparo[1];
+        }
+    }
+
+    private static Map<Long, Long> avancarAte(RodaTemporizacao<Long> roda, long ate) {
+        Map<Long, Long> disparos = new HashMap<>();
+        roda.avancar(ate, prazo -> disparos.put(prazo, roda.atual()));
+        return disparos;
+    }
+}
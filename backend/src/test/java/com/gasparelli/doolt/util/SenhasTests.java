@@ -0,0 +1,83 @@
+package com.gasparelli.doolt.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class SenhasTests {
+
+    @Test
+    void confereASenhaCerta() {
+        String armazenada = Senhas.gerar("segredo forte");
+
+        assertThat(Senhas.gerada(armazenada)).isTrue();
+        assertThat(armazenada).startsWith("pbkdf2$" + Senhas.ITERACOES + "$");
+        assertThat(Senhas.confere("segredo forte", armazenada)).isTrue();
+        assertThat(Senhas.confere("segredo fraco", armazenada)).isFalse();
+        assertThat(Senhas.confere(null, armazenada)).isFalse();
+    }
+
+    @Test
+    void salDiferenteACadaGeracao() {
+        assertThat(Senhas.gerar("mesma")).isNotEqualTo(Senhas.gerar("mesma"));
+    }
+
+    /* Mexer nas iteracoes, no sal ou no hash gravados invalida a senha. */
+    @Test
+    void valorAdulteradoNaoConfere() {
+        String[] partes = Senhas.gerar("segredo").split("\\$");
+
+        assertThat(Senhas.confere("segredo", String.join("$", partes[0], String.valueOf(Senhas.ITERACOES - 1),
+                partes[2], partes[3]))).isFalse();
+        assertThat(Senhas.confere("segredo", String.join("$", partes[0], partes[1], trocarPrimeiro(partes[2]),
+                partes[3]))).isFalse();
+        assertThat(Senhas.confere("segredo", String.join("$", partes[0], partes[1], partes[2],
+                trocarPrimeiro(partes[3])))).isFalse();
+    }
+
+    /*
+     * Um hash correto com iteracoes fora da politica nao confere: poucas
+     * enfraquecem a senha, muitas prenderiam a CPU em cada login.
+     */
+    @Test
+    void iteracoesForaDaFaixaNaoConferem() throws GeneralSecurityException {
+        assertThat(Senhas.confere("segredo", armazenada("segredo", 1))).isFalse();
+        assertThat(Senhas.confere("segredo", armazenada("segredo", Senhas.MINIMO_ITERACOES - 1))).isFalse();
+        assertThat(Senhas.confere("segredo", armazenada("segredo", Senhas.MINIMO_ITERACOES))).isTrue();
+        String muitas = "pbkdf2$2000000000$" + armazenada("segredo", 1).split("\\$", 3)[2];
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThat(Senhas.confere("segredo", muitas)).isFalse());
+    }
+
+    @Test
+    void valorInvalidoNuncaConfere() {
+        assertThat(Senhas.confere("segredo", null)).isFalse();
+        assertThat(Senhas.confere("segredo", "segredo")).isFalse();
+        assertThat(Senhas.confere("segredo", "pbkdf2$1$abc")).isFalse();
+        assertThat(Senhas.confere("segredo", "pbkdf2$muitas$abc$def")).isFalse();
+        assertThat(Senhas.confere("segredo", "pbkdf2$1000$***$***")).isFalse();
+        assertThat(Senhas.gerada("segredo")).isFalse();
+        assertThat(Senhas.gerada(null)).isFalse();
+    }
+
+    /* Mesmo formato de Senhas.gerar, com as iteracoes escolhidas. */
+    private static String armazenada(String senha, int iteracoes) throws GeneralSecurityException {
+        byte[] sal = new byte[16];
+        byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec(senha.toCharArray(), sal, iteracoes, 256))
+                .getEncoded();
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return "pbkdf2$" + iteracoes + "$" + base64.encodeToString(sal) + "$" + base64.encodeToString(hash);
+    }
+
+    private static String trocarPrimeiro(String base64) {
+        return (base64.charAt(0) == 'A' ? "B" : "A") + base64.substring(1);
+    }
+}